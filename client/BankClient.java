@@ -7,7 +7,9 @@ import javax.swing.table.*;
 import java.awt.*;
 import java.awt.event.*;
 import java.rmi.Naming;
+import java.rmi.RemoteException;
 import java.util.List;
+import java.util.UUID;
 
 /**
  * Clientul cu interfață grafică pentru sistemul bancar
@@ -22,7 +24,7 @@ public class BankClient extends JFrame {
     // Informații sesiune
     private String currentAccountNumber;
     private String currentPin;
-    private Account currentAccount;
+    private AccountSummary currentAccount;
     
     // Componente pentru conexiune
     private JTextField serverIpField;
@@ -51,6 +53,20 @@ public class BankClient extends JFrame {
     private JTextArea historyArea;
     private JTable transactionTable;
     private DefaultTableModel tableModel;
+    private JButton loadMoreButton;
+    
+    // Paginarea istoricului: ultima secvență afișată și cursorul paginii următoare
+    private static final int PAGE_LIMIT = 50;
+    // De câte ori se încearcă o operațiune cu cheie de idempotență la erori de rețea
+    private static final int IDEMPOTENT_ATTEMPTS = 3;
+    private long latestSequence;
+    private long nextCursor;
+    
+    // Cât așteaptă un apel awaitChange pe server și pauza după o eroare de rețea
+    private static final long WATCH_TIMEOUT_MILLIS = 30000;
+    private static final long WATCH_RETRY_MILLIS = 5000;
+    // Firul care primește modificările contului curent (null după deconectare)
+    private volatile Thread accountWatcher;
     
     // Culori temă
     private static final Color PRIMARY_COLOR = new Color(25, 118, 210);
@@ -365,6 +381,11 @@ public class BankClient extends JFrame {
         JPanel buttonPanel = new JPanel(new FlowLayout(FlowLayout.RIGHT));
         buttonPanel.setBackground(CARD_COLOR);
         
+        loadMoreButton = createStyledButton("📜 Mai multe", PRIMARY_COLOR);
+        loadMoreButton.setEnabled(false);
+        loadMoreButton.addActionListener(e -> loadMoreTransactions());
+        buttonPanel.add(loadMoreButton);
+        
         JButton refreshButton = createStyledButton("🔄 Actualizare", PRIMARY_COLOR);
         refreshButton.addActionListener(e -> refreshData());
         buttonPanel.add(refreshButton);
@@ -539,12 +560,14 @@ public class BankClient extends JFrame {
         }
         
         try {
-            currentAccount = bankService.login(accountNum, pin);
+            currentAccount = bankService.authenticate(accountNum, pin);
             currentAccountNumber = accountNum;
             currentPin = pin;
+            latestSequence = 0;
             
             welcomeLabel.setText("Bine ați venit, " + currentAccount.getOwnerName() + "!");
             refreshData();
+            startAccountWatcher();
             
             cardLayout.show(containerPanel, "main");
             
@@ -685,9 +708,11 @@ public class BankClient extends JFrame {
         }
         
         try {
-            double newBalance = bankService.deposit(currentAccountNumber, currentPin, amount);
-            showSuccess("Depunere efectuată cu succes!\nNou sold: " + String.format("%.2f", newBalance) + " RON");
-            refreshData();
+            String idempotencyKey = UUID.randomUUID().toString();
+            AccountSummary updated = retryIdempotent(() -> bankService.depositIfVersion(
+                currentAccountNumber, currentPin, amount, AccountSummary.ANY_VERSION, idempotencyKey));
+            showSuccess("Depunere efectuată cu succes!\nNou sold: " + Formatting.amount(updated.getBalance()) + " RON");
+            showAccount(updated);
             amountField.setText("");
         } catch (BankException e) {
             showError(e.getMessage());
@@ -713,10 +738,16 @@ public class BankClient extends JFrame {
         }
         
         try {
-            double newBalance = bankService.withdraw(currentAccountNumber, currentPin, amount);
-            showSuccess("Retragere efectuată cu succes!\nNou sold: " + String.format("%.2f", newBalance) + " RON");
-            refreshData();
+            // Retragerea se face doar dacă soldul afișat este încă cel curent
+            long expectedVersion = currentAccount.getVersion();
+            String idempotencyKey = UUID.randomUUID().toString();
+            AccountSummary updated = retryIdempotent(() -> bankService.withdrawIfVersion(
+                currentAccountNumber, currentPin, amount, expectedVersion, idempotencyKey));
+            showSuccess("Retragere efectuată cu succes!\nNou sold: " + Formatting.amount(updated.getBalance()) + " RON");
+            showAccount(updated);
             amountField.setText("");
+        } catch (VersionConflictException e) {
+            showVersionConflict(e);
         } catch (BankException e) {
             showError(e.getMessage());
         } catch (Exception e) {
@@ -741,7 +772,7 @@ public class BankClient extends JFrame {
         }
         
         int confirm = JOptionPane.showConfirmDialog(this,
-            "Confirmați transferul de " + String.format("%.2f", amount) + " RON\n" +
+            "Confirmați transferul de " + Formatting.amount(amount) + " RON\n" +
             "către contul " + toAccount + "?",
             "Confirmare Transfer",
             JOptionPane.YES_NO_OPTION);
@@ -751,10 +782,15 @@ public class BankClient extends JFrame {
         }
         
         try {
-            double newBalance = bankService.transfer(currentAccountNumber, currentPin, toAccount, amount);
-            showSuccess("Transfer efectuat cu succes!\nNou sold: " + String.format("%.2f", newBalance) + " RON");
-            refreshData();
+            long expectedVersion = currentAccount.getVersion();
+            String idempotencyKey = UUID.randomUUID().toString();
+            AccountSummary updated = retryIdempotent(() -> bankService.transferIfVersion(
+                currentAccountNumber, currentPin, toAccount, amount, expectedVersion, idempotencyKey));
+            showSuccess("Transfer efectuat cu succes!\nNou sold: " + Formatting.amount(updated.getBalance()) + " RON");
+            showAccount(updated);
             transferAccountField.setText("");
+        } catch (VersionConflictException e) {
+            showVersionConflict(e);
         } catch (BankException e) {
             showError(e.getMessage());
         } catch (Exception e) {
@@ -762,37 +798,173 @@ public class BankClient extends JFrame {
         }
     }
     
+    /**
+     * Apel RMI care poate fi repetat
+     */
+    private interface RemoteCall<T> {
+        T call() throws RemoteException, BankException;
+    }
+    
+    /**
+     * Execută o operațiune cu cheie de idempotență, repetând-o la erorile de rețea
+     * Serverul recunoaște cheia și nu aplică operațiunea de două ori, chiar dacă prima
+     * încercare a ajuns la el, iar răspunsul s-a pierdut.
+     */
+    private <T> T retryIdempotent(RemoteCall<T> call) throws RemoteException, BankException {
+        for (int attempt = 1; ; attempt++) {
+            try {
+                return call.call();
+            } catch (RemoteException e) {
+                if (attempt >= IDEMPOTENT_ATTEMPTS) {
+                    throw e;
+                }
+            }
+        }
+    }
+    
+    /**
+     * Contul s-a modificat după ultima actualizare (de exemplu dintr-o altă sesiune):
+     * afișăm soldul curent primit odată cu eroarea și reîmprospătăm datele
+     */
+    private void showVersionConflict(VersionConflictException e) {
+        currentAccount = e.getCurrent();
+        balanceLabel.setText("Sold: " + Formatting.amount(currentAccount.getBalance()) + " RON");
+        showError(e.getMessage() + "\nSold curent: " + Formatting.amount(currentAccount.getBalance()) + " RON");
+        refreshData();
+    }
+    
     private void refreshData() {
         try {
-            currentAccount = bankService.getAccountInfo(currentAccountNumber, currentPin);
-            balanceLabel.setText("Sold: " + String.format("%.2f", currentAccount.getBalance()) + " RON");
+            showAccount(bankService.getAccountSummary(currentAccountNumber, currentPin));
+        } catch (Exception e) {
+            showError("Eroare la actualizare: " + e.getMessage());
+        }
+    }
+    
+    /**
+     * Afișează rezumatul contului și cere doar tranzacțiile apărute de la ultima actualizare
+     */
+    private void showAccount(AccountSummary summary) {
+        // Un rezumat mai vechi decât cel afișat (sosit după răspunsul unei operațiuni) este ignorat
+        if (currentAccount != null && summary.getVersion() < currentAccount.getVersion()) {
+            return;
+        }
+        try {
+            currentAccount = summary;
+            balanceLabel.setText("Sold: " + Formatting.amount(currentAccount.getBalance()) + " RON");
             
-            // Actualizăm tabelul de tranzacții
-            tableModel.setRowCount(0);
-            List<Transaction> transactions = bankService.getTransactionHistory(currentAccountNumber, currentPin);
+            // Rezumatul spune deja dacă au apărut tranzacții noi de la ultima actualizare
+            if (latestSequence > 0 && currentAccount.getLatestSequence() == latestSequence) {
+                return;
+            }
+            
+            // Actualizăm tabelul de tranzacții: cerem doar tranzacțiile noi
+            TransactionPage page = null;
+            if (latestSequence > 0) {
+                page = bankService.getTransactionsSince(currentAccountNumber, currentPin, latestSequence, PAGE_LIMIT);
+            }
             
-            // Afișăm în ordine inversă (cele mai recente primele)
-            for (int i = transactions.size() - 1; i >= 0; i--) {
-                Transaction t = transactions.get(i);
-                String sign = (t.getType() == TransactionType.WITHDRAWAL || 
-                              t.getType() == TransactionType.TRANSFER_OUT) ? "-" : "+";
-                tableModel.addRow(new Object[]{
-                    t.getFormattedTimestamp(),
-                    t.getType().getDisplayName(),
-                    sign + String.format("%.2f", t.getAmount()) + " RON",
-                    t.getDescription()
-                });
+            if (page == null || page.hasMore()) {
+                // Prima încărcare sau prea multe tranzacții noi: reîncărcăm prima pagină
+                page = bankService.getTransactionPage(currentAccountNumber, currentPin, 0, PAGE_LIMIT);
+                tableModel.setRowCount(0);
+                addTransactionRows(page.getTransactions(), 0);
+                nextCursor = page.getNextCursor();
+                loadMoreButton.setEnabled(page.hasMore());
+            } else {
+                // Tranzacțiile noi apar deasupra celor deja afișate
+                addTransactionRows(page.getTransactions(), 0);
             }
+            latestSequence = page.getLatestSequence();
             
         } catch (Exception e) {
             showError("Eroare la actualizare: " + e.getMessage());
         }
     }
     
+    /**
+     * Pornește firul care primește modificările contului de la server
+     * Fiecare apel awaitChange rămâne pe server până la o modificare a contului sau până la
+     * WATCH_TIMEOUT_MILLIS, deci soldul și tranzacțiile se actualizează imediat, fără
+     * interogări periodice. Firul se oprește la deconectare, după apelul în curs.
+     */
+    private void startAccountWatcher() {
+        String accountNumber = currentAccountNumber;
+        String pin = currentPin;
+        long initialVersion = currentAccount.getVersion();
+        Thread watcher = new Thread(() -> {
+            long version = initialVersion;
+            while (accountWatcher == Thread.currentThread()) {
+                try {
+                    AccountSummary summary = bankService.awaitChange(accountNumber, pin, version, WATCH_TIMEOUT_MILLIS);
+                    if (summary.getVersion() != version) {
+                        version = summary.getVersion();
+                        SwingUtilities.invokeLater(() -> {
+                            if (accountWatcher != null && accountNumber.equals(currentAccountNumber)) {
+                                showAccount(summary);
+                            }
+                        });
+                    }
+                } catch (BankException e) {
+                    // Contul nu mai poate fi citit cu aceste credențiale
+                    return;
+                } catch (RemoteException e) {
+                    // Serverul nu răspunde: reîncercăm după o pauză
+                    try {
+                        Thread.sleep(WATCH_RETRY_MILLIS);
+                    } catch (InterruptedException ie) {
+                        return;
+                    }
+                }
+            }
+        }, "account-watcher");
+        watcher.setDaemon(true);
+        accountWatcher = watcher;
+        watcher.start();
+    }
+    
+    /**
+     * Încarcă pagina următoare (tranzacții mai vechi) la finalul tabelului
+     */
+    private void loadMoreTransactions() {
+        if (nextCursor <= 0) {
+            return;
+        }
+        
+        try {
+            TransactionPage page = bankService.getTransactionPage(currentAccountNumber, currentPin, nextCursor, PAGE_LIMIT);
+            addTransactionRows(page.getTransactions(), tableModel.getRowCount());
+            nextCursor = page.getNextCursor();
+            loadMoreButton.setEnabled(page.hasMore());
+        } catch (Exception e) {
+            showError("Eroare la încărcarea tranzacțiilor: " + e.getMessage());
+        }
+    }
+    
+    /**
+     * Inserează tranzacțiile (cele mai recente primele) în tabel, începând cu rândul dat
+     */
+    private void addTransactionRows(List<Transaction> transactions, int row) {
+        for (Transaction t : transactions) {
+            String sign = (t.getType() == TransactionType.WITHDRAWAL || 
+                          t.getType() == TransactionType.TRANSFER_OUT) ? "-" : "+";
+            tableModel.insertRow(row++, new Object[]{
+                t.getFormattedTimestamp(),
+                t.getType().getDisplayName(),
+                sign + Formatting.amount(t.getAmount()) + " RON",
+                t.getDescription()
+            });
+        }
+    }
+    
     private void logout() {
+        accountWatcher = null;
         currentAccountNumber = null;
         currentPin = null;
         currentAccount = null;
+        latestSequence = 0;
+        nextCursor = 0;
+        loadMoreButton.setEnabled(false);
         tableModel.setRowCount(0);
         cardLayout.show(containerPanel, "login");
     }
@@ -1,36 +1,81 @@
 package common;
 
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.ObjectStreamField;
 import java.io.Serializable;
 import java.time.LocalDateTime;
-import java.time.format.DateTimeFormatter;
-import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
+import java.util.concurrent.atomic.AtomicLongFieldUpdater;
 
 /**
  * Clasa care reprezintă un cont bancar
  * Implementează Serializable pentru a putea fi transmisă prin RMI
+ *
+ * Soldul este păstrat în bani (1/100 RON) și se modifică atomic (compare-and-set),
+ * deci poate fi citit oricând fără lock. Forma serializată rămâne cea veche
+ * (soldul ca double în RON), astfel încât fișierele accounts.dat existente se pot citi.
  */
 public class Account implements Serializable {
     private static final long serialVersionUID = 1L;
     
+    private static final ObjectStreamField[] serialPersistentFields = {
+        new ObjectStreamField("accountNumber", String.class),
+        new ObjectStreamField("ownerName", String.class),
+        new ObjectStreamField("pin", String.class),
+        new ObjectStreamField("balance", double.class),
+        new ObjectStreamField("transactionHistory", List.class),
+        new ObjectStreamField("createdAt", LocalDateTime.class),
+        new ObjectStreamField("historyHead", long.class),
+        new ObjectStreamField("archivedCount", int.class),
+        new ObjectStreamField("lastLsn", long.class)
+    };
+    
+    private static final AtomicLongFieldUpdater<Account> BALANCE =
+        AtomicLongFieldUpdater.newUpdater(Account.class, "balanceBani");
+    private static final AtomicIntegerFieldUpdater<Account> PINS =
+        AtomicIntegerFieldUpdater.newUpdater(Account.class, "pins");
+    
     private String accountNumber;
     private String ownerName;
     private String pin;
-    private double balance;
-    private List<Transaction> transactionHistory;
+    private volatile long balanceBani;
+    // Doar tranzacțiile recente, stocate pe coloane; cele vechi sunt arhivate pe disc de server
+    private TransactionLog transactionHistory;
     private LocalDateTime createdAt;
+    // Adresa ultimei pagini arhivate (0 = nicio pagină) și numărul de tranzacții arhivate
+    private long historyHead;
+    private int archivedCount;
+    // LSN-ul ultimei înregistrări din jurnal aplicate acestui cont (folosit de server)
+    private long lastLsn;
+    // Versiunea contului: numărul total de tranzacții. Crește la fiecare modificare și, fiind
+    // derivată din istoric, se păstrează după repornire (nu face parte din forma serializată)
+    private volatile long version;
+    // Operațiunile serverului care folosesc contul în acest moment; -1 după ce serverul
+    // l-a eliberat din memorie (nu face parte din forma serializată)
+    private volatile int pins;
+    
+    public Account(String accountNumber, String ownerName, String pin, long initialBalanceBani) {
+        this(accountNumber, ownerName, pin, initialBalanceBani, LocalDateTime.now());
+    }
     
-    public Account(String accountNumber, String ownerName, String pin, double initialBalance) {
+    /**
+     * Constructor cu dată de creare explicită (folosit la reconstruirea din jurnal)
+     */
+    public Account(String accountNumber, String ownerName, String pin, long initialBalanceBani,
+                   LocalDateTime createdAt) {
         this.accountNumber = accountNumber;
         this.ownerName = ownerName;
         this.pin = pin;
-        this.balance = initialBalance;
-        this.transactionHistory = new ArrayList<>();
-        this.createdAt = LocalDateTime.now();
+        this.balanceBani = initialBalanceBani;
+        this.transactionHistory = new TransactionLog();
+        this.createdAt = createdAt;
         
-        if (initialBalance > 0) {
-            addTransaction(new Transaction(TransactionType.DEPOSIT, initialBalance, 
-                "Depozit inițial la crearea contului"));
+        if (initialBalanceBani > 0) {
+            addTransaction(TransactionType.DEPOSIT, initialBalanceBani, TransactionLog.toEpochMillis(createdAt),
+                TransactionLog.Description.INITIAL_DEPOSIT, null);
         }
     }
     
@@ -42,24 +87,197 @@ public class Account implements Serializable {
         return ownerName;
     }
     
+    /**
+     * PIN-ul contului (folosit doar de server pentru persistență)
+     */
+    public String getPin() {
+        return pin;
+    }
+    
     public boolean validatePin(String pin) {
         return this.pin.equals(pin);
     }
     
+    /**
+     * Soldul în RON (pentru afișare și pentru interfața RMI)
+     */
     public double getBalance() {
-        return balance;
+        return Money.toRon(balanceBani);
+    }
+    
+    /**
+     * Soldul în bani; citirea nu necesită lock
+     */
+    public long getBalanceBani() {
+        return balanceBani;
+    }
+    
+    public void setBalanceBani(long balanceBani) {
+        this.balanceBani = balanceBani;
+    }
+    
+    /**
+     * Adaugă o sumă la sold (compare-and-set, fără lock)
+     * @return soldul nou, în bani
+     */
+    public long credit(long amountBani) {
+        return BALANCE.addAndGet(this, amountBani);
+    }
+    
+    /**
+     * Scade o sumă din sold (compare-and-set, fără lock)
+     * Verificarea fondurilor o face apelantul, sub lock-ul contului.
+     * @return soldul nou, în bani
+     */
+    public long debit(long amountBani) {
+        return BALANCE.addAndGet(this, -amountBani);
     }
     
-    public void setBalance(double balance) {
-        this.balance = balance;
+    /**
+     * Verifică fără lock dacă soldul acoperă suma (folosit pentru respingerea rapidă)
+     */
+    public boolean hasFunds(long amountBani) {
+        return balanceBani >= amountBani;
     }
     
+    /**
+     * Tranzacțiile recente păstrate în memorie, ca obiecte Transaction
+     * Istoricul complet se obține prin BankService.getTransactionHistory
+     */
     public List<Transaction> getTransactionHistory() {
-        return new ArrayList<>(transactionHistory);
+        return transactionHistory.toList();
+    }
+    
+    /**
+     * Tranzacțiile recente, pe coloane (folosit de server, sub lock-ul contului)
+     */
+    public TransactionLog getTransactionLog() {
+        return transactionHistory;
     }
     
     public void addTransaction(Transaction transaction) {
-        this.transactionHistory.add(transaction);
+        transactionHistory.add(transaction);
+        version = archivedCount + transactionHistory.size();
+    }
+    
+    /**
+     * Adaugă o tranzacție fără a crea obiecte pentru ea
+     * @param counterparty celălalt cont al unui transfer sau null
+     */
+    public void addTransaction(TransactionType type, long amountBani, long timestamp, 
+                               TransactionLog.Description description, Account counterparty) {
+        String relatedAccount = counterparty != null ? counterparty.accountNumber : null;
+        String counterpartyName = counterparty != null ? counterparty.ownerName : null;
+        transactionHistory.add(type, amountBani, timestamp, description, relatedAccount, counterpartyName);
+        version = archivedCount + transactionHistory.size();
+    }
+    
+    /**
+     * Adaugă la final tranzacțiile altui jurnal (la încărcarea de pe disc)
+     */
+    public void addTransactions(TransactionLog transactions) {
+        transactionHistory.addAll(transactions);
+        version = archivedCount + transactionHistory.size();
+    }
+    
+    public long getHistoryHead() {
+        return historyHead;
+    }
+    
+    public int getArchivedCount() {
+        return archivedCount;
+    }
+    
+    /**
+     * Numărul total de tranzacții (arhivate și recente)
+     */
+    public int getTransactionCount() {
+        return archivedCount + transactionHistory.size();
+    }
+    
+    /**
+     * Marchează primele count tranzacții recente ca arhivate în pagina newHead
+     */
+    public void archiveTransactions(int count, long newHead) {
+        transactionHistory.removeFirst(count);
+        archivedCount += count;
+        historyHead = newHead;
+    }
+    
+    /**
+     * Restaurează referința către istoricul arhivat (folosit la încărcarea de pe disc)
+     */
+    public void setArchivedHistory(long historyHead, int archivedCount) {
+        this.historyHead = historyHead;
+        this.archivedCount = archivedCount;
+        this.version = archivedCount + transactionHistory.size();
+    }
+    
+    /**
+     * Versiunea curentă a contului; citirea nu necesită lock
+     * Operațiunile condiționate o compară cu versiunea văzută de client.
+     */
+    public long getVersion() {
+        return version;
+    }
+    
+    public long getLastLsn() {
+        return lastLsn;
+    }
+    
+    public void setLastLsn(long lastLsn) {
+        this.lastLsn = lastLsn;
+    }
+    
+    /**
+     * Marchează contul ca folosit de o operațiune, pentru ca serverul să nu îl elibereze
+     * din memorie până la unpin()
+     * @return false dacă serverul a eliberat deja contul (trebuie căutat din nou)
+     */
+    public boolean pin() {
+        for (;;) {
+            int current = pins;
+            if (current < 0) {
+                return false;
+            }
+            if (PINS.compareAndSet(this, current, current + 1)) {
+                return true;
+            }
+        }
+    }
+    
+    public void unpin() {
+        PINS.decrementAndGet(this);
+    }
+    
+    /**
+     * Marchează contul ca eliberat din memorie, dacă nicio operațiune nu îl folosește
+     * @return true dacă marcarea a reușit
+     */
+    public boolean tryEvict() {
+        return PINS.compareAndSet(this, 0, -1);
+    }
+    
+    /**
+     * Anulează o marcare făcută de tryEvict (contul rămâne în memorie)
+     */
+    public void cancelEvict() {
+        pins = 0;
+    }
+    
+    /**
+     * Creează o copie independentă a contului (pentru snapshot-uri)
+     * Apelantul trebuie să dețină lock-ul contului pentru o copie consistentă
+     */
+    public Account copy() {
+        Account copy = new Account(accountNumber, ownerName, pin, 0, createdAt);
+        copy.balanceBani = balanceBani;
+        copy.transactionHistory = transactionHistory.copy();
+        copy.historyHead = historyHead;
+        copy.archivedCount = archivedCount;
+        copy.lastLsn = lastLsn;
+        copy.version = version;
+        return copy;
     }
     
     public LocalDateTime getCreatedAt() {
@@ -67,12 +285,46 @@ public class Account implements Serializable {
     }
     
     public String getFormattedCreatedAt() {
-        DateTimeFormatter formatter = DateTimeFormatter.ofPattern("dd-MM-yyyy HH:mm:ss");
-        return createdAt.format(formatter);
+        return Formatting.dateTime(createdAt);
+    }
+    
+    private void writeObject(ObjectOutputStream out) throws IOException {
+        ObjectOutputStream.PutField fields = out.putFields();
+        fields.put("accountNumber", accountNumber);
+        fields.put("ownerName", ownerName);
+        fields.put("pin", pin);
+        fields.put("balance", getBalance());
+        fields.put("transactionHistory", transactionHistory.toList());
+        fields.put("createdAt", createdAt);
+        fields.put("historyHead", historyHead);
+        fields.put("archivedCount", archivedCount);
+        fields.put("lastLsn", lastLsn);
+        out.writeFields();
+    }
+    
+    @SuppressWarnings("unchecked")
+    private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+        ObjectInputStream.GetField fields = in.readFields();
+        accountNumber = (String) fields.get("accountNumber", null);
+        ownerName = (String) fields.get("ownerName", null);
+        pin = (String) fields.get("pin", null);
+        balanceBani = Money.toBani(fields.get("balance", 0.0));
+        List<Transaction> transactions = (List<Transaction>) fields.get("transactionHistory", null);
+        transactionHistory = new TransactionLog();
+        if (transactions != null) {
+            for (Transaction transaction : transactions) {
+                transactionHistory.add(transaction);
+            }
+        }
+        createdAt = (LocalDateTime) fields.get("createdAt", null);
+        historyHead = fields.get("historyHead", 0L);
+        archivedCount = fields.get("archivedCount", 0);
+        lastLsn = fields.get("lastLsn", 0L);
+        version = archivedCount + transactionHistory.size();
     }
     
     @Override
     public String toString() {
-        return "Cont: " + accountNumber + " | Titular: " + ownerName + " | Sold: " + String.format("%.2f", balance) + " RON";
+        return "Cont: " + accountNumber + " | Titular: " + ownerName + " | Sold: " + Money.format(balanceBani) + " RON";
     }
 }
@@ -0,0 +1,71 @@
+package common;
+
+import java.io.Serializable;
+import java.time.LocalDateTime;
+
+/**
+ * Rezumat imuabil al unui cont, trimis clienților în locul obiectului Account
+ * Nu conține PIN-ul și nici istoricul tranzacțiilor, deci rămâne mic indiferent de vechimea contului.
+ */
+public final class AccountSummary implements Serializable {
+    private static final long serialVersionUID = 1L;
+    
+    // Versiunea așteptată care face o operațiune necondiționată
+    public static final long ANY_VERSION = -1;
+    
+    private final String accountNumber;
+    private final String ownerName;
+    private final double balance;
+    private final LocalDateTime createdAt;
+    private final long latestSequence;
+    
+    public AccountSummary(String accountNumber, String ownerName, double balance, LocalDateTime createdAt,
+                          long latestSequence) {
+        this.accountNumber = accountNumber;
+        this.ownerName = ownerName;
+        this.balance = balance;
+        this.createdAt = createdAt;
+        this.latestSequence = latestSequence;
+    }
+    
+    public String getAccountNumber() {
+        return accountNumber;
+    }
+    
+    public String getOwnerName() {
+        return ownerName;
+    }
+    
+    public double getBalance() {
+        return balance;
+    }
+    
+    public LocalDateTime getCreatedAt() {
+        return createdAt;
+    }
+    
+    /**
+     * Numărul de secvență al celei mai noi tranzacții (0 dacă nu există tranzacții)
+     * Clienții îl pot compara cu ultima secvență afișată pentru a sări peste reîncărcarea istoricului.
+     */
+    public long getLatestSequence() {
+        return latestSequence;
+    }
+    
+    /**
+     * Versiunea contului în momentul rezumatului, folosită pentru operațiunile condiționate
+     * Este egală cu numărul de secvență al ultimei tranzacții: orice modificare o crește.
+     */
+    public long getVersion() {
+        return latestSequence;
+    }
+    
+    public String getFormattedCreatedAt() {
+        return Formatting.dateTime(createdAt);
+    }
+    
+    @Override
+    public String toString() {
+        return "Cont: " + accountNumber + " | Titular: " + ownerName + " | Sold: " + Formatting.amount(balance) + " RON";
+    }
+}
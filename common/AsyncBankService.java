@@ -0,0 +1,79 @@
+package common;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Varianta asincronă a serviciului bancar, folosită de serverul web
+ * Fiecare metodă returnează imediat un future, finalizat când operațiunea s-a încheiat:
+ * pentru operațiunile care modifică soldul, după ce înregistrarea lor este durabilă în jurnal.
+ * Erorile sunt transmise prin future (BankException, VersionConflictException sau,
+ * pentru implementarea la distanță, RemoteException).
+ *
+ * Implementări: BankServiceImpl (în același proces cu registrul) și, în serverul web,
+ * un adaptor peste interfața RMI.
+ */
+public interface AsyncBankService {
+    
+    /**
+     * Înregistrează un cont nou în sistem
+     * @return future cu numărul de cont generat
+     */
+    CompletableFuture<String> createAccountAsync(String ownerName, String pin, double initialBalance);
+    
+    /**
+     * Autentifică un client
+     * @return future cu rezumatul contului
+     */
+    CompletableFuture<AccountSummary> authenticateAsync(String accountNumber, String pin);
+    
+    /**
+     * Rezumatul curent al contului (sold, versiune, ultima secvență)
+     */
+    CompletableFuture<AccountSummary> getAccountSummaryAsync(String accountNumber, String pin);
+    
+    /**
+     * Depunere, cu aceleași reguli ca BankService.depositIfVersion
+     * @return future cu rezumatul contului după depunere
+     */
+    CompletableFuture<AccountSummary> depositAsync(String accountNumber, String pin, double amount,
+        long expectedVersion, String idempotencyKey);
+    
+    /**
+     * Retragere, cu aceleași reguli ca BankService.withdrawIfVersion
+     * @return future cu rezumatul contului după retragere
+     */
+    CompletableFuture<AccountSummary> withdrawAsync(String accountNumber, String pin, double amount,
+        long expectedVersion, String idempotencyKey);
+    
+    /**
+     * Transfer, cu aceleași reguli ca BankService.transferIfVersion
+     * @return future cu rezumatul contului sursă după transfer
+     */
+    CompletableFuture<AccountSummary> transferAsync(String fromAccount, String pin, String toAccount,
+        double amount, long expectedVersion, String idempotencyKey);
+    
+    /**
+     * O pagină din istoricul contului (vezi BankService.getTransactionPage)
+     */
+    CompletableFuture<TransactionPage> getTransactionPageAsync(String accountNumber, String pin, long cursor,
+        int limit);
+    
+    /**
+     * Tranzacțiile apărute după o secvență dată (vezi BankService.getTransactionsSince)
+     */
+    CompletableFuture<TransactionPage> getTransactionsSinceAsync(String accountNumber, String pin,
+        long sinceSequence, int limit);
+    
+    /**
+     * Următoarea modificare a contului (vezi BankService.awaitChange)
+     * Future-ul se finalizează la modificare sau după timeoutMillis, fără a ocupa un fir între timp.
+     */
+    CompletableFuture<AccountSummary> awaitChangeAsync(String accountNumber, String pin, long afterVersion,
+        long timeoutMillis);
+    
+    /**
+     * Lista numerelor de cont existente
+     */
+    CompletableFuture<List<String>> getAllAccountNumbersAsync();
+}
@@ -27,6 +27,14 @@ public interface BankService extends Remote {
      */
     Account login(String accountNumber, String pin) throws RemoteException, BankException;
     
+    /**
+     * Autentifică un client și returnează doar rezumatul contului (fără PIN și istoric)
+     * @param accountNumber Numărul de cont
+     * @param pin Codul PIN
+     * @return Rezumatul contului dacă autentificarea reușește
+     */
+    AccountSummary authenticate(String accountNumber, String pin) throws RemoteException, BankException;
+    
     /**
      * Obține soldul curent al unui cont
      * @param accountNumber Numărul de cont
@@ -63,6 +71,62 @@ public interface BankService extends Remote {
      */
     double transfer(String fromAccount, String pin, String toAccount, double amount) throws RemoteException, BankException;
     
+    /**
+     * Depunere condiționată: se efectuează doar dacă versiunea contului este cea așteptată
+     * @param accountNumber Numărul de cont
+     * @param pin Codul PIN
+     * @param amount Suma de depus
+     * @param expectedVersion Versiunea citită de client sau AccountSummary.ANY_VERSION
+     * @param idempotencyKey Cheie aleasă de client (cel mult 64 de caractere) sau null; o reîncercare
+     *                       cu aceeași cheie nu repetă depunerea, ci primește rezultatul original
+     * @return Rezumatul contului după depunere (sold și versiune nouă)
+     * @throws VersionConflictException dacă contul a fost modificat între timp
+     */
+    AccountSummary depositIfVersion(String accountNumber, String pin, double amount, long expectedVersion, 
+        String idempotencyKey) throws RemoteException, BankException;
+    
+    /**
+     * Retragere condiționată: eșuează imediat, fără să aștepte după alte operațiuni,
+     * dacă versiunea contului diferă de cea așteptată
+     * @param accountNumber Numărul de cont
+     * @param pin Codul PIN
+     * @param amount Suma de retras
+     * @param expectedVersion Versiunea citită de client sau AccountSummary.ANY_VERSION
+     * @param idempotencyKey Cheie aleasă de client sau null (vezi depositIfVersion)
+     * @return Rezumatul contului după retragere (sold și versiune nouă)
+     * @throws VersionConflictException dacă contul a fost modificat între timp
+     */
+    AccountSummary withdrawIfVersion(String accountNumber, String pin, double amount, long expectedVersion, 
+        String idempotencyKey) throws RemoteException, BankException;
+    
+    /**
+     * Transfer condiționat de versiunea contului sursă
+     * @param fromAccount Contul sursă
+     * @param pin Codul PIN al contului sursă
+     * @param toAccount Contul destinație
+     * @param amount Suma de transferat
+     * @param expectedVersion Versiunea contului sursă citită de client sau AccountSummary.ANY_VERSION
+     * @param idempotencyKey Cheie aleasă de client sau null (vezi depositIfVersion)
+     * @return Rezumatul contului sursă după transfer (sold și versiune nouă)
+     * @throws VersionConflictException dacă contul sursă a fost modificat între timp
+     */
+    AccountSummary transferIfVersion(String fromAccount, String pin, String toAccount, double amount, 
+        long expectedVersion, String idempotencyKey) throws RemoteException, BankException;
+    
+    /**
+     * Efectuează un lot de transferuri din același cont sursă (de exemplu salarii)
+     * Lotul este autentificat, validat și salvat în jurnal o singură dată.
+     * @param fromAccount Contul sursă
+     * @param pin Codul PIN al contului sursă
+     * @param legs Transferurile din lot (cel mult 10.000)
+     * @param atomic true: lotul se efectuează în întregime sau deloc (orice componentă invalidă
+     *               sau lipsa fondurilor pentru total respinge lotul); false: fiecare componentă
+     *               este efectuată sau respinsă separat, în ordine
+     * @return Starea fiecărei componente și rezumatul contului sursă
+     */
+    BatchTransferResult transferBatch(String fromAccount, String pin, List<TransferLeg> legs, boolean atomic) 
+        throws RemoteException, BankException;
+    
     /**
      * Obține istoricul tranzacțiilor pentru un cont
      * @param accountNumber Numărul de cont
@@ -71,6 +135,29 @@ public interface BankService extends Remote {
      */
     List<Transaction> getTransactionHistory(String accountNumber, String pin) throws RemoteException, BankException;
     
+    /**
+     * Obține o pagină din istoric, de la cea mai nouă tranzacție spre cea mai veche
+     * @param accountNumber Numărul de cont
+     * @param pin Codul PIN
+     * @param cursor Cursorul primit în pagina anterioară sau 0 pentru prima pagină
+     * @param limit Numărul maxim de tranzacții (cel mult 100)
+     * @return Pagina de tranzacții
+     */
+    TransactionPage getTransactionPage(String accountNumber, String pin, long cursor, int limit) 
+        throws RemoteException, BankException;
+    
+    /**
+     * Obține tranzacțiile apărute după un număr de secvență, cea mai nouă prima
+     * Dacă sunt mai multe decât limita, se returnează cele mai noi, iar pagina are hasMore() true.
+     * @param accountNumber Numărul de cont
+     * @param pin Codul PIN
+     * @param sinceSequence Ultimul număr de secvență cunoscut de client
+     * @param limit Numărul maxim de tranzacții (cel mult 100)
+     * @return Tranzacțiile noi
+     */
+    TransactionPage getTransactionsSince(String accountNumber, String pin, long sinceSequence, int limit) 
+        throws RemoteException, BankException;
+    
     /**
      * Obține informații despre cont
      * @param accountNumber Numărul de cont
@@ -79,6 +166,27 @@ public interface BankService extends Remote {
      */
     Account getAccountInfo(String accountNumber, String pin) throws RemoteException, BankException;
     
+    /**
+     * Obține rezumatul contului: număr, titular, sold, data creării și ultima secvență de tranzacție
+     * @param accountNumber Numărul de cont
+     * @param pin Codul PIN
+     * @return Rezumatul contului
+     */
+    AccountSummary getAccountSummary(String accountNumber, String pin) throws RemoteException, BankException;
+    
+    /**
+     * Așteaptă următoarea modificare a contului (long polling)
+     * Returnează imediat dacă versiunea contului este deja mai mare decât afterVersion; altfel
+     * când o operațiune asupra contului devine durabilă sau după expirarea timpului de așteptare.
+     * @param accountNumber Numărul de cont
+     * @param pin Codul PIN
+     * @param afterVersion Ultima versiune a contului cunoscută de client
+     * @param timeoutMillis Timpul maxim de așteptare (cel mult 60 de secunde)
+     * @return Rezumatul curent al contului; aceeași versiune înseamnă că nu a apărut nicio modificare
+     */
+    AccountSummary awaitChange(String accountNumber, String pin, long afterVersion, long timeoutMillis) 
+        throws RemoteException, BankException;
+    
     /**
      * Verifică dacă un cont există
      * @param accountNumber Numărul de cont
@@ -0,0 +1,61 @@
+package common;
+
+import java.io.Serializable;
+
+/**
+ * Rezultatul unui lot de transferuri: starea fiecărei componente, în ordinea din lot,
+ * și rezumatul contului sursă după aplicarea lotului
+ */
+public final class BatchTransferResult implements Serializable {
+    private static final long serialVersionUID = 1L;
+    
+    // Mesajul de eroare al fiecărei componente sau null dacă transferul a fost efectuat
+    private final String[] errors;
+    private final long transferredBani;
+    private final AccountSummary account;
+    
+    public BatchTransferResult(String[] errors, long transferredBani, AccountSummary account) {
+        this.errors = errors.clone();
+        this.transferredBani = transferredBani;
+        this.account = account;
+    }
+    
+    public int getLegCount() {
+        return errors.length;
+    }
+    
+    public boolean isApplied(int leg) {
+        return errors[leg] == null;
+    }
+    
+    /**
+     * Motivul respingerii componentei sau null dacă transferul a fost efectuat
+     */
+    public String getError(int leg) {
+        return errors[leg];
+    }
+    
+    public int getAppliedCount() {
+        int applied = 0;
+        for (String error : errors) {
+            if (error == null) {
+                applied++;
+            }
+        }
+        return applied;
+    }
+    
+    /**
+     * Suma totală transferată de componentele efectuate
+     */
+    public double getTotalTransferred() {
+        return Money.toRon(transferredBani);
+    }
+    
+    /**
+     * Rezumatul contului sursă după lot (sold și versiune)
+     */
+    public AccountSummary getAccount() {
+        return account;
+    }
+}
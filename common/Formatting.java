@@ -0,0 +1,133 @@
+package common;
+
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+
+/**
+ * Formatarea comună a datelor și sumelor afișate (istoric, jurnalul operațiunilor, API-ul web)
+ *
+ * Formatele sunt fixe ("dd-MM-yyyy HH:mm:ss" și sume cu două zecimale și punct), deci se
+ * construiesc direct din cifre, fără DateTimeFormatter sau String.format la fiecare apel.
+ * Afișarea are rezoluție de o secundă: ultimul text produs este păstrat și refolosit pentru
+ * toate momentele din aceeași secundă (tranzacțiile unui istoric sunt de obicei grupate).
+ * Toate metodele pot fi apelate concurent: cache-ul este un obiect imutabil publicat volatil.
+ */
+public final class Formatting {
+    
+    public static final String DATE_TIME_PATTERN = "dd-MM-yyyy HH:mm:ss";
+    // Folosit doar pentru anii care nu au exact patru cifre
+    public static final DateTimeFormatter DATE_TIME = DateTimeFormatter.ofPattern(DATE_TIME_PATTERN);
+    
+    private static final int DATE_TIME_LENGTH = DATE_TIME_PATTERN.length();
+    
+    /**
+     * Textul afișat pentru o secundă
+     */
+    private static final class CachedSecond {
+        private final long second;
+        private final String text;
+        
+        CachedSecond(long second, String text) {
+            this.second = second;
+            this.text = text;
+        }
+    }
+    
+    // Ultima dată formatată (cheia: secunda câmpurilor locale) și ultima secundă a ceasului
+    private static volatile CachedSecond lastDateTime = new CachedSecond(Long.MIN_VALUE, null);
+    private static volatile CachedSecond lastClockSecond = new CachedSecond(Long.MIN_VALUE, null);
+    
+    private Formatting() {
+    }
+    
+    /**
+     * Data și ora în formatul afișat clienților
+     */
+    public static String dateTime(LocalDateTime dateTime) {
+        // Câmpurile locale interpretate ca UTC dau o cheie unică pe secundă, fără fus orar
+        long second = dateTime.toEpochSecond(ZoneOffset.UTC);
+        CachedSecond cached = lastDateTime;
+        if (cached.second == second) {
+            return cached.text;
+        }
+        String text = formatDateTime(dateTime);
+        lastDateTime = new CachedSecond(second, text);
+        return text;
+    }
+    
+    /**
+     * Data și ora curente, pentru prefixul mesajelor din jurnalul operațiunilor
+     */
+    public static String now() {
+        long second = Math.floorDiv(System.currentTimeMillis(), 1000);
+        CachedSecond cached = lastClockSecond;
+        if (cached.second == second) {
+            return cached.text;
+        }
+        String text = dateTime(LocalDateTime.ofInstant(Instant.ofEpochSecond(second), ZoneId.systemDefault()));
+        lastClockSecond = new CachedSecond(second, text);
+        return text;
+    }
+    
+    /**
+     * Suma în bani, cu două zecimale și punct zecimal (ex. "-1234.05")
+     */
+    public static String amount(long bani) {
+        return appendAmount(new StringBuilder(24), bani).toString();
+    }
+    
+    /**
+     * Suma în RON, rotunjită la ban
+     */
+    public static String amount(double ron) {
+        return amount(Money.toBani(ron));
+    }
+    
+    /**
+     * Adaugă suma în bani la final, fără obiecte intermediare
+     */
+    public static StringBuilder appendAmount(StringBuilder out, long bani) {
+        long ron = bani / Money.BANI_PER_RON;
+        int cents = (int) (bani % Money.BANI_PER_RON);
+        if (bani < 0) {
+            // Negăm câtul și restul separat, ca Long.MIN_VALUE să nu depășească intervalul
+            out.append('-');
+            ron = -ron;
+            cents = -cents;
+        }
+        out.append(ron).append('.');
+        if (cents < 10) {
+            out.append('0');
+        }
+        return out.append(cents);
+    }
+    
+    private static String formatDateTime(LocalDateTime dateTime) {
+        int year = dateTime.getYear();
+        if (year < 1000 || year > 9999) {
+            return dateTime.format(DATE_TIME);
+        }
+        char[] text = new char[DATE_TIME_LENGTH];
+        putTwoDigits(text, 0, dateTime.getDayOfMonth());
+        text[2] = '-';
+        putTwoDigits(text, 3, dateTime.getMonthValue());
+        text[5] = '-';
+        putTwoDigits(text, 6, year / 100);
+        putTwoDigits(text, 8, year % 100);
+        text[10] = ' ';
+        putTwoDigits(text, 11, dateTime.getHour());
+        text[13] = ':';
+        putTwoDigits(text, 14, dateTime.getMinute());
+        text[16] = ':';
+        putTwoDigits(text, 17, dateTime.getSecond());
+        return new String(text);
+    }
+    
+    private static void putTwoDigits(char[] text, int offset, int value) {
+        text[offset] = (char) ('0' + value / 10);
+        text[offset + 1] = (char) ('0' + value % 10);
+    }
+}
@@ -0,0 +1,38 @@
+package common;
+
+/**
+ * Conversii între sumele în RON (double, folosite de RMI și de interfețe) și bani
+ * Serverul păstrează soldurile ca long în bani (1/100 RON), deci calculele sunt exacte;
+ * conversia se face doar la margini: la intrarea în serviciu și la afișare.
+ */
+public final class Money {
+    
+    public static final long BANI_PER_RON = 100;
+    // Cea mai mare sumă acceptată; până aici orice valoare în bani se reprezintă exact ca double
+    public static final double MAX_RON = 10_000_000_000_000.0;
+    
+    private Money() {
+    }
+    
+    /**
+     * Rotunjește o sumă în RON la cel mai apropiat ban
+     * Valorile care nu sunt numere finite devin 0, astfel încât sunt respinse ca sume nevalide.
+     */
+    public static long toBani(double ron) {
+        if (Double.isNaN(ron) || Double.isInfinite(ron)) {
+            return 0;
+        }
+        return Math.round(ron * BANI_PER_RON);
+    }
+    
+    public static double toRon(long bani) {
+        return bani / (double) BANI_PER_RON;
+    }
+    
+    /**
+     * Formatează o sumă în bani cu două zecimale (fără monedă)
+     */
+    public static String format(long bani) {
+        return Formatting.amount(bani);
+    }
+}
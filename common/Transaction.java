@@ -2,7 +2,6 @@ package common;
 
 import java.io.Serializable;
 import java.time.LocalDateTime;
-import java.time.format.DateTimeFormatter;
 
 /**
  * Clasa care reprezintă o tranzacție bancară
@@ -29,6 +28,18 @@ public class Transaction implements Serializable {
         this.relatedAccount = relatedAccount;
     }
     
+    /**
+     * Constructor cu moment explicit (folosit la reconstruirea din jurnal)
+     */
+    public Transaction(TransactionType type, double amount, String description, String relatedAccount,
+                       LocalDateTime timestamp) {
+        this.type = type;
+        this.amount = amount;
+        this.description = description;
+        this.timestamp = timestamp;
+        this.relatedAccount = relatedAccount;
+    }
+    
     public TransactionType getType() {
         return type;
     }
@@ -46,8 +57,7 @@ public class Transaction implements Serializable {
     }
     
     public String getFormattedTimestamp() {
-        DateTimeFormatter formatter = DateTimeFormatter.ofPattern("dd-MM-yyyy HH:mm:ss");
-        return timestamp.format(formatter);
+        return Formatting.dateTime(timestamp);
     }
     
     public String getRelatedAccount() {
@@ -57,17 +67,15 @@ public class Transaction implements Serializable {
     @Override
     public String toString() {
         String sign = (type == TransactionType.WITHDRAWAL || type == TransactionType.TRANSFER_OUT) ? "-" : "+";
-        String result = String.format("[%s] %s %s%.2f RON - %s", 
-            getFormattedTimestamp(), 
-            type.getDisplayName(),
-            sign,
-            amount,
-            description);
+        StringBuilder result = new StringBuilder(96)
+            .append('[').append(getFormattedTimestamp()).append("] ")
+            .append(type.getDisplayName()).append(' ').append(sign);
+        Formatting.appendAmount(result, Money.toBani(amount)).append(" RON - ").append(description);
         
         if (relatedAccount != null) {
-            result += " (Cont: " + relatedAccount + ")";
+            result.append(" (Cont: ").append(relatedAccount).append(')');
         }
         
-        return result;
+        return result.toString();
     }
 }
@@ -0,0 +1,368 @@
+package common;
+
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Tranzacțiile unui cont, stocate pe coloane
+ *
+ * Tranzacțiile sunt grupate în blocuri de câte CHUNK_SIZE (cât o pagină de istoric arhivat),
+ * iar un bloc are câte un vector primitiv pentru fiecare coloană: momentul (milisecunde epoch),
+ * suma în bani, tipul, felul descrierii și contrapartida. Contrapartida este indicele unei
+ * intrări din dicționarul jurnalului (numărul de cont și numele titularului celuilalt cont),
+ * deci un transfer nu mai alocă un String nou pentru descriere. Descrierile obișnuite sunt
+ * construite abia la citire, iar obiectele Transaction sunt create doar la marginea API-ului.
+ *
+ * Clasa nu este sincronizată: contul o modifică doar sub propriul lock.
+ */
+public class TransactionLog {
+    
+    // Numărul de tranzacții dintr-un bloc; ultimul bloc crește treptat până la această dimensiune
+    public static final int CHUNK_SIZE = 64;
+    
+    private static final int INITIAL_CHUNK_CAPACITY = 2;
+    private static final int NO_PARTY = -1;
+    private static final TransactionType[] TYPES = TransactionType.values();
+    private static final Description[] DESCRIPTIONS = Description.values();
+    
+    /**
+     * Felul descrierii unei tranzacții
+     * Descrierile cu nume sunt formate din text și numele titularului contrapartidei;
+     * TEXT păstrează în dicționar o descriere oarecare (de exemplu din date mai vechi).
+     */
+    public enum Description {
+        TEXT("", false),
+        INITIAL_DEPOSIT("Depozit inițial la crearea contului", false),
+        CASH_DEPOSIT("Depunere numerar", false),
+        CASH_WITHDRAWAL("Retragere numerar", false),
+        TRANSFER_TO("Transfer către ", true),
+        TRANSFER_FROM("Transfer de la ", true),
+        TRANSFER_REFUND("Returnare transfer către ", true);
+        
+        private final String text;
+        private final boolean named;
+        
+        Description(String text, boolean named) {
+            this.text = text;
+            this.named = named;
+        }
+        
+        String render(String label) {
+            if (this == TEXT) {
+                return label;
+            }
+            return named ? text + label : text;
+        }
+        
+        /**
+         * Recunoaște o descriere completă; pentru cele cu nume, eticheta începe după text
+         */
+        static Description classify(String description) {
+            if (description == null) {
+                return TEXT;
+            }
+            for (Description kind : DESCRIPTIONS) {
+                if (kind == TEXT) {
+                    continue;
+                }
+                if (kind.named ? description.length() > kind.text.length() && description.startsWith(kind.text)
+                        : description.equals(kind.text)) {
+                    return kind;
+                }
+            }
+            return TEXT;
+        }
+    }
+    
+    /**
+     * Un bloc de tranzacții consecutive, câte un vector pe coloană
+     */
+    private static final class Chunk {
+        private long[] timestamps;
+        private long[] amounts;
+        private byte[] types;
+        private byte[] descriptions;
+        private int[] parties;
+        private int size;
+        
+        Chunk(int capacity) {
+            timestamps = new long[capacity];
+            amounts = new long[capacity];
+            types = new byte[capacity];
+            descriptions = new byte[capacity];
+            parties = new int[capacity];
+        }
+        
+        int capacity() {
+            return types.length;
+        }
+        
+        void grow() {
+            int capacity = Math.min(CHUNK_SIZE, capacity() * 2);
+            timestamps = Arrays.copyOf(timestamps, capacity);
+            amounts = Arrays.copyOf(amounts, capacity);
+            types = Arrays.copyOf(types, capacity);
+            descriptions = Arrays.copyOf(descriptions, capacity);
+            parties = Arrays.copyOf(parties, capacity);
+        }
+        
+        Chunk copy() {
+            Chunk copy = new Chunk(0);
+            copy.timestamps = Arrays.copyOf(timestamps, size);
+            copy.amounts = Arrays.copyOf(amounts, size);
+            copy.types = Arrays.copyOf(types, size);
+            copy.descriptions = Arrays.copyOf(descriptions, size);
+            copy.parties = Arrays.copyOf(parties, size);
+            copy.size = size;
+            return copy;
+        }
+    }
+    
+    private Chunk[] chunks = new Chunk[0];
+    private int chunkCount;
+    // Tranzacțiile eliminate de la începutul primului bloc
+    private int start;
+    private int size;
+    
+    // Dicționarul contrapartidelor: numărul de cont și eticheta (numele titularului sau,
+    // pentru Description.TEXT, descrierea completă); alocat la prima utilizare
+    private String[] partyAccounts;
+    private String[] partyLabels;
+    private int partyCount;
+    
+    public int size() {
+        return size;
+    }
+    
+    /**
+     * Adaugă o tranzacție fără a crea obiecte (calea folosită de server)
+     * @param relatedAccount contul celeilalte părți sau null
+     * @param label numele titularului celeilalt cont sau, pentru Description.TEXT, descrierea
+     */
+    public void add(TransactionType type, long amountBani, long timestamp, Description description,
+                    String relatedAccount, String label) {
+        Chunk chunk = chunkCount == 0 ? null : chunks[chunkCount - 1];
+        if (chunk == null || chunk.size == CHUNK_SIZE) {
+            chunk = new Chunk(INITIAL_CHUNK_CAPACITY);
+            if (chunkCount == chunks.length) {
+                chunks = Arrays.copyOf(chunks, Math.max(2, chunkCount * 2));
+            }
+            chunks[chunkCount++] = chunk;
+        } else if (chunk.size == chunk.capacity()) {
+            chunk.grow();
+        }
+        
+        int index = chunk.size++;
+        chunk.timestamps[index] = timestamp;
+        chunk.amounts[index] = amountBani;
+        chunk.types[index] = (byte) type.ordinal();
+        chunk.descriptions[index] = (byte) description.ordinal();
+        chunk.parties[index] = party(relatedAccount, label);
+        size++;
+    }
+    
+    /**
+     * Adaugă o tranzacție cu descrierea completă (din formatele de stocare sau din date vechi)
+     * Descrierile obișnuite sunt recunoscute și păstrate doar prin felul și eticheta lor.
+     */
+    public void add(TransactionType type, long amountBani, long timestamp, String description, String relatedAccount) {
+        Description kind = Description.classify(description);
+        String label = kind == Description.TEXT ? description
+            : kind.named ? description.substring(kind.text.length()) : null;
+        add(type, amountBani, timestamp, kind, relatedAccount, label);
+    }
+    
+    public void add(Transaction transaction) {
+        add(transaction.getType(), Money.toBani(transaction.getAmount()), toEpochMillis(transaction.getTimestamp()),
+            transaction.getDescription(), transaction.getRelatedAccount());
+    }
+    
+    /**
+     * Adaugă la final toate tranzacțiile altui jurnal
+     */
+    public void addAll(TransactionLog other) {
+        for (int i = 0; i < other.size; i++) {
+            Chunk chunk = other.chunkOf(i);
+            int offset = other.offsetOf(i);
+            int party = chunk.parties[offset];
+            add(TYPES[chunk.types[offset]], chunk.amounts[offset], chunk.timestamps[offset],
+                DESCRIPTIONS[chunk.descriptions[offset]], party == NO_PARTY ? null : other.partyAccounts[party],
+                party == NO_PARTY ? null : other.partyLabels[party]);
+        }
+    }
+    
+    /**
+     * Elimină cele mai vechi count tranzacții (după arhivarea lor)
+     */
+    public void removeFirst(int count) {
+        if (count < 0 || count > size) {
+            throw new IndexOutOfBoundsException("Nu se pot elimina " + count + " din " + size + " tranzacții");
+        }
+        size -= count;
+        start += count;
+        int dropped = 0;
+        while (dropped < chunkCount - 1 && start >= CHUNK_SIZE) {
+            start -= CHUNK_SIZE;
+            dropped++;
+        }
+        if (size == 0) {
+            dropped = chunkCount;
+            start = 0;
+        }
+        if (dropped > 0) {
+            System.arraycopy(chunks, dropped, chunks, 0, chunkCount - dropped);
+            Arrays.fill(chunks, chunkCount - dropped, chunkCount, null);
+            chunkCount -= dropped;
+        }
+        // Contrapartidele rămase fără tranzacții sunt eliminate din dicționar
+        if (partyCount > 2 * size + 8) {
+            compactParties();
+        }
+    }
+    
+    public TransactionType getType(int index) {
+        return TYPES[chunkOf(index).types[offsetOf(index)]];
+    }
+    
+    public long getAmountBani(int index) {
+        return chunkOf(index).amounts[offsetOf(index)];
+    }
+    
+    public long getTimestamp(int index) {
+        return chunkOf(index).timestamps[offsetOf(index)];
+    }
+    
+    /**
+     * Descrierea completă, construită la cerere
+     */
+    public String getDescription(int index) {
+        Chunk chunk = chunkOf(index);
+        int offset = offsetOf(index);
+        int party = chunk.parties[offset];
+        return DESCRIPTIONS[chunk.descriptions[offset]].render(party == NO_PARTY ? null : partyLabels[party]);
+    }
+    
+    public String getRelatedAccount(int index) {
+        int party = chunkOf(index).parties[offsetOf(index)];
+        return party == NO_PARTY ? null : partyAccounts[party];
+    }
+    
+    /**
+     * Creează obiectul Transaction pentru o tranzacție (pentru API)
+     */
+    public Transaction get(int index) {
+        return new Transaction(getType(index), Money.toRon(getAmountBani(index)), getDescription(index),
+            getRelatedAccount(index), toDateTime(getTimestamp(index)));
+    }
+    
+    /**
+     * Toate tranzacțiile, ca obiecte Transaction, de la cea mai veche
+     */
+    public List<Transaction> toList() {
+        List<Transaction> transactions = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            transactions.add(get(i));
+        }
+        return transactions;
+    }
+    
+    /**
+     * Copie independentă (pentru snapshot-uri); dicționarul este partajat doar ca referințe la String
+     */
+    public TransactionLog copy() {
+        TransactionLog copy = new TransactionLog();
+        copy.chunks = new Chunk[chunkCount];
+        for (int i = 0; i < chunkCount; i++) {
+            copy.chunks[i] = chunks[i].copy();
+        }
+        copy.chunkCount = chunkCount;
+        copy.start = start;
+        copy.size = size;
+        if (partyAccounts != null) {
+            copy.partyAccounts = Arrays.copyOf(partyAccounts, partyCount);
+            copy.partyLabels = Arrays.copyOf(partyLabels, partyCount);
+        }
+        copy.partyCount = partyCount;
+        return copy;
+    }
+    
+    private Chunk chunkOf(int index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("Tranzacția " + index + " din " + size);
+        }
+        return chunks[(start + index) / CHUNK_SIZE];
+    }
+    
+    private int offsetOf(int index) {
+        return (start + index) % CHUNK_SIZE;
+    }
+    
+    /**
+     * Indicele contrapartidei în dicționar, adăugată dacă nu există
+     * Căutarea pornește de la intrările cele mai noi: un cont tinde să repete aceleași contrapartide.
+     */
+    private int party(String relatedAccount, String label) {
+        if (relatedAccount == null && label == null) {
+            return NO_PARTY;
+        }
+        for (int i = partyCount - 1; i >= 0; i--) {
+            if (same(partyAccounts[i], relatedAccount) && same(partyLabels[i], label)) {
+                return i;
+            }
+        }
+        if (partyAccounts == null) {
+            partyAccounts = new String[2];
+            partyLabels = new String[2];
+        } else if (partyCount == partyAccounts.length) {
+            partyAccounts = Arrays.copyOf(partyAccounts, partyCount * 2);
+            partyLabels = Arrays.copyOf(partyLabels, partyCount * 2);
+        }
+        partyAccounts[partyCount] = relatedAccount;
+        partyLabels[partyCount] = label;
+        return partyCount++;
+    }
+    
+    /**
+     * Reconstruiește dicționarul doar cu contrapartidele tranzacțiilor rămase
+     */
+    private void compactParties() {
+        int[] remap = new int[partyCount];
+        Arrays.fill(remap, NO_PARTY);
+        String[] accounts = new String[Math.max(2, Math.min(partyCount, size))];
+        String[] labels = new String[accounts.length];
+        int count = 0;
+        for (int i = 0; i < size; i++) {
+            Chunk chunk = chunkOf(i);
+            int offset = offsetOf(i);
+            int party = chunk.parties[offset];
+            if (party == NO_PARTY) {
+                continue;
+            }
+            if (remap[party] == NO_PARTY) {
+                accounts[count] = partyAccounts[party];
+                labels[count] = partyLabels[party];
+                remap[party] = count++;
+            }
+            chunk.parties[offset] = remap[party];
+        }
+        partyAccounts = accounts;
+        partyLabels = labels;
+        partyCount = count;
+    }
+    
+    private static boolean same(String a, String b) {
+        return a == null ? b == null : a.equals(b);
+    }
+    
+    public static long toEpochMillis(LocalDateTime dateTime) {
+        return dateTime.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+    }
+    
+    public static LocalDateTime toDateTime(long epochMillis) {
+        return LocalDateTime.ofInstant(Instant.ofEpochMilli(epochMillis), ZoneId.systemDefault());
+    }
+}
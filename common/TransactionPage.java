@@ -0,0 +1,58 @@
+package common;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * O pagină din istoricul tranzacțiilor, de la cea mai nouă la cea mai veche
+ * Tranzacțiile unui cont sunt numerotate crescător începând cu 1 (numărul de secvență).
+ */
+public class TransactionPage implements Serializable {
+    private static final long serialVersionUID = 1L;
+    
+    private final List<Transaction> transactions;
+    private final long newestSequence;
+    private final long latestSequence;
+    private final long nextCursor;
+    
+    public TransactionPage(List<Transaction> transactions, long newestSequence, long latestSequence, long nextCursor) {
+        this.transactions = new ArrayList<>(transactions);
+        this.newestSequence = newestSequence;
+        this.latestSequence = latestSequence;
+        this.nextCursor = nextCursor;
+    }
+    
+    /**
+     * Tranzacțiile din pagină, cea mai nouă prima
+     */
+    public List<Transaction> getTransactions() {
+        return Collections.unmodifiableList(transactions);
+    }
+    
+    /**
+     * Numărul de secvență al primei tranzacții din pagină (următoarele scad cu câte 1)
+     */
+    public long getNewestSequence() {
+        return newestSequence;
+    }
+    
+    /**
+     * Numărul de secvență al celei mai noi tranzacții a contului
+     */
+    public long getLatestSequence() {
+        return latestSequence;
+    }
+    
+    /**
+     * Cursorul pentru pagina următoare (mai veche) sau 0 dacă nu mai există tranzacții
+     */
+    public long getNextCursor() {
+        return nextCursor;
+    }
+    
+    public boolean hasMore() {
+        return nextCursor > 0;
+    }
+}
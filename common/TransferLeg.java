@@ -0,0 +1,32 @@
+package common;
+
+import java.io.Serializable;
+
+/**
+ * O componentă a unui lot de transferuri (de exemplu o linie dintr-un fișier de salarii)
+ * Contul sursă este comun întregului lot și nu se repetă în fiecare componentă.
+ */
+public final class TransferLeg implements Serializable {
+    private static final long serialVersionUID = 1L;
+    
+    private final String toAccount;
+    private final double amount;
+    
+    public TransferLeg(String toAccount, double amount) {
+        this.toAccount = toAccount;
+        this.amount = amount;
+    }
+    
+    public String getToAccount() {
+        return toAccount;
+    }
+    
+    public double getAmount() {
+        return amount;
+    }
+    
+    @Override
+    public String toString() {
+        return toAccount + ": " + Formatting.amount(amount) + " RON";
+    }
+}
@@ -0,0 +1,24 @@
+package common;
+
+/**
+ * Excepție pentru operațiunile condiționate: contul a fost modificat după ce clientul
+ * i-a citit versiunea. Conține starea curentă, astfel încât clientul își poate actualiza
+ * datele și poate reîncerca fără un apel suplimentar.
+ */
+public class VersionConflictException extends BankException {
+    private static final long serialVersionUID = 1L;
+    
+    private final AccountSummary current;
+    
+    public VersionConflictException(String message, AccountSummary current) {
+        super(message);
+        this.current = current;
+    }
+    
+    /**
+     * Rezumatul contului în momentul conflictului (sold și versiune curentă)
+     */
+    public AccountSummary getCurrent() {
+        return current;
+    }
+}
@@ -14,9 +14,14 @@ if not exist "bin\server\BankServer.class" (
 
 echo Pornire server pe portul implicit 1099...
 echo Pentru a folosi alt port, rulati: run_server.bat [port]
+echo Optiuni jurnal: -journalBatch [nr] -journalWaitMicros [us]
+echo Format snapshot: -snapshotFormat [binary^|java]  Stocare: -storage [heap^|mmap]
+echo Conturi in heap (mod mmap): -accountCache [nr]
+echo Motor de executie: -engine [locking^|sequencer^|partitioned] -ringSize [nr] -partitions [nr]
+echo Chei de idempotenta: -idempotencyKeys [nr] -idempotencyTtlMinutes [min]
 echo.
 echo Apasati Ctrl+C pentru a opri serverul.
 echo.
 
 REM Pornim serverul
-java -cp bin server.BankServer %1
+java -cp bin server.BankServer %*
@@ -19,6 +19,7 @@ echo.
 set RMI_HOST=localhost
 set RMI_PORT=1099
 set WEB_PORT=8080
+set EXTRA_ARGS=
 
 REM Parsam argumentele
 :parse_args
@@ -41,6 +42,8 @@ if "%~1"=="-rmiport" (
     shift
     goto parse_args
 )
+REM -embedded si optiunile serverului bancar (-engine, -storage etc.) sunt transmise mai departe
+set EXTRA_ARGS=%EXTRA_ARGS% %1
 shift
 goto parse_args
 
@@ -49,4 +52,4 @@ echo Pornire server web pe portul %WEB_PORT%...
 echo Conectare la RMI: %RMI_HOST%:%RMI_PORT%
 echo.
 
-java -cp bin web.WebServer -webport %WEB_PORT% -rmihost %RMI_HOST% -rmiport %RMI_PORT%
+java -cp bin web.WebServer -webport %WEB_PORT% -rmihost %RMI_HOST% -rmiport %RMI_PORT%%EXTRA_ARGS%
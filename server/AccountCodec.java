@@ -0,0 +1,209 @@
+package server;
+
+import common.Account;
+import common.Money;
+import common.TransactionLog;
+import common.TransactionType;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.Arrays;
+
+/**
+ * Codec binar compact pentru conturi și tranzacții
+ *
+ * Sumele și momentele de timp au lățime fixă (8 octeți), momentele sunt
+ * păstrate ca milisecunde epoch, tipul tranzacției ca ordinal pe un octet,
+ * iar lungimile și numărul de tranzacții ca varint. Un șir null este
+ * codificat cu lungimea 0, iar unul nenul cu lungimea + 1.
+ */
+public class AccountCodec {
+    
+    private byte[] buffer = new byte[256];
+    private int position;
+    
+    /**
+     * Golește buffer-ul intern pentru o înregistrare nouă
+     */
+    public void reset() {
+        position = 0;
+    }
+    
+    public byte[] array() {
+        return buffer;
+    }
+    
+    public int size() {
+        return position;
+    }
+    
+    /**
+     * Codifică un cont împreună cu referința la istoricul arhivat și tranzacțiile recente
+     * Apelantul trebuie să dețină o copie a contului care nu se mai modifică
+     */
+    public void writeAccount(Account account) {
+        writeString(account.getAccountNumber());
+        writeString(account.getOwnerName());
+        writeString(account.getPin());
+        writeDouble(account.getBalance());
+        writeLong(toEpochMillis(account.getCreatedAt()));
+        writeLong(account.getLastLsn());
+        writeLong(account.getHistoryHead());
+        writeVarInt(account.getArchivedCount());
+        
+        TransactionLog history = account.getTransactionLog();
+        writeVarInt(history.size());
+        for (int i = 0; i < history.size(); i++) {
+            writeTransaction(history, i);
+        }
+    }
+    
+    /**
+     * Codifică o singură tranzacție la finalul buffer-ului, direct din coloanele jurnalului
+     */
+    public void writeTransaction(TransactionLog transactions, int index) {
+        writeByte(transactions.getType(index).ordinal());
+        writeDouble(Money.toRon(transactions.getAmountBani(index)));
+        writeLong(transactions.getTimestamp(index));
+        writeString(transactions.getDescription(index));
+        writeString(transactions.getRelatedAccount(index));
+    }
+    
+    /**
+     * Decodifică un cont scris cu writeAccount
+     * @param withArchive false pentru formatul vechi, în care tot istoricul este inclus în cont
+     */
+    public static Account readAccount(ByteBuffer in, boolean withArchive) throws IOException {
+        try {
+            String accountNumber = readString(in);
+            String ownerName = readString(in);
+            String pin = readString(in);
+            double balance = in.getDouble();
+            LocalDateTime createdAt = toDateTime(in.getLong());
+            long lastLsn = in.getLong();
+            
+            Account account = new Account(accountNumber, ownerName, pin, 0, createdAt);
+            account.setBalanceBani(Money.toBani(balance));
+            account.setLastLsn(lastLsn);
+            if (withArchive) {
+                long historyHead = in.getLong();
+                account.setArchivedHistory(historyHead, readVarInt(in));
+            }
+            
+            int count = readVarInt(in);
+            TransactionLog history = new TransactionLog();
+            for (int i = 0; i < count; i++) {
+                readTransaction(in, history);
+            }
+            account.addTransactions(history);
+            
+            if (accountNumber == null || ownerName == null || pin == null || in.hasRemaining()) {
+                throw new IOException("Înregistrare de cont invalidă");
+            }
+            return account;
+        } catch (BufferUnderflowException e) {
+            throw new IOException("Înregistrare de cont trunchiată");
+        }
+    }
+    
+    /**
+     * Decodifică o tranzacție scrisă cu writeTransaction și o adaugă la finalul jurnalului
+     */
+    public static void readTransaction(ByteBuffer in, TransactionLog transactions) throws IOException {
+        try {
+            int ordinal = in.get() & 0xFF;
+            TransactionType[] types = TransactionType.values();
+            if (ordinal >= types.length) {
+                throw new IOException("Tip de tranzacție necunoscut: " + ordinal);
+            }
+            long amountBani = Money.toBani(in.getDouble());
+            long timestamp = in.getLong();
+            String description = readString(in);
+            String relatedAccount = readString(in);
+            transactions.add(types[ordinal], amountBani, timestamp, description, relatedAccount);
+        } catch (BufferUnderflowException e) {
+            throw new IOException("Tranzacție trunchiată");
+        }
+    }
+    
+    public void writeByte(int value) {
+        ensureCapacity(1);
+        buffer[position++] = (byte) value;
+    }
+    
+    public void writeLong(long value) {
+        ensureCapacity(8);
+        for (int shift = 56; shift >= 0; shift -= 8) {
+            buffer[position++] = (byte) (value >>> shift);
+        }
+    }
+    
+    public void writeDouble(double value) {
+        writeLong(Double.doubleToLongBits(value));
+    }
+    
+    public void writeVarInt(int value) {
+        ensureCapacity(5);
+        while ((value & ~0x7F) != 0) {
+            buffer[position++] = (byte) ((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        buffer[position++] = (byte) value;
+    }
+    
+    public void writeString(String value) {
+        if (value == null) {
+            writeVarInt(0);
+            return;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        writeVarInt(bytes.length + 1);
+        ensureCapacity(bytes.length);
+        System.arraycopy(bytes, 0, buffer, position, bytes.length);
+        position += bytes.length;
+    }
+    
+    public static int readVarInt(ByteBuffer in) throws IOException {
+        int value = 0;
+        for (int shift = 0; shift < 32; shift += 7) {
+            byte b = in.get();
+            value |= (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new IOException("Varint invalid");
+    }
+    
+    public static String readString(ByteBuffer in) throws IOException {
+        int length = readVarInt(in);
+        if (length == 0) {
+            return null;
+        }
+        length--;
+        if (length > in.remaining()) {
+            throw new IOException("Șir trunchiat");
+        }
+        String value = new String(in.array(), in.arrayOffset() + in.position(), length, StandardCharsets.UTF_8);
+        in.position(in.position() + length);
+        return value;
+    }
+    
+    private void ensureCapacity(int extra) {
+        if (position + extra > buffer.length) {
+            buffer = Arrays.copyOf(buffer, Math.max(buffer.length * 2, position + extra));
+        }
+    }
+    
+    static long toEpochMillis(LocalDateTime dateTime) {
+        return dateTime.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+    }
+    
+    static LocalDateTime toDateTime(long epochMillis) {
+        return LocalDateTime.ofInstant(Instant.ofEpochMilli(epochMillis), ZoneId.systemDefault());
+    }
+}
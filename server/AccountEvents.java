@@ -0,0 +1,92 @@
+package server;
+
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Notificările de modificare ale conturilor, pentru clienții care așteaptă actualizări
+ *
+ * Registrul publică numărul contului după ce o operațiune care îl modifică a devenit durabilă;
+ * fiecare client care așteaptă acel cont este trezit o singură dată și citește apoi starea
+ * curentă. Notificarea nu conține datele modificării: mai multe operațiuni apropiate sunt
+ * comasate într-o singură trezire, iar un client lent nu ține în memorie evenimente vechi.
+ * Conturile fără clienți în așteptare nu costă nimic la publicare.
+ */
+public class AccountEvents {
+    
+    // Clienții în așteptare pentru fiecare cont (cheia din AccountIndex)
+    private final ConcurrentHashMap<Long, Set<CompletableFuture<Boolean>>> waiters = new ConcurrentHashMap<>();
+    private final ScheduledThreadPoolExecutor timeouts;
+    
+    public AccountEvents() {
+        timeouts = new ScheduledThreadPoolExecutor(1, r -> {
+            Thread thread = new Thread(r, "account-events-timeout");
+            thread.setDaemon(true);
+            return thread;
+        });
+        // Așteptările trezite înainte de termen nu rămân în coada de timeout
+        timeouts.setRemoveOnCancelPolicy(true);
+    }
+    
+    /**
+     * Înregistrează o așteptare pentru următoarea modificare a contului
+     * Apelantul verifică starea contului DUPĂ înregistrare, astfel încât o modificare
+     * publicată între timp să nu fie pierdută.
+     * @return future finalizat cu true la modificare sau cu false după timeoutMillis
+     */
+    public CompletableFuture<Boolean> subscribe(String accountNumber, long timeoutMillis) {
+        Long key = AccountIndex.key(accountNumber);
+        CompletableFuture<Boolean> waiter = new CompletableFuture<>();
+        // Adăugarea este atomică față de publicare și de eliminarea mulțimilor goale
+        waiters.compute(key, (k, set) -> {
+            Set<CompletableFuture<Boolean>> accountWaiters = set != null ? set : ConcurrentHashMap.newKeySet();
+            accountWaiters.add(waiter);
+            return accountWaiters;
+        });
+        
+        ScheduledFuture<?> timeout = timeouts.schedule(() -> waiter.complete(false), timeoutMillis,
+            TimeUnit.MILLISECONDS);
+        waiter.whenComplete((changed, error) -> {
+            timeout.cancel(false);
+            waiters.computeIfPresent(key, (k, set) -> {
+                set.remove(waiter);
+                return set.isEmpty() ? null : set;
+            });
+        });
+        return waiter;
+    }
+    
+    /**
+     * Trezește clienții care așteaptă contul; apelat după ce modificarea este durabilă
+     */
+    public void publish(String accountNumber) {
+        if (waiters.isEmpty()) {
+            return;
+        }
+        Set<CompletableFuture<Boolean>> woken = waiters.remove(AccountIndex.key(accountNumber));
+        if (woken != null) {
+            for (CompletableFuture<Boolean> waiter : woken) {
+                waiter.complete(true);
+            }
+        }
+    }
+    
+    /**
+     * Trezește toate așteptările rămase (la oprirea serverului)
+     */
+    public void shutdown() {
+        for (Long key : waiters.keySet()) {
+            Set<CompletableFuture<Boolean>> woken = waiters.remove(key);
+            if (woken != null) {
+                for (CompletableFuture<Boolean> waiter : woken) {
+                    waiter.complete(false);
+                }
+            }
+        }
+        timeouts.shutdownNow();
+    }
+}
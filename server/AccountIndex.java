@@ -0,0 +1,302 @@
+package server;
+
+import common.Account;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.function.Predicate;
+
+/**
+ * Indexul conturilor din memorie, după partea numerică a numărului de cont
+ *
+ * Numerele de cont au forma "RO" + număr, deci cheia este un long parsat o singură dată,
+ * la intrarea în API. Tabelul folosește adresare deschisă cu sondare liniară: cheile stau
+ * într-un vector de long și conturile într-un vector paralel, fără String-uri și fără un
+ * nod alocat pentru fiecare intrare.
+ *
+ * Citirile nu iau niciun lock. Scrierile (conturi create, încărcate din tabelul mapat sau
+ * din snapshot) sunt serializate: cheia se scrie înaintea contului, deci un cititor care
+ * vede cheia fără cont tratează intrarea ca neinserată încă. La redimensionare se construiește
+ * un tabel nou, publicat apoi dintr-o singură scriere volatilă.
+ *
+ * Fiecare citire marchează slotul ca folosit recent. Când numărul conturilor din memorie
+ * este limitat (-accountCache), evict() eliberează conturile nefolosite după algoritmul
+ * "clock": un cont marcat de la trecerea anterioară primește încă o șansă.
+ */
+public class AccountIndex implements Iterable<Account> {
+    
+    // Cheia sloturilor libere; numerele de cont nu încep cu 0, deci cheia 0 nu apare
+    public static final long NO_KEY = 0;
+    
+    private static final String ACCOUNT_PREFIX = "RO";
+    // Cel mult 18 cifre, ca numărul să încapă într-un long
+    private static final int MAX_DIGITS = 18;
+    private static final int MIN_CAPACITY = 16;
+    
+    /**
+     * Un tabel de dimensiune fixă (putere a lui 2); înlocuit la redimensionare
+     */
+    private static final class Table {
+        private final AtomicLongArray keys;
+        private final AtomicReferenceArray<Account> accounts;
+        // Marcajul "folosit recent"; scrierile concurente pot pierde un marcaj, fără alt efect
+        private final byte[] referenced;
+        private final int mask;
+        // Sloturi cu cheie, inclusiv ale conturilor eliminate (modificat doar sub lock)
+        private int used;
+        
+        Table(int capacity) {
+            this.keys = new AtomicLongArray(capacity);
+            this.accounts = new AtomicReferenceArray<>(capacity);
+            this.referenced = new byte[capacity];
+            this.mask = capacity - 1;
+        }
+        
+        int capacity() {
+            return mask + 1;
+        }
+    }
+    
+    private volatile Table table;
+    private volatile int size;
+    // Poziția algoritmului "clock" (modificată doar sub lock)
+    private int clockHand;
+    
+    public AccountIndex() {
+        this(MIN_CAPACITY);
+    }
+    
+    public AccountIndex(int expectedAccounts) {
+        this.table = new Table(capacityFor(expectedAccounts));
+    }
+    
+    /**
+     * Cheia unui număr de cont ("RO" urmat de cifre, fără zerouri la început)
+     * @return partea numerică sau NO_KEY dacă numărul nu are formatul unui cont
+     */
+    public static long key(String accountNumber) {
+        int prefix = ACCOUNT_PREFIX.length();
+        if (accountNumber == null || accountNumber.length() <= prefix ||
+                accountNumber.length() > prefix + MAX_DIGITS || !accountNumber.startsWith(ACCOUNT_PREFIX) ||
+                accountNumber.charAt(prefix) == '0') {
+            return NO_KEY;
+        }
+        long key = 0;
+        for (int i = prefix; i < accountNumber.length(); i++) {
+            char digit = accountNumber.charAt(i);
+            if (digit < '0' || digit > '9') {
+                return NO_KEY;
+            }
+            key = key * 10 + (digit - '0');
+        }
+        return key;
+    }
+    
+    /**
+     * @return contul cu cheia dată sau null
+     */
+    public Account get(long key) {
+        if (key == NO_KEY) {
+            return null;
+        }
+        Table current = table;
+        for (int slot = slotOf(key, current.mask); ; slot = (slot + 1) & current.mask) {
+            long found = current.keys.get(slot);
+            if (found == key) {
+                if (current.referenced[slot] == 0) {
+                    current.referenced[slot] = 1;
+                }
+                return current.accounts.get(slot);
+            }
+            if (found == NO_KEY) {
+                return null;
+            }
+        }
+    }
+    
+    public boolean contains(long key) {
+        return get(key) != null;
+    }
+    
+    /**
+     * Elimină cel mult count conturi nefolosite de la trecerea anterioară
+     * @param evictable decide dacă un cont poate fi eliminat (și îl marchează ca eliberat)
+     * @return numărul de conturi eliminate
+     */
+    public synchronized int evict(int count, Predicate<Account> evictable) {
+        Table current = table;
+        int evicted = 0;
+        // Două ture complete: prima poate doar șterge marcajele
+        for (int visited = 0; evicted < count && visited < 2 * current.capacity(); visited++) {
+            int slot = clockHand++ & current.mask;
+            Account account = current.accounts.get(slot);
+            if (account == null) {
+                continue;
+            }
+            if (current.referenced[slot] != 0) {
+                current.referenced[slot] = 0;
+            } else if (evictable.test(account)) {
+                current.accounts.set(slot, null);
+                size--;
+                evicted++;
+            }
+        }
+        return evicted;
+    }
+    
+    /**
+     * Adaugă sau înlocuiește contul (cheia se obține din numărul lui)
+     */
+    public synchronized void put(Account account) {
+        insert(keyOf(account), account, true);
+    }
+    
+    /**
+     * Adaugă contul doar dacă cheia lui nu există deja
+     * @return contul existent sau null dacă a fost adăugat cel primit
+     */
+    public synchronized Account putIfAbsent(Account account) {
+        return insert(keyOf(account), account, false);
+    }
+    
+    /**
+     * Elimină contul, dacă este cel din index; slotul rămâne rezervat cheii lui până la
+     * următoarea redimensionare, astfel încât cititorii concurenți nu pierd alte intrări
+     */
+    public synchronized void remove(Account account) {
+        Table current = table;
+        long key = keyOf(account);
+        for (int slot = slotOf(key, current.mask); ; slot = (slot + 1) & current.mask) {
+            long found = current.keys.get(slot);
+            if (found == key) {
+                if (current.accounts.compareAndSet(slot, account, null)) {
+                    size--;
+                }
+                return;
+            }
+            if (found == NO_KEY) {
+                return;
+            }
+        }
+    }
+    
+    public int size() {
+        return size;
+    }
+    
+    /**
+     * Parcurge conturile tabelului curent; conturile adăugate în timpul parcurgerii pot lipsi
+     */
+    @Override
+    public Iterator<Account> iterator() {
+        Table current = table;
+        return new Iterator<Account>() {
+            private int slot = -1;
+            private Account next = advance();
+            
+            private Account advance() {
+                while (++slot < current.capacity()) {
+                    Account account = current.accounts.get(slot);
+                    if (account != null) {
+                        return account;
+                    }
+                }
+                return null;
+            }
+            
+            @Override
+            public boolean hasNext() {
+                return next != null;
+            }
+            
+            @Override
+            public Account next() {
+                if (next == null) {
+                    throw new NoSuchElementException();
+                }
+                Account account = next;
+                next = advance();
+                return account;
+            }
+        };
+    }
+    
+    private Account insert(long key, Account account, boolean replace) {
+        Table current = table;
+        // Tabelul este ocupat cel mult 2/3, ca sondările să rămână scurte
+        if ((current.used + 1) * 3L > current.capacity() * 2L) {
+            current = resize(current);
+        }
+        for (int slot = slotOf(key, current.mask); ; slot = (slot + 1) & current.mask) {
+            long found = current.keys.get(slot);
+            if (found == key) {
+                Account existing = current.accounts.get(slot);
+                if (existing == null || replace) {
+                    current.accounts.set(slot, account);
+                }
+                if (existing == null) {
+                    size++;
+                }
+                return replace ? null : existing;
+            }
+            if (found == NO_KEY) {
+                current.keys.set(slot, key);
+                current.accounts.set(slot, account);
+                current.used++;
+                size++;
+                return null;
+            }
+        }
+    }
+    
+    /**
+     * Copiază conturile într-un tabel nou, fără sloturile conturilor eliminate, și îl publică
+     */
+    private Table resize(Table current) {
+        Table resized = new Table(capacityFor(size + 1));
+        for (int slot = 0; slot < current.capacity(); slot++) {
+            Account account = current.accounts.get(slot);
+            if (account == null) {
+                continue;
+            }
+            long key = current.keys.get(slot);
+            int target = slotOf(key, resized.mask);
+            while (resized.keys.get(target) != NO_KEY) {
+                target = (target + 1) & resized.mask;
+            }
+            resized.keys.set(target, key);
+            resized.accounts.set(target, account);
+            resized.used++;
+        }
+        table = resized;
+        return resized;
+    }
+    
+    private static long keyOf(Account account) {
+        long key = key(account.getAccountNumber());
+        if (key == NO_KEY) {
+            throw new IllegalArgumentException("Număr de cont invalid: " + account.getAccountNumber());
+        }
+        return key;
+    }
+    
+    /**
+     * Capacitatea (putere a lui 2) la care n conturi ocupă cel mult jumătate din tabel
+     */
+    private static int capacityFor(int accounts) {
+        int capacity = MIN_CAPACITY;
+        while (capacity < accounts * 2L && capacity < (1 << 30)) {
+            capacity <<= 1;
+        }
+        return capacity;
+    }
+    
+    /**
+     * Numerele de cont sunt consecutive: amestecăm biții ca să nu formeze un singur bloc de sloturi
+     */
+    private static int slotOf(long key, int mask) {
+        long hash = key * 0x9E3779B97F4A7C15L;
+        return (int) (hash ^ (hash >>> 32)) & mask;
+    }
+}
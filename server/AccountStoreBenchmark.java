@@ -0,0 +1,176 @@
+package server;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.nio.file.*;
+import java.rmi.server.UnicastRemoteObject;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.stream.Stream;
+
+/**
+ * Compară memoria heap ocupată de conturi în cele două moduri de stocare:
+ *   - implicit: fiecare cont este un obiect în heap, cu istoricul recent și String-urile lui;
+ *   - mmap cu -accountCache: starea conturilor (sold, hash PIN, titular, adresele istoricului)
+ *     stă în tabelul mapat, în afara heap-ului, iar în heap rămân doar conturile folosite recent.
+ *
+ * Pentru fiecare mod: creează conturile, face un checkpoint, măsoară heap-ul ocupat și durata
+ * unui GC complet (proporțională cu obiectele vii), apoi rulează transferuri aleatorii între
+ * toate conturile și raportează activitatea GC din timpul lor.
+ *
+ * Exemple:
+ *   java server.AccountStoreBenchmark
+ *   java -Xmx4g server.AccountStoreBenchmark -accounts 2000000 -accountCache 20000 -seconds 10
+ *
+ * Argumentele necunoscute de benchmark sunt transmise mai departe către ServerConfig, pentru ambele moduri.
+ */
+public class AccountStoreBenchmark {
+    
+    private static final String PIN = "1234";
+    private static final double INITIAL_BALANCE = 1000000;
+    
+    public static void main(String[] args) throws Exception {
+        int threads = Runtime.getRuntime().availableProcessors();
+        int accountCount = 200000;
+        int accountCache = 10000;
+        int seconds = 5;
+        List<String> serverArgs = new ArrayList<>();
+        
+        for (int i = 0; i < args.length; i++) {
+            if (args[i].equals("-threads") && i + 1 < args.length) {
+                threads = Math.max(1, Integer.parseInt(args[++i]));
+            } else if (args[i].equals("-accounts") && i + 1 < args.length) {
+                accountCount = Math.max(2, Integer.parseInt(args[++i]));
+            } else if (args[i].equals("-accountCache") && i + 1 < args.length) {
+                accountCache = Math.max(1, Integer.parseInt(args[++i]));
+            } else if (args[i].equals("-seconds") && i + 1 < args.length) {
+                seconds = Math.max(1, Integer.parseInt(args[++i]));
+            } else {
+                serverArgs.add(args[i]);
+            }
+        }
+        
+        PrintStream report = System.out;
+        System.setOut(new PrintStream(new OutputStream() {
+            @Override
+            public void write(int b) {
+            }
+        }));
+        
+        Path dataDir = Files.createTempDirectory("bank-benchmark");
+        System.setProperty(BankServiceImpl.DATA_DIR_PROPERTY, dataDir.toString());
+        
+        List<String> heapArgs = new ArrayList<>(serverArgs);
+        heapArgs.addAll(Arrays.asList("-storage", ServerConfig.STORAGE_HEAP));
+        List<String> mmapArgs = new ArrayList<>(serverArgs);
+        mmapArgs.addAll(Arrays.asList("-storage", ServerConfig.STORAGE_MMAP, "-accountCache",
+            String.valueOf(accountCache)));
+        
+        try {
+            report.println(accountCount + " conturi, transferuri timp de " + seconds + " s cu " + threads + " fire");
+            report.println(String.format("%-22s %12s %12s %14s %14s %10s %12s", "Mod", "Heap (MB)", "Octeți/cont",
+                "GC complet ms", "Operațiuni/s", "Colectări", "Timp GC ms"));
+            run(report, "heap", heapArgs, dataDir, accountCount, threads, seconds);
+            run(report, "mmap, cache " + accountCache, mmapArgs, dataDir, accountCount, threads, seconds);
+        } finally {
+            deleteRecursively(dataDir);
+        }
+        System.exit(0);
+    }
+    
+    /**
+     * Măsoară un mod de stocare, pornind de la un director de date gol
+     */
+    private static void run(PrintStream report, String mode, List<String> serverArgs, Path dataDir, int accountCount,
+            int threads, int seconds) throws Exception {
+        deleteRecursively(dataDir);
+        Files.createDirectories(dataDir);
+        long baseline = usedHeapAfterGc();
+        
+        BankServiceImpl service = new BankServiceImpl(ServerConfig.fromArgs(serverArgs.toArray(new String[0])));
+        try {
+            String[] accounts = createAccounts(service, accountCount, threads);
+            service.checkpointNow();
+            
+            long heap = usedHeapAfterGc() - baseline;
+            long fullGcStart = System.nanoTime();
+            System.gc();
+            double fullGcMillis = (System.nanoTime() - fullGcStart) / 1e6;
+            
+            long collections = collectionCount();
+            long gcMillis = collectionMillis();
+            double throughput = TransferBenchmark.run(service, accounts, threads, seconds);
+            collections = collectionCount() - collections;
+            gcMillis = collectionMillis() - gcMillis;
+            
+            report.println(String.format("%-22s %12.1f %12d %14.1f %14.0f %10d %12d", mode, heap / (1024.0 * 1024),
+                heap / accountCount, fullGcMillis, throughput, collections, gcMillis));
+        } finally {
+            service.shutdown();
+            UnicastRemoteObject.unexportObject(service, true);
+        }
+    }
+    
+    private static String[] createAccounts(BankServiceImpl service, int count, int threads) throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            List<Future<String>> futures = new ArrayList<>();
+            for (int i = 0; i < count; i++) {
+                futures.add(executor.submit(() -> service.createAccount("Benchmark", PIN, INITIAL_BALANCE)));
+            }
+            String[] accounts = new String[count];
+            for (int i = 0; i < count; i++) {
+                accounts[i] = futures.get(i).get();
+            }
+            return accounts;
+        } finally {
+            executor.shutdown();
+        }
+    }
+    
+    private static long usedHeapAfterGc() {
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+        return ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getUsed();
+    }
+    
+    private static long collectionCount() {
+        long count = 0;
+        for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()) {
+            count += Math.max(0, gc.getCollectionCount());
+        }
+        return count;
+    }
+    
+    private static long collectionMillis() {
+        long millis = 0;
+        for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()) {
+            millis += Math.max(0, gc.getCollectionTime());
+        }
+        return millis;
+    }
+    
+    private static void deleteRecursively(Path dir) {
+        if (!Files.exists(dir)) {
+            return;
+        }
+        try (Stream<Path> paths = Files.walk(dir)) {
+            paths.sorted(Comparator.reverseOrder()).forEach(path -> {
+                try {
+                    Files.delete(path);
+                } catch (IOException e) {
+                    System.err.println("Nu s-a putut șterge " + path);
+                }
+            });
+        } catch (IOException e) {
+            System.err.println("Nu s-a putut șterge directorul temporar " + dir);
+        }
+    }
+}
@@ -4,51 +4,226 @@ import common.*;
 import java.rmi.RemoteException;
 import java.rmi.server.UnicastRemoteObject;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
 import java.io.*;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.*;
 
 /**
  * Implementarea serviciului bancar RMI
  * Această clasă conține toată logica de business pentru operațiunile bancare
- * Datele sunt salvate persistent în format JSON
+ * Datele sunt salvate persistent: un snapshot complet plus un jurnal append-only
+ * în care fiecare mutație scrie o singură înregistrare
+ *
+ * Operațiunile sunt disponibile și asincron (AsyncBankService), pentru serverul web pornit
+ * în același proces: future-ul este finalizat când înregistrarea devine durabilă, fără ca
+ * vreun fir să aștepte fsync-ul. Metodele RMI sincrone așteaptă aceleași future-uri.
  */
-public class BankServiceImpl extends UnicastRemoteObject implements BankService {
+public class BankServiceImpl extends UnicastRemoteObject implements BankService, AsyncBankService {
     private static final long serialVersionUID = 1L;
     
-    // Stocare thread-safe pentru conturi
-    private final Map<String, Account> accounts;
+    // Conturile din memorie, indexate după partea numerică a numărului de cont
+    // (în modul mmap doar conturile încărcate din tabel)
+    private final AccountIndex accounts;
+    // Numărul maxim de conturi păstrate în memorie în modul mmap (0 = fără limită). Peste
+    // limită, conturile nefolosite recent și deja scrise în tabel sunt eliberate din heap.
+    private final int accountCacheLimit;
     // Generator de numere de cont
     private final AtomicLong accountNumberGenerator;
     // Prefix pentru numerele de cont
     private static final String ACCOUNT_PREFIX = "RO";
+    // Numărul maxim de tranzacții returnate într-o pagină de istoric
+    private static final int MAX_PAGE_LIMIT = 100;
+    // Numărul maxim de componente dintr-un lot de transferuri
+    private static final int MAX_BATCH_LEGS = 10000;
+    // Timpul maxim de așteptare al unui client pentru modificarea unui cont
+    private static final long MAX_AWAIT_MILLIS = TimeUnit.SECONDS.toMillis(60);
     // Fișier pentru persistență date - folosim calea absolută
+    public static final String DATA_DIR_PROPERTY = "bank.dataDir";
     private static final String DATA_DIR;
     private static final String ACCOUNTS_FILE;
     private static final String COUNTER_FILE;
+    private static final String SNAPSHOT_FILE;
+    private static final String TABLE_FILE;
+    private static final String HISTORY_DIR;
+    private static final String JOURNAL_DIR;
+    // Jurnalul dintr-un singur fișier, folosit înainte de segmentare
+    private static final String LEGACY_JOURNAL_FILE;
+    
+    // Jurnalul de operațiuni (write-ahead log)
+    private final LedgerJournal journal;
+    // Snapshot-ul complet și checkpoint-urile de fundal
+    private final SnapshotStore snapshotStore;
+    // Snapshot-urile în celelalte formate, folosite o singură dată pentru migrare
+    private final List<SnapshotStore> legacySnapshotStores;
+    // Tabelul mapat în memorie (doar în modul -storage mmap, altfel null)
+    private final MappedAccountTable accountTable;
+    // Istoricul vechi al conturilor, arhivat pe disc în pagini
+    private final HistoryStore historyStore;
+    private final CheckpointManager checkpointManager;
+    // Motorul care aplică operațiunile: lock-uri per cont, un singur fir (sequencer) sau partiții
+    private final LedgerExecutor executor;
+    // Firele care finalizează operațiunile după fsync, astfel încât flusher-ul jurnalului
+    // să nu execute codul apelanților (rezumatul, logarea, răspunsul HTTP)
+    private final ExecutorService completions;
+    // Transferurile între partiții și loturile aflate între debitare și creditare, cu o limită
+    // inferioară a LSN-ului debitării; checkpoint-ul păstrează jurnalul începând cu cea mai veche
+    private final Map<JournalRecord, Long> transfersInFlight = new ConcurrentHashMap<>();
+    // Cheile de idempotență ale operațiunilor recente, pentru reîncercări sigure
+    private final IdempotencyCache idempotencyCache;
+    // Debitările găsite la recuperare fără creditare sau returnare (folosit doar la pornire)
+    private final Map<Long, JournalRecord> unfinishedTransfers = new LinkedHashMap<>();
+    // Clienții care așteaptă modificarea unui cont (actualizări trimise fără interogări repetate)
+    private final AccountEvents events = new AccountEvents();
     
     static {
         // Determinăm directorul proiectului bazat pe locația clasei
+        // Proprietatea bank.dataDir permite un director separat (de exemplu pentru benchmark-uri)
         String userDir = System.getProperty("user.dir");
-        DATA_DIR = userDir + File.separator + "data";
+        DATA_DIR = System.getProperty(DATA_DIR_PROPERTY, userDir + File.separator + "data");
         ACCOUNTS_FILE = DATA_DIR + File.separator + "accounts.dat";
         COUNTER_FILE = DATA_DIR + File.separator + "counter.dat";
+        SNAPSHOT_FILE = DATA_DIR + File.separator + "accounts.snap";
+        TABLE_FILE = DATA_DIR + File.separator + "accounts.tbl";
+        HISTORY_DIR = DATA_DIR + File.separator + "history";
+        JOURNAL_DIR = DATA_DIR + File.separator + "journal";
+        LEGACY_JOURNAL_FILE = DATA_DIR + File.separator + "journal.log";
     }
     
     public BankServiceImpl() throws RemoteException {
+        this(new ServerConfig());
+    }
+    
+    public BankServiceImpl(ServerConfig config) throws RemoteException {
         super();
-        this.accounts = new ConcurrentHashMap<>();
+        this.accounts = new AccountIndex();
         this.accountNumberGenerator = new AtomicLong(1000000000L);
+        this.journal = new LedgerJournal(Paths.get(JOURNAL_DIR),
+            config.getJournalMaxBatch(), config.getJournalMaxWaitMicros());
+        try {
+            this.historyStore = new HistoryStore(Paths.get(HISTORY_DIR), config.getHistoryCachePages());
+        } catch (IOException e) {
+            throw new RemoteException("Istoricul tranzacțiilor nu poate fi deschis: " + e.getMessage(), e);
+        }
+        SnapshotStore binaryStore = new BinarySnapshotStore(Paths.get(SNAPSHOT_FILE));
+        SnapshotStore javaStore = new JavaSnapshotStore(Paths.get(ACCOUNTS_FILE), Paths.get(COUNTER_FILE));
+        boolean binary = config.getSnapshotFormat().equals(ServerConfig.SNAPSHOT_FORMAT_BINARY);
+        if (config.getStorage().equals(ServerConfig.STORAGE_MMAP)) {
+            this.accountTable = new MappedAccountTable(Paths.get(TABLE_FILE), historyStore);
+            this.snapshotStore = accountTable;
+            this.legacySnapshotStores = Arrays.asList(binaryStore, javaStore);
+            this.accountCacheLimit = config.getAccountCache();
+        } else {
+            // Tabelul păstrează doar hash-ul PIN-urilor, deci nu poate fi convertit înapoi
+            if (Files.exists(Paths.get(TABLE_FILE))) {
+                throw new IllegalStateException("Datele sunt stocate în " + TABLE_FILE + 
+                    ". Porniți serverul cu -storage mmap.");
+            }
+            this.accountTable = null;
+            this.snapshotStore = binary ? binaryStore : javaStore;
+            this.legacySnapshotStores = Collections.singletonList(binary ? javaStore : binaryStore);
+            this.accountCacheLimit = ServerConfig.UNLIMITED_ACCOUNT_CACHE;
+            if (config.getAccountCache() != ServerConfig.UNLIMITED_ACCOUNT_CACHE) {
+                System.err.println("[PERSISTENȚĂ] -accountCache are efect doar cu -storage mmap");
+            }
+        }
+        this.idempotencyCache = new IdempotencyCache(config.getIdempotencyKeys(), 
+            TimeUnit.MINUTES.toMillis(config.getIdempotencyTtlMinutes()));
+        this.checkpointManager = new CheckpointManager(journal, snapshotStore, historyStore,
+            this::snapshotAccounts, accountNumberGenerator::get, this::oldestTransferInFlight,
+            this::carryIdempotencyKeys, this::evictColdAccounts);
+        if (config.getEngine().equals(ServerConfig.ENGINE_SEQUENCER)) {
+            this.executor = new LedgerSequencer(config.getRingSize());
+        } else if (config.getEngine().equals(ServerConfig.ENGINE_PARTITIONED)) {
+            this.executor = new PartitionedExecutor(config.getPartitions());
+        } else {
+            this.executor = new LockingExecutor();
+        }
+        AtomicInteger completionThreadIds = new AtomicInteger();
+        this.completions = Executors.newFixedThreadPool(Math.max(2, Runtime.getRuntime().availableProcessors()), 
+            r -> {
+                Thread thread = new Thread(r, "ledger-completion-" + completionThreadIds.getAndIncrement());
+                thread.setDaemon(true);
+                return thread;
+            });
         
         // Creăm directorul pentru date dacă nu există
         createDataDirectory();
         
-        // Încărcăm datele salvate sau creăm conturi demo
+        // Încărcăm snapshot-ul și jurnalul sau creăm conturi demo
         if (!loadData()) {
             createDemoAccounts();
             saveData();
         }
+        
+        // Snapshot-urile vechi conțin tot istoricul în memorie: îl arhivăm înainte de pornire
+        for (Account account : accounts) {
+            archiveHistory(account);
+        }
+        completeUnfinishedTransfers();
+        
+        checkpointManager.start(config.getCheckpointIntervalSeconds(), config.getCheckpointJournalBytes());
+    }
+    
+    /**
+     * Finalizează transferurile în doi pași (între partiții sau din loturi) întrerupte de o
+     * cădere după debitare. Debitarea este deja în jurnal, deci transferul continuă cu creditarea.
+     */
+    private void completeUnfinishedTransfers() {
+        for (JournalRecord debit : unfinishedTransfers.values()) {
+            Account source = findAccount(debit.getAccountNumber());
+            Account destination = findAccount(debit.getRelatedAccount());
+            try {
+                JournalRecord credit = JournalRecord.transferCredit(debit);
+                LedgerExecutor.Result result = executor.execute(destination, null, 
+                    () -> creditTransfer(credit, destination, source));
+                awaitDurable(result.getDurable());
+                System.out.println("[PERSISTENȚĂ] Transfer în doi pași finalizat la recuperare: " + debit);
+            } catch (BankException e) {
+                System.err.println("[PERSISTENȚĂ] Transferul " + debit + " nu a putut fi finalizat: " + e.getMessage());
+            }
+        }
+        unfinishedTransfers.clear();
+    }
+    
+    /**
+     * LSN-ul de la care jurnalul trebuie păstrat pentru transferurile între partiții în curs
+     */
+    private long oldestTransferInFlight() {
+        long oldest = Long.MAX_VALUE;
+        for (long lsn : transfersInFlight.values()) {
+            oldest = Math.min(oldest, lsn);
+        }
+        return oldest;
+    }
+    
+    /**
+     * Copiază în segmentul activ al jurnalului cheile de idempotență încă valabile ale căror
+     * operațiuni se află în segmentele pe care checkpoint-ul urmează să le șteargă
+     * @return LSN-ul ultimei copii, 0 dacă nu a fost nevoie de niciuna
+     */
+    private long carryIdempotencyKeys(long replayFrom) {
+        long lastLsn = 0;
+        for (IdempotencyCache.Entry entry : idempotencyCache.recordedBefore(replayFrom)) {
+            JournalRecord copy = JournalRecord.idempotencyKey(entry.getAccountNumber(), entry.getCreatedMillis(),
+                entry.getRecorded());
+            if (journal.append(copy).isCompletedExceptionally()) {
+                // Jurnalul nu mai acceptă scrieri: checkpoint-ul eșuează înainte de ștergere
+                return Long.MAX_VALUE;
+            }
+            entry.recorded(copy);
+            lastLsn = copy.getLsn();
+        }
+        return lastLsn;
     }
     
     /**
@@ -56,77 +231,524 @@ public class BankServiceImpl extends UnicastRemoteObject implements BankService
      */
     private void createDataDirectory() {
         try {
-            Files.createDirectories(Paths.get(DATA_DIR));
+            Files.createDirectories(Paths.get(JOURNAL_DIR));
+            
+            // Jurnalul vechi (un singur fișier) devine primul segment
+            Path legacyJournal = Paths.get(LEGACY_JOURNAL_FILE);
+            if (Files.exists(legacyJournal)) {
+                Files.move(legacyJournal, Paths.get(JOURNAL_DIR, String.format("journal-%020d.log", 0)));
+                System.out.println("[PERSISTENȚĂ] Jurnalul vechi a fost mutat în " + JOURNAL_DIR);
+            }
         } catch (IOException e) {
             System.err.println("Eroare la crearea directorului data: " + e.getMessage());
         }
     }
     
     /**
-     * Salvează toate datele pe disc (conturi și counter)
+     * Salvează un snapshot complet pe disc printr-un checkpoint
+     * Operațiunile curente nu mai apelează această metodă - ele scriu doar în jurnal
      */
-    private synchronized void saveData() {
-        try {
-            // Salvăm conturile
-            try (ObjectOutputStream oos = new ObjectOutputStream(
-                    new FileOutputStream(ACCOUNTS_FILE))) {
-                oos.writeObject(new HashMap<>(accounts));
+    private void saveData() {
+        if (checkpointManager.checkpoint()) {
+            System.out.println("[PERSISTENȚĂ] Date salvate cu succes (" + accounts.size() + " conturi)");
+        }
+    }
+    
+    /**
+     * Copiază toate conturile pentru checkpoint, fiecare sub propriul lock
+     * Operațiunile pe alte conturi continuă în timpul copierii.
+     */
+    private Map<String, Account> snapshotAccounts() {
+        Map<String, Account> copies = new HashMap<>(Math.max(16, accounts.size() * 4 / 3 + 1));
+        for (Account account : accounts) {
+            synchronized (account) {
+                copies.put(account.getAccountNumber(), account.copy());
             }
-            
-            // Salvăm counter-ul
-            try (ObjectOutputStream oos = new ObjectOutputStream(
-                    new FileOutputStream(COUNTER_FILE))) {
-                oos.writeLong(accountNumberGenerator.get());
+        }
+        return copies;
+    }
+    
+    /**
+     * Eliberează din heap conturile peste limita -accountCache (rulează pe firul checkpoint-urilor)
+     * Sunt alese conturile nefolosite recent a căror stare este deja scrisă în tabelul mapat;
+     * ele sunt reîncărcate din tabel la următorul acces. Conturile modificate după ultimul
+     * checkpoint rămân în memorie până când checkpoint-ul următor le scrie.
+     */
+    private void evictColdAccounts() {
+        if (accountCacheLimit == ServerConfig.UNLIMITED_ACCOUNT_CACHE) {
+            return;
+        }
+        int excess = accounts.size() - accountCacheLimit;
+        if (excess > 0) {
+            accounts.evict(excess, this::tryEvict);
+        }
+    }
+    
+    /**
+     * Marchează contul ca eliberat dacă nicio operațiune nu îl folosește și rândul lui din tabel
+     * este la zi. Modificările se fac doar de operațiuni care au fixat contul (pinAccount), deci
+     * după marcare starea lui nu se mai poate schimba și poate fi comparată cu tabelul.
+     */
+    private boolean tryEvict(Account account) {
+        if (!account.tryEvict()) {
+            return false;
+        }
+        if (accountTable.isStored(account)) {
+            return true;
+        }
+        account.cancelEvict();
+        return false;
+    }
+    
+    /**
+     * Checkpoint imediat urmat de eliberarea conturilor peste limită (folosit de benchmark-uri)
+     */
+    void checkpointNow() {
+        saveData();
+        evictColdAccounts();
+    }
+    
+    /**
+     * Oprire curată: ultimul checkpoint, apoi închiderea jurnalului
+     */
+    public void shutdown() {
+        executor.stop();
+        checkpointManager.stop();
+        saveData();
+        try {
+            journal.close();
+            if (accountTable != null) {
+                accountTable.close();
             }
-            
-            System.out.println("[PERSISTENȚĂ] Date salvate cu succes (" + accounts.size() + " conturi)");
+            historyStore.close();
         } catch (IOException e) {
-            System.err.println("[PERSISTENȚĂ] Eroare la salvare: " + e.getMessage());
+            System.err.println("[PERSISTENȚĂ] Eroare la închiderea jurnalului: " + e.getMessage());
         }
+        events.shutdown();
+        completions.shutdown();
     }
     
     /**
-     * Încarcă datele de pe disc
+     * Încarcă snapshot-ul de pe disc și reaplică jurnalul de după el
      * @return true dacă datele au fost încărcate cu succes
      */
-    @SuppressWarnings("unchecked")
     private boolean loadData() {
-        File accountsFile = new File(ACCOUNTS_FILE);
-        File counterFile = new File(COUNTER_FILE);
+        long snapshotLsn = loadSnapshot();
+        boolean hasSnapshot = snapshotLsn >= 0;
         
-        if (!accountsFile.exists() || !counterFile.exists()) {
-            System.out.println("[PERSISTENȚĂ] Nu există date salvate, se vor crea conturi demo");
-            return false;
+        try {
+            int replayed = journal.recover(Math.max(snapshotLsn, 0), this::applyRecord);
+            if (replayed > 0) {
+                System.out.println("[PERSISTENȚĂ] Jurnal reaplicat: " + replayed + " operațiuni (" + 
+                    accounts.size() + " conturi)");
+            }
+            if (!hasSnapshot && replayed == 0) {
+                System.out.println("[PERSISTENȚĂ] Nu există date salvate, se vor crea conturi demo");
+                return false;
+            }
+            return true;
+        } catch (IOException e) {
+            System.err.println("[PERSISTENȚĂ] Eroare la citirea jurnalului: " + e.getMessage());
+            return hasSnapshot;
         }
-        
+    }
+    
+    /**
+     * Încarcă snapshot-ul complet de pe disc
+     * @return LSN-ul inclus în snapshot sau -1 dacă nu există snapshot
+     */
+    private long loadSnapshot() {
         try {
-            // Încărcăm conturile
-            try (ObjectInputStream ois = new ObjectInputStream(
-                    new FileInputStream(ACCOUNTS_FILE))) {
-                Map<String, Account> loadedAccounts = (Map<String, Account>) ois.readObject();
-                accounts.putAll(loadedAccounts);
+            SnapshotStore.Snapshot snapshot = snapshotStore.load();
+            if (snapshot == null) {
+                snapshot = migrateSnapshot();
+            }
+            if (snapshot == null) {
+                return -1;
             }
             
-            // Încărcăm counter-ul
-            try (ObjectInputStream ois = new ObjectInputStream(
-                    new FileInputStream(COUNTER_FILE))) {
-                long counter = ois.readLong();
-                accountNumberGenerator.set(counter);
+            for (Account account : snapshot.getAccounts().values()) {
+                accounts.put(account);
             }
+            accountNumberGenerator.set(snapshot.getNextAccountNumber());
             
-            System.out.println("[PERSISTENȚĂ] Date încărcate cu succes (" + accounts.size() + " conturi)");
+            System.out.println("[PERSISTENȚĂ] Date încărcate cu succes (" + getTotalAccounts() + " conturi)");
             System.out.println("[PERSISTENȚĂ] Următorul număr cont: " + ACCOUNT_PREFIX + accountNumberGenerator.get());
             
             // Afișăm conturile existente
-            for (Account acc : accounts.values()) {
+            for (Account acc : accounts) {
                 System.out.println("  -> Cont: " + acc.getAccountNumber() + " | " + acc.getOwnerName() + 
-                    " | Sold: " + String.format("%.2f", acc.getBalance()) + " RON");
+                    " | Sold: " + Money.format(acc.getBalanceBani()) + " RON");
             }
             
-            return true;
-        } catch (IOException | ClassNotFoundException e) {
+            return snapshot.getLsn();
+        } catch (IOException e) {
             System.err.println("[PERSISTENȚĂ] Eroare la încărcare: " + e.getMessage());
-            return false;
+            return -1;
+        }
+    }
+    
+    /**
+     * Migrare unică: dacă snapshot-ul există doar în celălalt format, este rescris
+     * în formatul configurat, iar fișierele vechi sunt redenumite (.migrated)
+     * @return snapshot-ul migrat sau null dacă nu există nimic de migrat
+     */
+    private SnapshotStore.Snapshot migrateSnapshot() throws IOException {
+        for (SnapshotStore legacySnapshotStore : legacySnapshotStores) {
+            SnapshotStore.Snapshot snapshot = legacySnapshotStore.load();
+            if (snapshot == null) {
+                continue;
+            }
+            
+            long bytes = snapshotStore.write(snapshot.getAccounts(), snapshot.getNextAccountNumber(), snapshot.getLsn());
+            legacySnapshotStore.markMigrated();
+            System.out.println("[PERSISTENȚĂ] Snapshot migrat în formatul " + snapshotStore.getClass().getSimpleName()
+                + " (" + snapshot.getAccounts().size() + " conturi, " + bytes + " octeți)");
+            return snapshot;
+        }
+        return null;
+    }
+    
+    /**
+     * Caută un cont; în modul mmap îl încarcă din tabel la primul acces
+     * Numărul de cont este parsat aici o singură dată; indexul compară doar chei long.
+     * @return contul sau null dacă nu există
+     */
+    private Account findAccount(String accountNumber) {
+        long key = AccountIndex.key(accountNumber);
+        if (key == AccountIndex.NO_KEY) {
+            return null;
+        }
+        Account account = accounts.get(key);
+        if (account == null && accountTable != null) {
+            // Dacă două fire încarcă simultan același cont, rămâne copia publicată prima
+            Account loaded;
+            try {
+                loaded = accountTable.readAccount(accountNumber);
+            } catch (IOException e) {
+                System.err.println("[PERSISTENȚĂ] Eroare la încărcarea contului " + accountNumber + ": " + e.getMessage());
+                return null;
+            }
+            if (loaded != null) {
+                Account existing = accounts.putIfAbsent(loaded);
+                account = existing != null ? existing : loaded;
+            }
+        }
+        return account;
+    }
+    
+    /**
+     * Caută un cont pentru o operațiune care îl modifică și îl fixează în memorie
+     * Cu limita -accountCache un cont poate fi eliberat din heap între căutare și fixare;
+     * atunci este căutat din nou, iar următoarea căutare îl reîncarcă din tabel.
+     * @param pinned conturile fixate de operațiune, eliberate când aceasta se încheie; null
+     *               dacă numărul conturilor din memorie nu este limitat (nu se fixează nimic)
+     * @return contul sau null dacă nu există
+     */
+    private Account pinAccount(String accountNumber, List<Account> pinned) {
+        for (;;) {
+            Account account = findAccount(accountNumber);
+            if (account == null || pinned == null) {
+                return account;
+            }
+            if (account.pin()) {
+                pinned.add(account);
+                return account;
+            }
+            Thread.yield();
+        }
+    }
+    
+    /**
+     * O operațiune asincronă care modifică conturi fixate în memorie
+     */
+    private interface PinnedOperation<T> {
+        CompletableFuture<T> run(List<Account> pinned) throws BankException;
+    }
+    
+    /**
+     * Rulează operațiunea și eliberează conturile fixate de ea după ce future-ul ei se încheie
+     * Fără limita -accountCache operațiunea primește null și nu fixează nimic.
+     */
+    private <T> CompletableFuture<T> withPinnedAccounts(PinnedOperation<T> operation) throws BankException {
+        if (accountCacheLimit == ServerConfig.UNLIMITED_ACCOUNT_CACHE) {
+            return operation.run(null);
+        }
+        List<Account> pinned = new ArrayList<>(2);
+        CompletableFuture<T> result;
+        try {
+            result = operation.run(pinned);
+        } catch (BankException | RuntimeException e) {
+            unpinAll(pinned);
+            throw e;
+        }
+        result.whenComplete((value, error) -> unpinAll(pinned));
+        return result;
+    }
+    
+    private static void unpinAll(List<Account> pinned) {
+        if (pinned != null) {
+            for (Account account : pinned) {
+                account.unpin();
+            }
+        }
+    }
+    
+    /**
+     * Pune o înregistrare în coada jurnalului înainte ca modificarea să devină vizibilă
+     * @return future-ul finalizat când înregistrarea este durabilă pe disc
+     */
+    private CompletableFuture<Long> appendToJournal(JournalRecord record) throws BankException {
+        CompletableFuture<Long> durable = journal.append(record);
+        if (durable.isCompletedExceptionally()) {
+            awaitDurable(durable);
+        }
+        return durable;
+    }
+    
+    /**
+     * Pune în jurnal înregistrarea unei operațiuni cu cheie de idempotență (key poate fi null)
+     * Rezultatul returnat clientului este scris odată cu cheia: soldul după aplicarea lui
+     * deltaBani și versiunea următoare. Apelantul are acces exclusiv la cont.
+     */
+    private CompletableFuture<Long> appendToJournal(JournalRecord record, IdempotencyCache.Entry key, 
+            Account account, long deltaBani) throws BankException {
+        if (key != null) {
+            record.setIdempotency(new JournalRecord.Idempotency(key.getKey(), key.getFingerprint(),
+                account.getBalanceBani() + deltaBani, account.getVersion() + 1));
+        }
+        CompletableFuture<Long> durable = appendToJournal(record);
+        if (key != null) {
+            key.recorded(record);
+        }
+        return durable;
+    }
+    
+    /**
+     * Pune în jurnal un grup de înregistrări care devin durabile (și sunt recuperate) împreună
+     */
+    private CompletableFuture<Long> appendGroupToJournal(List<JournalRecord> records) throws BankException {
+        CompletableFuture<Long> durable = journal.appendGroup(records);
+        if (durable.isCompletedExceptionally()) {
+            awaitDurable(durable);
+        }
+        return durable;
+    }
+    
+    /**
+     * Așteaptă ca lotul jurnalului care conține operațiunea să fie sincronizat pe disc
+     * Apelantul RMI primește răspunsul doar după ce operațiunea este durabilă.
+     */
+    private void awaitDurable(CompletableFuture<Long> durable) throws BankException {
+        try {
+            durable.get();
+        } catch (ExecutionException e) {
+            System.err.println("[PERSISTENȚĂ] Eroare la scrierea în jurnal: " + e.getCause().getMessage());
+            throw new BankException("Operațiunea nu a putut fi salvată. Încercați din nou!", e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new BankException("Operațiunea a fost întreruptă!", e);
+        }
+    }
+    
+    /**
+     * Varianta asincronă a awaitDurable: rezultatul comenzii, disponibil după fsync
+     * Continuarea rulează pe firele de finalizare, nu pe flusher-ul jurnalului.
+     */
+    private CompletableFuture<LedgerExecutor.Result> whenDurable(LedgerExecutor.Result result) {
+        return result.getDurable().handleAsync((lsn, error) -> {
+            if (error != null) {
+                Throwable cause = unwrap(error);
+                System.err.println("[PERSISTENȚĂ] Eroare la scrierea în jurnal: " + cause.getMessage());
+                throw new CompletionException(
+                    new BankException("Operațiunea nu a putut fi salvată. Încercați din nou!", cause));
+            }
+            return result;
+        }, completions);
+    }
+    
+    private static Throwable unwrap(Throwable error) {
+        return error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+    }
+    
+    private static <T> CompletableFuture<T> failed(Throwable error) {
+        CompletableFuture<T> future = new CompletableFuture<>();
+        future.completeExceptionally(error);
+        return future;
+    }
+    
+    /**
+     * Reaplică o înregistrare din jurnal asupra conturilor din memorie
+     * Snapshot-ul este scris fără a opri operațiunile, deci un cont poate conține deja
+     * efectul înregistrării: se aplică doar părțile cu LSN mai mare decât al contului.
+     */
+    private void applyRecord(JournalRecord record) {
+        if (record.getIdempotency() != null) {
+            idempotencyCache.restore(record);
+        }
+        if (record.getType() == JournalRecord.Type.IDEMPOTENCY_KEY) {
+            return;
+        }
+        if (record.getType() == JournalRecord.Type.CREATE_ACCOUNT) {
+            if (findAccount(record.getAccountNumber()) == null) {
+                applyCreateAccount(record);
+            }
+            return;
+        }
+        
+        Account account = findAccount(record.getAccountNumber());
+        if (account == null) {
+            System.err.println("[PERSISTENȚĂ] Înregistrare ignorată, cont inexistent: " + record);
+            return;
+        }
+        boolean pending = record.getLsn() > account.getLastLsn();
+        Account related = null;
+        if (record.getRelatedAccount() != null) {
+            related = findAccount(record.getRelatedAccount());
+            if (related == null) {
+                System.err.println("[PERSISTENȚĂ] Înregistrare ignorată, cont inexistent: " + record);
+                return;
+            }
+        }
+        
+        switch (record.getType()) {
+            case DEPOSIT:
+                if (pending) {
+                    applyDeposit(account, record);
+                }
+                break;
+            case WITHDRAW:
+                if (pending) {
+                    applyWithdraw(account, record);
+                }
+                break;
+            case TRANSFER:
+                if (pending) {
+                    applyTransferOut(account, related, record);
+                }
+                if (record.getLsn() > related.getLastLsn()) {
+                    applyTransferIn(related, account, record);
+                }
+                break;
+            case TRANSFER_DEBIT:
+                if (pending) {
+                    applyTransferOut(account, related, record);
+                }
+                unfinishedTransfers.put(record.getLsn(), record);
+                break;
+            case TRANSFER_CREDIT:
+                unfinishedTransfers.remove(record.getDebitLsn());
+                if (pending) {
+                    applyTransferIn(account, related, record);
+                }
+                break;
+            case TRANSFER_REFUND:
+                JournalRecord refunded = unfinishedTransfers.remove(record.getDebitLsn());
+                if (refunded != null) {
+                    // Transferul a fost anulat, deci cheia lui poate fi folosită din nou
+                    idempotencyCache.forget(refunded);
+                }
+                if (pending) {
+                    applyTransferRefund(account, related, record);
+                }
+                break;
+            default:
+                break;
+        }
+    }
+    
+    private Account applyCreateAccount(JournalRecord record) {
+        Account account = newAccount(record);
+        accounts.put(account);
+        return account;
+    }
+    
+    /**
+     * Construiește contul descris de o înregistrare CREATE_ACCOUNT (fără a-l publica)
+     */
+    private Account newAccount(JournalRecord record) {
+        String accountNumber = record.getAccountNumber();
+        Account account = new Account(accountNumber, record.getOwnerName(), record.getPin(),
+            record.getAmountBani(), TransactionLog.toDateTime(record.getTimestamp()));
+        account.setLastLsn(record.getLsn());
+        
+        // Generatorul trebuie să rămână după cel mai mare număr de cont existent
+        long number = Long.parseLong(accountNumber.substring(ACCOUNT_PREFIX.length()));
+        accountNumberGenerator.accumulateAndGet(number + 1, Math::max);
+        return account;
+    }
+    
+    private long applyDeposit(Account account, JournalRecord record) {
+        long newBalance = account.credit(record.getAmountBani());
+        account.addTransaction(TransactionType.DEPOSIT, record.getAmountBani(), record.getTimestamp(),
+            TransactionLog.Description.CASH_DEPOSIT, null);
+        account.setLastLsn(record.getLsn());
+        archiveHistory(account);
+        return newBalance;
+    }
+    
+    private long applyWithdraw(Account account, JournalRecord record) {
+        long newBalance = account.debit(record.getAmountBani());
+        account.addTransaction(TransactionType.WITHDRAWAL, record.getAmountBani(), record.getTimestamp(),
+            TransactionLog.Description.CASH_WITHDRAWAL, null);
+        account.setLastLsn(record.getLsn());
+        archiveHistory(account);
+        return newBalance;
+    }
+    
+    /**
+     * @return soldul nou al contului sursă, în bani
+     */
+    private long applyTransfer(Account source, Account destination, JournalRecord record) {
+        long newBalance = applyTransferOut(source, destination, record);
+        applyTransferIn(destination, source, record);
+        return newBalance;
+    }
+    
+    private long applyTransferOut(Account source, Account destination, JournalRecord record) {
+        long newBalance = source.debit(record.getAmountBani());
+        source.addTransaction(TransactionType.TRANSFER_OUT, record.getAmountBani(), record.getTimestamp(),
+            TransactionLog.Description.TRANSFER_TO, destination);
+        source.setLastLsn(record.getLsn());
+        archiveHistory(source);
+        return newBalance;
+    }
+    
+    private long applyTransferRefund(Account source, Account destination, JournalRecord record) {
+        long newBalance = source.credit(record.getAmountBani());
+        source.addTransaction(TransactionType.TRANSFER_IN, record.getAmountBani(), record.getTimestamp(),
+            TransactionLog.Description.TRANSFER_REFUND, destination);
+        source.setLastLsn(record.getLsn());
+        archiveHistory(source);
+        return newBalance;
+    }
+    
+    private void applyTransferIn(Account destination, Account source, JournalRecord record) {
+        destination.credit(record.getAmountBani());
+        destination.addTransaction(TransactionType.TRANSFER_IN, record.getAmountBani(), record.getTimestamp(),
+            TransactionLog.Description.TRANSFER_FROM, source);
+        destination.setLastLsn(record.getLsn());
+        archiveHistory(destination);
+    }
+    
+    private BankException insufficientFunds(Account account) {
+        return insufficientFunds(account.getBalanceBani());
+    }
+    
+    private BankException insufficientFunds(long availableBani) {
+        return new BankException("Fonduri insuficiente! Sold disponibil: " + Money.format(availableBani) + " RON");
+    }
+    
+    /**
+     * Mută pe disc tranzacțiile vechi ale contului, păstrând în memorie doar pe cele recente
+     * Apelantul trebuie să dețină lock-ul contului; o eroare lasă tranzacțiile în memorie.
+     */
+    private void archiveHistory(Account account) {
+        try {
+            historyStore.archive(account);
+        } catch (IOException e) {
+            System.err.println("[PERSISTENȚĂ] Eroare la arhivarea istoricului contului " + 
+                account.getAccountNumber() + ": " + e.getMessage());
         }
     }
     
@@ -136,18 +758,18 @@ public class BankServiceImpl extends UnicastRemoteObject implements BankService
     private void createDemoAccounts() {
         try {
             // Cont demo 1
-            Account demo1 = new Account(generateAccountNumber(), "Ion Popescu", "1234", 5000.0);
-            accounts.put(demo1.getAccountNumber(), demo1);
+            Account demo1 = new Account(generateAccountNumber(), "Ion Popescu", "1234", Money.toBani(5000));
+            accounts.put(demo1);
             System.out.println("Cont demo creat: " + demo1.getAccountNumber() + " (PIN: 1234)");
             
             // Cont demo 2
-            Account demo2 = new Account(generateAccountNumber(), "Maria Ionescu", "5678", 10000.0);
-            accounts.put(demo2.getAccountNumber(), demo2);
+            Account demo2 = new Account(generateAccountNumber(), "Maria Ionescu", "5678", Money.toBani(10000));
+            accounts.put(demo2);
             System.out.println("Cont demo creat: " + demo2.getAccountNumber() + " (PIN: 5678)");
             
             // Cont demo 3
-            Account demo3 = new Account(generateAccountNumber(), "Alexandru Gheorghe", "0000", 2500.0);
-            accounts.put(demo3.getAccountNumber(), demo3);
+            Account demo3 = new Account(generateAccountNumber(), "Alexandru Gheorghe", "0000", Money.toBani(2500));
+            accounts.put(demo3);
             System.out.println("Cont demo creat: " + demo3.getAccountNumber() + " (PIN: 0000)");
             
         } catch (Exception e) {
@@ -165,6 +787,15 @@ public class BankServiceImpl extends UnicastRemoteObject implements BankService
     @Override
     public String createAccount(String ownerName, String pin, double initialBalance) 
             throws RemoteException, BankException {
+        return LedgerExecutor.awaitCompletion(submitCreateAccount(ownerName, pin, initialBalance));
+    }
+    
+    /**
+     * Validează și trimite crearea contului motorului de execuție
+     * @return future-ul finalizat cu numărul de cont după ce înregistrarea este durabilă
+     */
+    private CompletableFuture<String> submitCreateAccount(String ownerName, String pin, double initialBalance) 
+            throws BankException {
         
         // Validări
         if (ownerName == null || ownerName.trim().isEmpty()) {
@@ -176,17 +807,36 @@ public class BankServiceImpl extends UnicastRemoteObject implements BankService
         if (initialBalance < 0) {
             throw new BankException("Soldul inițial nu poate fi negativ!");
         }
+        if (!(initialBalance <= Money.MAX_RON)) {
+            throw new BankException("Soldul inițial depășește limita permisă!");
+        }
+        if (accountTable != null && ownerName.trim().getBytes(StandardCharsets.UTF_8).length
+                > MappedAccountTable.MAX_OWNER_BYTES) {
+            throw new BankException("Numele titularului este prea lung!");
+        }
         
         String accountNumber = generateAccountNumber();
-        Account newAccount = new Account(accountNumber, ownerName.trim(), pin, initialBalance);
-        accounts.put(accountNumber, newAccount);
+        JournalRecord record = JournalRecord.createAccount(accountNumber, ownerName.trim(), pin,
+            Money.toBani(initialBalance));
+        Account account = newAccount(record);
         
-        logOperation("CREARE CONT", accountNumber, "Titular: " + ownerName + ", Sold inițial: " + initialBalance);
-        
-        // Salvăm datele pe disc
-        saveData();
-        
-        return accountNumber;
+        // Contul este publicat înainte de a primi LSN-ul, astfel încât un checkpoint
+        // care acoperă înregistrarea să îl găsească în mod sigur
+        return executor.submit(account, null, () -> {
+            accounts.put(account);
+            CompletableFuture<Long> durable;
+            try {
+                durable = appendToJournal(record);
+            } catch (BankException e) {
+                accounts.remove(account);
+                throw e;
+            }
+            account.setLastLsn(record.getLsn());
+            return new LedgerExecutor.Result(account.getBalanceBani(), account.getVersion(), durable);
+        }).thenCompose(this::whenDurable).thenApply(result -> {
+            logOperation("CREARE CONT", accountNumber, "Titular: " + ownerName + ", Sold inițial: " + initialBalance);
+            return accountNumber;
+        });
     }
     
     @Override
@@ -196,6 +846,13 @@ public class BankServiceImpl extends UnicastRemoteObject implements BankService
         return account;
     }
     
+    @Override
+    public AccountSummary authenticate(String accountNumber, String pin) throws RemoteException, BankException {
+        Account account = validateAndGetAccount(accountNumber, pin);
+        logOperation("AUTENTIFICARE", accountNumber, "Autentificare reușită");
+        return summarize(account);
+    }
+    
     @Override
     public double getBalance(String accountNumber, String pin) throws RemoteException, BankException {
         Account account = validateAndGetAccount(accountNumber, pin);
@@ -203,71 +860,240 @@ public class BankServiceImpl extends UnicastRemoteObject implements BankService
     }
     
     @Override
-    public synchronized double deposit(String accountNumber, String pin, double amount) 
+    public double deposit(String accountNumber, String pin, double amount) 
             throws RemoteException, BankException {
+        return LedgerExecutor.awaitCompletion(
+            submitDeposit(accountNumber, pin, amount, AccountSummary.ANY_VERSION, null)).getBalance();
+    }
+    
+    @Override
+    public AccountSummary depositIfVersion(String accountNumber, String pin, double amount, long expectedVersion, 
+            String idempotencyKey) throws RemoteException, BankException {
+        return LedgerExecutor.awaitCompletion(submitDeposit(accountNumber, pin, amount, expectedVersion, idempotencyKey));
+    }
+    
+    private CompletableFuture<AccountSummary> submitDeposit(String accountNumber, String pin, double amount, long expectedVersion, 
+            String idempotencyKey) throws BankException {
         
-        if (amount <= 0) {
+        // Suma primită în RON este convertită o singură dată în bani; de aici calculele sunt exacte
+        long amountBani = Money.toBani(amount);
+        if (amountBani <= 0) {
             throw new BankException("Suma de depus trebuie să fie pozitivă!");
         }
         if (amount > 1000000) {
             throw new BankException("Suma maximă pentru o depunere este 1.000.000 RON!");
         }
         
-        Account account = validateAndGetAccount(accountNumber, pin);
+        String fingerprint = IdempotencyCache.fingerprint("DEPOSIT", null, amountBani);
         
-        synchronized (account) {
-            double newBalance = account.getBalance() + amount;
-            account.setBalance(newBalance);
-            account.addTransaction(new Transaction(TransactionType.DEPOSIT, amount, 
-                "Depunere numerar"));
+        return withPinnedAccounts(pinned -> {
+            Account account = validateAndGetAccount(accountNumber, pin, pinned);
             
-            logOperation("DEPUNERE", accountNumber, "Sumă: " + amount + " RON, Sold nou: " + newBalance + " RON");
-            
-            // Salvăm datele pe disc
-            saveData();
-            
-            return newBalance;
-        }
+            return runIdempotent(account, idempotencyKey, fingerprint, key -> {
+                checkVersion(account, expectedVersion);
+                
+                // Modificarea se aplică de motorul de execuție cu acces exclusiv la cont, dar fsync-ul
+                // se așteaptă după aceea, astfel încât operațiunile concurente să intre în același lot
+                // al jurnalului. Nu există un lock global: conturile diferite nu se așteaptă reciproc.
+                return executor.submit(account, null, () -> {
+                    checkVersion(account, expectedVersion);
+                    JournalRecord record = JournalRecord.deposit(accountNumber, amountBani);
+                    CompletableFuture<Long> durable = appendToJournal(record, key, account, amountBani);
+                    return new LedgerExecutor.Result(applyDeposit(account, record), account.getVersion(), durable);
+                }).thenCompose(this::whenDurable).thenApply(result -> {
+                    logOperation("DEPUNERE", accountNumber, "Sumă: " + Money.format(amountBani) + " RON, Sold nou: " + 
+                        Money.format(result.getBalanceBani()) + " RON");
+                    events.publish(accountNumber);
+                    return summarize(account, result);
+                });
+            });
+        });
     }
     
     @Override
-    public synchronized double withdraw(String accountNumber, String pin, double amount) 
+    public double withdraw(String accountNumber, String pin, double amount) 
             throws RemoteException, BankException {
+        return LedgerExecutor.awaitCompletion(
+            submitWithdraw(accountNumber, pin, amount, AccountSummary.ANY_VERSION, null)).getBalance();
+    }
+    
+    @Override
+    public AccountSummary withdrawIfVersion(String accountNumber, String pin, double amount, long expectedVersion, 
+            String idempotencyKey) throws RemoteException, BankException {
+        return LedgerExecutor.awaitCompletion(submitWithdraw(accountNumber, pin, amount, expectedVersion, idempotencyKey));
+    }
+    
+    private CompletableFuture<AccountSummary> submitWithdraw(String accountNumber, String pin, double amount, long expectedVersion, 
+            String idempotencyKey) throws BankException {
         
-        if (amount <= 0) {
+        long amountBani = Money.toBani(amount);
+        if (amountBani <= 0) {
             throw new BankException("Suma de retras trebuie să fie pozitivă!");
         }
         if (amount > 10000) {
             throw new BankException("Suma maximă pentru o retragere este 10.000 RON!");
         }
         
-        Account account = validateAndGetAccount(accountNumber, pin);
+        String fingerprint = IdempotencyCache.fingerprint("WITHDRAW", null, amountBani);
         
-        synchronized (account) {
-            if (account.getBalance() < amount) {
-                throw new BankException("Fonduri insuficiente! Sold disponibil: " + 
-                    String.format("%.2f", account.getBalance()) + " RON");
-            }
-            
-            double newBalance = account.getBalance() - amount;
-            account.setBalance(newBalance);
-            account.addTransaction(new Transaction(TransactionType.WITHDRAWAL, amount, 
-                "Retragere numerar"));
-            
-            logOperation("RETRAGERE", accountNumber, "Sumă: " + amount + " RON, Sold nou: " + newBalance + " RON");
+        return withPinnedAccounts(pinned -> {
+            Account account = validateAndGetAccount(accountNumber, pin, pinned);
             
-            // Salvăm datele pe disc
-            saveData();
-            
-            return newBalance;
-        }
+            return runIdempotent(account, idempotencyKey, fingerprint, key -> {
+                // Soldul și versiunea se citesc fără lock, deci o retragere fără acoperire sau pe o
+                // versiune depășită este respinsă fără să aștepte după operațiunile în curs pe același cont
+                checkVersion(account, expectedVersion);
+                if (!account.hasFunds(amountBani)) {
+                    throw insufficientFunds(account);
+                }
+                
+                return executor.submit(account, null, () -> {
+                    checkVersion(account, expectedVersion);
+                    if (!account.hasFunds(amountBani)) {
+                        throw insufficientFunds(account);
+                    }
+                    
+                    JournalRecord record = JournalRecord.withdraw(accountNumber, amountBani);
+                    CompletableFuture<Long> durable = appendToJournal(record, key, account, -amountBani);
+                    return new LedgerExecutor.Result(applyWithdraw(account, record), account.getVersion(), durable);
+                }).thenCompose(this::whenDurable).thenApply(result -> {
+                    logOperation("RETRAGERE", accountNumber, "Sumă: " + Money.format(amountBani) + " RON, Sold nou: " + 
+                        Money.format(result.getBalanceBani()) + " RON");
+                    events.publish(accountNumber);
+                    return summarize(account, result);
+                });
+            });
+        });
     }
     
     @Override
-    public synchronized double transfer(String fromAccount, String pin, String toAccount, double amount) 
+    public double transfer(String fromAccount, String pin, String toAccount, double amount) 
             throws RemoteException, BankException {
+        return LedgerExecutor.awaitCompletion(
+            submitTransfer(fromAccount, pin, toAccount, amount, AccountSummary.ANY_VERSION, null)).getBalance();
+    }
+    
+    @Override
+    public AccountSummary transferIfVersion(String fromAccount, String pin, String toAccount, double amount, 
+            long expectedVersion, String idempotencyKey) throws RemoteException, BankException {
+        return LedgerExecutor.awaitCompletion(
+            submitTransfer(fromAccount, pin, toAccount, amount, expectedVersion, idempotencyKey));
+    }
+    
+    private CompletableFuture<AccountSummary> submitTransfer(String fromAccount, String pin, String toAccount, double amount, 
+            long expectedVersion, String idempotencyKey) throws BankException {
         
-        if (amount <= 0) {
+        long amountBani = checkTransferAmount(fromAccount, toAccount, amount);
+        String fingerprint = IdempotencyCache.fingerprint("TRANSFER", toAccount, amountBani);
+        
+        return withPinnedAccounts(pinned -> {
+            Account source = validateAndGetAccount(fromAccount, pin, pinned);
+            Account destination = findDestination(toAccount, pinned);
+            
+            return runIdempotent(source, idempotencyKey, fingerprint, key -> {
+                checkVersion(source, expectedVersion);
+                if (!source.hasFunds(amountBani)) {
+                    throw insufficientFunds(source);
+                }
+                
+                if (!executor.isAtomic(source, destination)) {
+                    return transferAcrossPartitions(source, destination, amountBani, expectedVersion, key)
+                        .thenApply(result -> summarize(source, result));
+                }
+                
+                // Motorul implicit blochează ambele conturi în ordinea numerelor de cont;
+                // transferurile între perechi de conturi disjuncte nu se așteaptă reciproc
+                return executor.submit(source, destination, () -> {
+                    checkVersion(source, expectedVersion);
+                    if (!source.hasFunds(amountBani)) {
+                        throw insufficientFunds(source);
+                    }
+                    
+                    // Scriem în jurnal, apoi efectuăm transferul
+                    JournalRecord record = JournalRecord.transfer(fromAccount, toAccount, amountBani);
+                    CompletableFuture<Long> durable = appendToJournal(record, key, source, -amountBani);
+                    return new LedgerExecutor.Result(applyTransfer(source, destination, record), source.getVersion(), 
+                        durable);
+                }).thenCompose(this::whenDurable).thenApply(result -> {
+                    logOperation("TRANSFER", fromAccount, 
+                        "Către: " + toAccount + ", Sumă: " + Money.format(amountBani) + " RON");
+                    events.publish(fromAccount);
+                    events.publish(toAccount);
+                    return summarize(source, result);
+                });
+            });
+        });
+    }
+    
+    /**
+     * O operațiune care poate fi repetată în siguranță cu aceeași cheie de idempotență
+     */
+    private interface IdempotentOperation {
+        CompletableFuture<AccountSummary> run(IdempotencyCache.Entry key) throws BankException;
+    }
+    
+    /**
+     * Execută operațiunea o singură dată pentru o cheie de idempotență dată
+     * O reîncercare cu aceeași cheie primește rezultatul original (sau îl așteaptă dacă
+     * operațiunea originală este încă în curs). Fără cheie, operațiunea se execută direct.
+     */
+    private CompletableFuture<AccountSummary> runIdempotent(Account account, String idempotencyKey, 
+            String fingerprint, IdempotentOperation operation) throws BankException {
+        if (idempotencyKey == null) {
+            return operation.run(null);
+        }
+        IdempotencyCache.validateKey(idempotencyKey);
+        
+        IdempotencyCache.Entry key = idempotencyCache.newEntry(account.getAccountNumber(), idempotencyKey, fingerprint);
+        IdempotencyCache.Entry original = idempotencyCache.reserve(key);
+        if (original != null) {
+            if (!original.getFingerprint().equals(fingerprint)) {
+                throw new BankException("Cheia de idempotență a fost deja folosită pentru o altă operațiune!");
+            }
+            return original.getOutcome().thenApply(result -> {
+                logOperation("REPETARE", account.getAccountNumber(), "Cheie: " + idempotencyKey + 
+                    ", operațiunea a fost deja efectuată");
+                return new AccountSummary(account.getAccountNumber(), account.getOwnerName(), 
+                    Money.toRon(result.getResultBani()), account.getCreatedAt(), result.getResultVersion());
+            });
+        }
+        
+        CompletableFuture<AccountSummary> result;
+        try {
+            result = operation.run(key);
+        } catch (BankException | RuntimeException e) {
+            failIdempotent(key, e);
+            throw e;
+        }
+        return result.whenComplete((summary, error) -> {
+            if (error == null) {
+                idempotencyCache.complete(key);
+            } else {
+                failIdempotent(key, unwrap(error));
+            }
+        });
+    }
+    
+    /**
+     * Eliberează cheia unei operațiuni eșuate doar dacă nimic din ea nu a ajuns în jurnal
+     * Altfel operațiunea poate fi finalizată la recuperare, iar o reîncercare cu aceeași cheie
+     * ar executa-o a doua oară.
+     */
+    private void failIdempotent(IdempotencyCache.Entry key, Throwable error) {
+        if (key.getRecorded() != null) {
+            idempotencyCache.failUnfinished(key, error);
+        } else {
+            idempotencyCache.fail(key, error);
+        }
+    }
+    
+    /**
+     * Validează suma și conturile unui transfer, fără a accesa conturile
+     * @return suma în bani
+     */
+    private long checkTransferAmount(String fromAccount, String toAccount, double amount) throws BankException {
+        long amountBani = Money.toBani(amount);
+        if (amountBani <= 0) {
             throw new BankException("Suma de transferat trebuie să fie pozitivă!");
         }
         if (amount > 50000) {
@@ -276,42 +1102,262 @@ public class BankServiceImpl extends UnicastRemoteObject implements BankService
         if (fromAccount.equals(toAccount)) {
             throw new BankException("Nu puteți transfera bani către același cont!");
         }
-        
-        Account source = validateAndGetAccount(fromAccount, pin);
-        Account destination = accounts.get(toAccount);
-        
+        return amountBani;
+    }
+    
+    private Account findDestination(String toAccount, List<Account> pinned) throws BankException {
+        Account destination = toAccount != null ? pinAccount(toAccount, pinned) : null;
         if (destination == null) {
             throw new BankException("Contul destinație nu există: " + toAccount);
         }
+        return destination;
+    }
+    
+    /**
+     * Transfer între conturi deținute de partiții diferite, în doi pași
+     * Pasul 1 debitează sursa pe partiția ei (cu verificarea fondurilor, deci soldul nu devine
+     * negativ). Pasul 2 creditează destinația pe partiția ei. Dacă pasul 2 eșuează, suma este
+     * returnată în contul sursă printr-o înregistrare de compensare.
+     * Dacă nici creditarea, nici compensarea nu se încheie, debitarea rămâne în transfersInFlight
+     * până la repornire, ca segmentul de jurnal cu ea să nu fie șters înainte de recuperare.
+     * Versiunea așteptată se verifică doar la debitare: doar contul sursă aparține apelantului.
+     * @return rezultatul debitării (soldul și versiunea contului sursă), după ce ambii pași sunt durabili
+     */
+    private CompletableFuture<LedgerExecutor.Result> transferAcrossPartitions(Account source, Account destination, 
+            long amountBani, long expectedVersion, IdempotencyCache.Entry key) {
+        String fromAccount = source.getAccountNumber();
+        String toAccount = destination.getAccountNumber();
+        JournalRecord debit = JournalRecord.transferDebit(fromAccount, toAccount, amountBani);
+        JournalRecord credit = JournalRecord.transferCredit(debit);
         
-        // Blocăm ambele conturi într-o ordine consistentă pentru a evita deadlock
-        Object firstLock = fromAccount.compareTo(toAccount) < 0 ? source : destination;
-        Object secondLock = fromAccount.compareTo(toAccount) < 0 ? destination : source;
+        // Limita se înregistrează înainte ca debitarea să primească un LSN, astfel încât
+        // un checkpoint concurent să nu șteargă segmentul de jurnal care o conține
+        transfersInFlight.put(debit, journal.getLastLsn() + 1);
+        CompletableFuture<LedgerExecutor.Result> debited = executor.submit(source, null, () -> {
+            checkVersion(source, expectedVersion);
+            if (!source.hasFunds(amountBani)) {
+                throw insufficientFunds(source);
+            }
+            CompletableFuture<Long> durable = appendToJournal(debit, key, source, -amountBani);
+            return new LedgerExecutor.Result(applyTransferOut(source, destination, debit), source.getVersion(), 
+                durable);
+        });
         
-        synchronized (firstLock) {
-            synchronized (secondLock) {
-                if (source.getBalance() < amount) {
-                    throw new BankException("Fonduri insuficiente! Sold disponibil: " + 
-                        String.format("%.2f", source.getBalance()) + " RON");
-                }
-                
-                // Efectuăm transferul
-                source.setBalance(source.getBalance() - amount);
-                destination.setBalance(destination.getBalance() + amount);
-                
-                // Adăugăm tranzacțiile
-                source.addTransaction(new Transaction(TransactionType.TRANSFER_OUT, amount, 
-                    "Transfer către " + destination.getOwnerName(), toAccount));
-                destination.addTransaction(new Transaction(TransactionType.TRANSFER_IN, amount, 
-                    "Transfer de la " + source.getOwnerName(), fromAccount));
-                
+        // Creditarea este trimisă partiției destinației de firul care a terminat debitarea
+        CompletableFuture<LedgerExecutor.Result> credited = debited.thenCompose(result -> 
+            executor.submit(destination, null, () -> creditTransfer(credit, destination, source))
+                .handle((creditResult, error) -> error == null 
+                    ? CompletableFuture.completedFuture(creditResult) 
+                    : refundTransfer(debit, credit, source, destination, unwrap(error)))
+                .thenCompose(Function.identity()));
+        
+        return credited.thenCompose(this::whenDurable)
+            .thenCombine(debited.thenCompose(this::whenDurable), (creditResult, debitResult) -> {
                 logOperation("TRANSFER", fromAccount, 
-                    "Către: " + toAccount + ", Sumă: " + amount + " RON");
-                
-                // Salvăm datele pe disc
-                saveData();
+                    "Către: " + toAccount + ", Sumă: " + Money.format(amountBani) + " RON");
+                events.publish(fromAccount);
+                events.publish(toAccount);
+                return debitResult;
+            })
+            .whenComplete((result, error) -> {
+                // După o compensare durabilă limita este eliberată de refundTransfer
+                if (error == null || debit.getLsn() == 0) {
+                    transfersInFlight.remove(debit);
+                }
+            });
+    }
+    
+    /**
+     * Al doilea pas al unui transfer între partiții; rulează pe partiția destinației
+     */
+    private LedgerExecutor.Result creditTransfer(JournalRecord credit, Account destination, Account source) 
+            throws BankException {
+        CompletableFuture<Long> durable = appendToJournal(credit);
+        applyTransferIn(destination, source, credit);
+        return new LedgerExecutor.Result(destination.getBalanceBani(), destination.getVersion(), durable);
+    }
+    
+    /**
+     * Compensarea unui transfer între partiții a cărui creditare a eșuat
+     * Dacă nici compensarea nu reușește, debitarea rămâne în jurnal fără pereche și
+     * transferul este finalizat la următoarea pornire.
+     * @return future-ul finalizat întotdeauna cu eroarea transmisă apelantului
+     */
+    private CompletableFuture<LedgerExecutor.Result> refundTransfer(JournalRecord debit, JournalRecord credit, 
+            Account source, Account destination, Throwable creditError) {
+        if (credit.getLsn() != 0) {
+            // Creditarea a ajuns în jurnal, deci va fi aplicată la recuperare; nu mai compensăm
+            return failed(new BankException("Transferul a fost înregistrat, dar nu a putut fi aplicat. " + 
+                "Va fi finalizat la repornirea serverului.", creditError));
+        }
+        return executor.submit(source, null, () -> {
+            JournalRecord refund = JournalRecord.transferRefund(debit);
+            CompletableFuture<Long> durable = appendToJournal(refund);
+            return new LedgerExecutor.Result(applyTransferRefund(source, destination, refund), 
+                source.getVersion(), durable);
+        }).thenCompose(this::whenDurable).handle((refunded, error) -> {
+            if (error != null) {
+                System.err.println("[PERSISTENȚĂ] Compensarea transferului " + debit + " a eșuat: " + 
+                    unwrap(error).getMessage());
+                throw new CompletionException(new BankException(
+                    "Transferul nu a putut fi finalizat. Va fi reluat la repornirea serverului.", unwrap(error)));
+            }
+            transfersInFlight.remove(debit);
+            logOperation("TRANSFER ANULAT", source.getAccountNumber(), 
+                "Către: " + destination.getAccountNumber() + ", Sumă returnată: " + 
+                Money.format(debit.getAmountBani()) + " RON");
+            // Debitarea și returnarea apar amândouă în istoricul sursei
+            events.publish(source.getAccountNumber());
+            throw new CompletionException(new BankException(
+                "Transferul nu a putut fi finalizat. Suma a fost returnată în cont.", creditError));
+        });
+    }
+    
+    @Override
+    public BatchTransferResult transferBatch(String fromAccount, String pin, List<TransferLeg> legs, boolean atomic) 
+            throws RemoteException, BankException {
+        if (legs == null || legs.isEmpty()) {
+            throw new BankException("Lotul de transferuri este gol!");
+        }
+        if (legs.size() > MAX_BATCH_LEGS) {
+            throw new BankException("Un lot poate conține cel mult " + MAX_BATCH_LEGS + " transferuri!");
+        }
+        
+        List<Account> pinned = accountCacheLimit == ServerConfig.UNLIMITED_ACCOUNT_CACHE ? null : new ArrayList<>();
+        try {
+            return transferBatch(fromAccount, pin, legs, atomic, pinned);
+        } finally {
+            unpinAll(pinned);
+        }
+    }
+    
+    private BatchTransferResult transferBatch(String fromAccount, String pin, List<TransferLeg> legs, boolean atomic, 
+            List<Account> pinned) throws BankException {
+        // Autentificarea și validarea componentelor se fac o singură dată pentru tot lotul
+        Account source = validateAndGetAccount(fromAccount, pin, pinned);
+        int count = legs.size();
+        String[] errors = new String[count];
+        Account[] destinations = new Account[count];
+        JournalRecord[] debits = new JournalRecord[count];
+        long requestedBani = 0;
+        for (int i = 0; i < count; i++) {
+            TransferLeg leg = legs.get(i);
+            try {
+                long amountBani = checkTransferAmount(fromAccount, leg.getToAccount(), leg.getAmount());
+                destinations[i] = findDestination(leg.getToAccount(), pinned);
+                debits[i] = JournalRecord.transferDebit(fromAccount, leg.getToAccount(), amountBani);
+                requestedBani += amountBani;
+            } catch (BankException e) {
+                if (atomic) {
+                    throw new BankException("Transferul " + (i + 1) + " din lot: " + e.getMessage());
+                }
+                errors[i] = e.getMessage();
+            }
+        }
+        if (atomic && !source.hasFunds(requestedBani)) {
+            throw insufficientFunds(source);
+        }
+        
+        // Lotul folosește aceiași doi pași ca transferurile între partiții. Pasul 1 debitează
+        // sursa pentru toate componentele acceptate, cu o singură comandă, iar debitările
+        // intră în jurnal ca un grup: după o cădere, lotul apare în întregime sau deloc.
+        // Pasul 2 trimite toate creditările odată partițiilor destinațiilor și le așteaptă împreună;
+        // creditările lipsă sunt finalizate la recuperare.
+        JournalRecord marker = JournalRecord.batch(fromAccount, count);
+        transfersInFlight.put(marker, journal.getLastLsn() + 1);
+        boolean interrupted = false;
+        try {
+            boolean[] debited = new boolean[count];
+            long requested = requestedBani;
+            LedgerExecutor.Result result = executor.execute(source, null, () -> {
+                List<JournalRecord> accepted = new ArrayList<>();
+                if (atomic) {
+                    if (!source.hasFunds(requested)) {
+                        throw insufficientFunds(source);
+                    }
+                    for (int i = 0; i < count; i++) {
+                        accepted.add(debits[i]);
+                        debited[i] = true;
+                    }
+                } else {
+                    // Componentele sunt acceptate în ordine, cât timp soldul le acoperă
+                    long available = source.getBalanceBani();
+                    for (int i = 0; i < count; i++) {
+                        if (debits[i] == null) {
+                            continue;
+                        }
+                        if (debits[i].getAmountBani() <= available) {
+                            available -= debits[i].getAmountBani();
+                            accepted.add(debits[i]);
+                            debited[i] = true;
+                        } else {
+                            errors[i] = insufficientFunds(available).getMessage();
+                        }
+                    }
+                }
+                if (accepted.isEmpty()) {
+                    return new LedgerExecutor.Result(source.getBalanceBani(), source.getVersion(), 
+                        CompletableFuture.completedFuture(0L));
+                }
                 
-                return source.getBalance();
+                CompletableFuture<Long> durable = appendGroupToJournal(accepted);
+                long balance = 0;
+                for (int i = 0; i < count; i++) {
+                    if (debited[i]) {
+                        balance = applyTransferOut(source, destinations[i], debits[i]);
+                    }
+                }
+                return new LedgerExecutor.Result(balance, source.getVersion(), durable);
+            });
+            
+            long transferredBani = 0;
+            List<CompletableFuture<LedgerExecutor.Result>> credits = new ArrayList<>();
+            for (int i = 0; i < count; i++) {
+                if (!debited[i]) {
+                    continue;
+                }
+                Account destination = destinations[i];
+                JournalRecord credit = JournalRecord.transferCredit(debits[i]);
+                credits.add(executor.submit(destination, null, () -> creditTransfer(credit, destination, source)));
+                transferredBani += debits[i].getAmountBani();
+            }
+            
+            awaitDurable(result.getDurable());
+            BankException creditFailure = null;
+            for (CompletableFuture<LedgerExecutor.Result> credit : credits) {
+                try {
+                    awaitDurable(LedgerExecutor.awaitCompletion(credit).getDurable());
+                } catch (BankException e) {
+                    if (creditFailure == null) {
+                        creditFailure = e;
+                    }
+                }
+            }
+            if (creditFailure != null) {
+                // Debitările sunt deja în jurnal: creditările lipsă sunt finalizate la recuperare
+                interrupted = true;
+                System.err.println("[PERSISTENȚĂ] Lotul de transferuri din " + fromAccount + 
+                    " a fost întrerupt: " + creditFailure.getMessage());
+                throw new BankException("Lotul a fost înregistrat, dar nu a putut fi finalizat. " + 
+                    "Va fi finalizat la repornirea serverului.", creditFailure);
+            }
+            
+            BatchTransferResult batch = new BatchTransferResult(errors, transferredBani, summarize(source, result));
+            logOperation("TRANSFER LOT", fromAccount, "Transferuri: " + batch.getAppliedCount() + "/" + count + 
+                ", Total: " + Money.format(transferredBani) + " RON");
+            events.publish(fromAccount);
+            for (int i = 0; i < count; i++) {
+                if (debited[i]) {
+                    events.publish(destinations[i].getAccountNumber());
+                }
+            }
+            return batch;
+        } finally {
+            // Un lot întrerupt rămâne înregistrat până la repornire, ca jurnalul cu debitările lui
+            // să nu fie șters: creditările eșuează doar dacă jurnalul sau motorul nu mai acceptă
+            // înregistrări, deci nu sunt reîncercate înainte de recuperare
+            if (!interrupted) {
+                transfersInFlight.remove(marker);
             }
         }
     }
@@ -320,7 +1366,85 @@ public class BankServiceImpl extends UnicastRemoteObject implements BankService
     public List<Transaction> getTransactionHistory(String accountNumber, String pin) 
             throws RemoteException, BankException {
         Account account = validateAndGetAccount(accountNumber, pin);
-        return account.getTransactionHistory();
+        
+        long historyHead;
+        int archivedCount;
+        List<Transaction> recent;
+        synchronized (account) {
+            historyHead = account.getHistoryHead();
+            archivedCount = account.getArchivedCount();
+            recent = account.getTransactionHistory();
+        }
+        
+        // Paginile arhivate nu se mai modifică, deci pot fi citite fără lock
+        try {
+            List<Transaction> history = historyStore.readAll(historyHead, archivedCount);
+            history.addAll(recent);
+            return history;
+        } catch (IOException e) {
+            throw historyUnavailable(accountNumber, e);
+        }
+    }
+    
+    @Override
+    public TransactionPage getTransactionPage(String accountNumber, String pin, long cursor, int limit) 
+            throws RemoteException, BankException {
+        Account account = validateAndGetAccount(accountNumber, pin);
+        return readTransactionPage(account, cursor > 0 ? cursor - 1 : Long.MAX_VALUE, 0, limit);
+    }
+    
+    @Override
+    public TransactionPage getTransactionsSince(String accountNumber, String pin, long sinceSequence, int limit) 
+            throws RemoteException, BankException {
+        Account account = validateAndGetAccount(accountNumber, pin);
+        return readTransactionPage(account, Long.MAX_VALUE, Math.max(0, sinceSequence), limit);
+    }
+    
+    /**
+     * Citește tranzacțiile cu numărul de secvență în intervalul (afterSequence, toSequence],
+     * cea mai nouă prima; din arhiva de pe disc se citesc doar paginile necesare
+     */
+    private TransactionPage readTransactionPage(Account account, long toSequence, long afterSequence, int limit) 
+            throws BankException {
+        if (limit <= 0 || limit > MAX_PAGE_LIMIT) {
+            throw new BankException("Numărul de tranzacții pe pagină trebuie să fie între 1 și " + MAX_PAGE_LIMIT + "!");
+        }
+        
+        long historyHead;
+        int archivedCount;
+        long latest;
+        long newest;
+        List<Transaction> page = new ArrayList<>();
+        // Din coloanele jurnalului se creează obiecte Transaction doar pentru intrările paginii
+        synchronized (account) {
+            historyHead = account.getHistoryHead();
+            archivedCount = account.getArchivedCount();
+            TransactionLog recent = account.getTransactionLog();
+            latest = archivedCount + recent.size();
+            newest = Math.min(toSequence, latest);
+            for (long sequence = newest; sequence > archivedCount && sequence > afterSequence && page.size() < limit; sequence--) {
+                page.add(recent.get((int) (sequence - archivedCount - 1)));
+            }
+        }
+        
+        if (page.size() < limit) {
+            try {
+                historyStore.collectNewestFirst(historyHead, archivedCount, Math.min(newest, archivedCount),
+                    afterSequence, limit, page);
+            } catch (IOException e) {
+                throw historyUnavailable(account.getAccountNumber(), e);
+            }
+        }
+        
+        long oldest = newest - page.size() + 1;
+        long nextCursor = !page.isEmpty() && oldest - 1 > afterSequence ? oldest : 0;
+        return new TransactionPage(page, newest, latest, nextCursor);
+    }
+    
+    private BankException historyUnavailable(String accountNumber, IOException e) {
+        System.err.println("[PERSISTENȚĂ] Eroare la citirea istoricului contului " + accountNumber + ": " + 
+            e.getMessage());
+        return new BankException("Istoricul tranzacțiilor nu poate fi citit momentan!");
     }
     
     @Override
@@ -328,14 +1452,91 @@ public class BankServiceImpl extends UnicastRemoteObject implements BankService
         return validateAndGetAccount(accountNumber, pin);
     }
     
+    @Override
+    public AccountSummary getAccountSummary(String accountNumber, String pin) throws RemoteException, BankException {
+        return summarize(validateAndGetAccount(accountNumber, pin));
+    }
+    
+    @Override
+    public AccountSummary awaitChange(String accountNumber, String pin, long afterVersion, long timeoutMillis) 
+            throws RemoteException, BankException {
+        return LedgerExecutor.awaitCompletion(submitAwaitChange(accountNumber, pin, afterVersion, timeoutMillis));
+    }
+    
+    /**
+     * Așteptarea se înregistrează înainte de citirea versiunii: o modificare publicată între
+     * timp fie este deja vizibilă în versiune, fie trezește așteptarea
+     * @return future-ul finalizat cu rezumatul curent la modificare sau după timeoutMillis
+     */
+    private CompletableFuture<AccountSummary> submitAwaitChange(String accountNumber, String pin, long afterVersion, 
+            long timeoutMillis) throws BankException {
+        if (timeoutMillis < 0 || timeoutMillis > MAX_AWAIT_MILLIS) {
+            throw new BankException("Timpul de așteptare trebuie să fie între 0 și " + 
+                TimeUnit.MILLISECONDS.toSeconds(MAX_AWAIT_MILLIS) + " secunde!");
+        }
+        Account account = validateAndGetAccount(accountNumber, pin);
+        CompletableFuture<Boolean> changed = events.subscribe(account.getAccountNumber(), timeoutMillis);
+        if (account.getVersion() > afterVersion) {
+            changed.complete(true);
+        }
+        // Contul poate fi eliberat din memorie între timp, deci rezumatul se citește din nou
+        return changed.thenComposeAsync(woken -> submitSafely(() -> 
+            CompletableFuture.completedFuture(getAccountSummary(accountNumber, pin))), completions);
+    }
+    
+    /**
+     * Construiește rezumatul sub blocarea contului, astfel încât soldul și ultima secvență să fie consistente
+     */
+    private AccountSummary summarize(Account account) {
+        synchronized (account) {
+            return new AccountSummary(account.getAccountNumber(), account.getOwnerName(), account.getBalance(),
+                account.getCreatedAt(), account.getTransactionCount());
+        }
+    }
+    
+    /**
+     * Rezumatul contului după o comandă: soldul și versiunea vin din rezultatul ei
+     */
+    private AccountSummary summarize(Account account, LedgerExecutor.Result result) {
+        return new AccountSummary(account.getAccountNumber(), account.getOwnerName(), 
+            Money.toRon(result.getBalanceBani()), account.getCreatedAt(), result.getVersion());
+    }
+    
+    /**
+     * Respinge imediat o operațiune condiționată dacă contul s-a modificat de la citirea clientului
+     * Verificarea nu ia lock-ul contului: apelată înainte de execuție, un client cu date
+     * vechi nu așteaptă după operațiunile în curs. Apelată din comandă, verificarea este exactă.
+     */
+    private void checkVersion(Account account, long expectedVersion) throws VersionConflictException {
+        if (expectedVersion == AccountSummary.ANY_VERSION) {
+            return;
+        }
+        // Versiunea se citește înaintea soldului: un rezumat decalat cel mult repetă conflictul
+        long version = account.getVersion();
+        if (version != expectedVersion) {
+            throw new VersionConflictException(
+                "Contul a fost modificat între timp. Verificați soldul și încercați din nou!",
+                new AccountSummary(account.getAccountNumber(), account.getOwnerName(), account.getBalance(),
+                    account.getCreatedAt(), version));
+        }
+    }
+    
     @Override
     public boolean accountExists(String accountNumber) throws RemoteException {
-        return accounts.containsKey(accountNumber);
+        return accounts.contains(AccountIndex.key(accountNumber)) || 
+            (accountTable != null && accountTable.contains(accountNumber));
     }
     
     @Override
     public List<String> getAllAccountNumbers() throws RemoteException {
-        return new ArrayList<>(accounts.keySet());
+        Set<String> numbers = new LinkedHashSet<>();
+        for (Account account : accounts) {
+            numbers.add(account.getAccountNumber());
+        }
+        if (accountTable != null) {
+            accountTable.collectAccountNumbers(numbers);
+        }
+        return new ArrayList<>(numbers);
     }
     
     @Override
@@ -343,10 +1544,92 @@ public class BankServiceImpl extends UnicastRemoteObject implements BankService
         return true;
     }
     
+    /**
+     * Pornirea unei operațiuni asincrone; erorile de validare sunt transmise prin future
+     */
+    private interface Submission<T> {
+        CompletableFuture<T> submit() throws RemoteException, BankException;
+    }
+    
+    private static <T> CompletableFuture<T> submitSafely(Submission<T> submission) {
+        try {
+            return submission.submit();
+        } catch (RemoteException | BankException | RuntimeException e) {
+            return failed(e);
+        }
+    }
+    
+    @Override
+    public CompletableFuture<String> createAccountAsync(String ownerName, String pin, double initialBalance) {
+        return submitSafely(() -> submitCreateAccount(ownerName, pin, initialBalance));
+    }
+    
+    @Override
+    public CompletableFuture<AccountSummary> authenticateAsync(String accountNumber, String pin) {
+        return submitSafely(() -> CompletableFuture.completedFuture(authenticate(accountNumber, pin)));
+    }
+    
+    @Override
+    public CompletableFuture<AccountSummary> getAccountSummaryAsync(String accountNumber, String pin) {
+        return submitSafely(() -> CompletableFuture.completedFuture(getAccountSummary(accountNumber, pin)));
+    }
+    
+    @Override
+    public CompletableFuture<AccountSummary> depositAsync(String accountNumber, String pin, double amount, 
+            long expectedVersion, String idempotencyKey) {
+        return submitSafely(() -> submitDeposit(accountNumber, pin, amount, expectedVersion, idempotencyKey));
+    }
+    
+    @Override
+    public CompletableFuture<AccountSummary> withdrawAsync(String accountNumber, String pin, double amount, 
+            long expectedVersion, String idempotencyKey) {
+        return submitSafely(() -> submitWithdraw(accountNumber, pin, amount, expectedVersion, idempotencyKey));
+    }
+    
+    @Override
+    public CompletableFuture<AccountSummary> transferAsync(String fromAccount, String pin, String toAccount, 
+            double amount, long expectedVersion, String idempotencyKey) {
+        return submitSafely(() -> 
+            submitTransfer(fromAccount, pin, toAccount, amount, expectedVersion, idempotencyKey));
+    }
+    
+    @Override
+    public CompletableFuture<TransactionPage> getTransactionPageAsync(String accountNumber, String pin, long cursor, 
+            int limit) {
+        return submitSafely(() -> 
+            CompletableFuture.completedFuture(getTransactionPage(accountNumber, pin, cursor, limit)));
+    }
+    
+    @Override
+    public CompletableFuture<TransactionPage> getTransactionsSinceAsync(String accountNumber, String pin, 
+            long sinceSequence, int limit) {
+        return submitSafely(() -> 
+            CompletableFuture.completedFuture(getTransactionsSince(accountNumber, pin, sinceSequence, limit)));
+    }
+    
+    @Override
+    public CompletableFuture<AccountSummary> awaitChangeAsync(String accountNumber, String pin, long afterVersion, 
+            long timeoutMillis) {
+        return submitSafely(() -> submitAwaitChange(accountNumber, pin, afterVersion, timeoutMillis));
+    }
+    
+    @Override
+    public CompletableFuture<List<String>> getAllAccountNumbersAsync() {
+        return submitSafely(() -> CompletableFuture.completedFuture(getAllAccountNumbers()));
+    }
+    
     /**
      * Validează credențialele și returnează contul
      */
     private Account validateAndGetAccount(String accountNumber, String pin) throws BankException {
+        return validateAndGetAccount(accountNumber, pin, null);
+    }
+    
+    /**
+     * Validează credențialele și returnează contul, fixat în memorie dacă pinned nu este null
+     */
+    private Account validateAndGetAccount(String accountNumber, String pin, List<Account> pinned) 
+            throws BankException {
         if (accountNumber == null || accountNumber.isEmpty()) {
             throw new BankException("Numărul de cont este obligatoriu!");
         }
@@ -354,11 +1637,13 @@ public class BankServiceImpl extends UnicastRemoteObject implements BankService
             throw new BankException("PIN-ul este obligatoriu!");
         }
         
-        Account account = accounts.get(accountNumber);
+        Account account = pinAccount(accountNumber, pinned);
         if (account == null) {
             throw new BankException("Contul nu există: " + accountNumber);
         }
-        if (!account.validatePin(pin)) {
+        // Conturile încărcate din tabelul mapat au doar hash-ul PIN-ului
+        boolean validPin = account.getPin() != null ? account.validatePin(pin) : accountTable.checkPin(accountNumber, pin);
+        if (!validPin) {
             throw new BankException("PIN incorect!");
         }
         
@@ -369,15 +1654,24 @@ public class BankServiceImpl extends UnicastRemoteObject implements BankService
      * Logare operațiuni pentru monitorizare
      */
     private void logOperation(String operation, String accountNumber, String details) {
-        String timestamp = java.time.LocalDateTime.now()
-            .format(java.time.format.DateTimeFormatter.ofPattern("dd-MM-yyyy HH:mm:ss"));
-        System.out.println("[" + timestamp + "] " + operation + " | Cont: " + accountNumber + " | " + details);
+        System.out.println("[" + Formatting.now() + "] " + operation + " | Cont: " + accountNumber + " | " + details);
     }
     
     /**
      * Returnează numărul total de conturi
      */
     public int getTotalAccounts() {
-        return accounts.size();
+        if (accountTable == null) {
+            return accounts.size();
+        }
+        
+        // Conturile din tabel plus cele create după ultimul checkpoint
+        long total = accountTable.getAccountCount();
+        for (Account account : accounts) {
+            if (!accountTable.contains(account.getAccountNumber())) {
+                total++;
+            }
+        }
+        return (int) total;
     }
 }
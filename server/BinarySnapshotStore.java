@@ -0,0 +1,147 @@
+package server;
+
+import common.Account;
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.file.*;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.zip.CRC32;
+
+/**
+ * Snapshot în format binar compact (accounts.snap)
+ *
+ * Format:
+ *   antet:   [magic int][versiune short][nextAccountNumber long][lsn long][număr conturi int][crc int]
+ *   cont:    [lungime varint][conținut AccountCodec][crc int]
+ *
+ * Fiecare cont are propriul CRC, deci o corupere este detectată exact la contul afectat.
+ */
+public class BinarySnapshotStore implements SnapshotStore {
+    
+    private static final int MAGIC = 0x53424E4B; // "SBNK"
+    // Versiunea 2 adaugă referința la istoricul arhivat în HistoryStore
+    private static final short VERSION = 2;
+    private static final int HEADER_SIZE = 4 + 2 + 8 + 8 + 4;
+    
+    private final Path snapshotFile;
+    
+    public BinarySnapshotStore(Path snapshotFile) {
+        this.snapshotFile = snapshotFile;
+    }
+    
+    @Override
+    public Snapshot load() throws IOException {
+        if (!Files.exists(snapshotFile)) {
+            return null;
+        }
+        
+        try (DataInputStream in = new DataInputStream(
+                new BufferedInputStream(Files.newInputStream(snapshotFile), 64 * 1024))) {
+            byte[] header = new byte[HEADER_SIZE];
+            in.readFully(header);
+            checkCrc(header, header.length, in.readInt(), "antetul snapshot-ului");
+            
+            ByteBuffer headerBuffer = ByteBuffer.wrap(header);
+            if (headerBuffer.getInt() != MAGIC) {
+                throw new IOException("Fișierul nu este un snapshot binar: " + snapshotFile);
+            }
+            short version = headerBuffer.getShort();
+            if (version != 1 && version != VERSION) {
+                throw new IOException("Versiune de snapshot necunoscută: " + version);
+            }
+            long nextAccountNumber = headerBuffer.getLong();
+            long lsn = headerBuffer.getLong();
+            int count = headerBuffer.getInt();
+            
+            Map<String, Account> accounts = new HashMap<>(Math.max(16, count * 4 / 3 + 1));
+            byte[] payload = new byte[256];
+            for (int i = 0; i < count; i++) {
+                int length = readVarInt(in);
+                if (payload.length < length) {
+                    payload = new byte[Math.max(length, payload.length * 2)];
+                }
+                in.readFully(payload, 0, length);
+                checkCrc(payload, length, in.readInt(), "contul #" + i);
+                
+                Account account = AccountCodec.readAccount(ByteBuffer.wrap(payload, 0, length), version >= 2);
+                accounts.put(account.getAccountNumber(), account);
+            }
+            
+            return new Snapshot(accounts, nextAccountNumber, lsn);
+        } catch (EOFException e) {
+            throw new IOException("Snapshot binar trunchiat: " + snapshotFile, e);
+        }
+    }
+    
+    @Override
+    public long write(Map<String, Account> accounts, long nextAccountNumber, long lsn) throws IOException {
+        Path tmp = snapshotFile.resolveSibling(snapshotFile.getFileName() + ".tmp");
+        CRC32 crc = new CRC32();
+        
+        try (FileOutputStream fos = new FileOutputStream(tmp.toFile());
+             DataOutputStream out = new DataOutputStream(new BufferedOutputStream(fos, 64 * 1024))) {
+            ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+            header.putInt(MAGIC).putShort(VERSION).putLong(nextAccountNumber).putLong(lsn).putInt(accounts.size());
+            out.write(header.array());
+            crc.update(header.array(), 0, HEADER_SIZE);
+            out.writeInt((int) crc.getValue());
+            
+            AccountCodec codec = new AccountCodec();
+            byte[] length = new byte[5];
+            for (Account account : accounts.values()) {
+                codec.reset();
+                codec.writeAccount(account);
+                
+                out.write(length, 0, encodeVarInt(codec.size(), length));
+                out.write(codec.array(), 0, codec.size());
+                crc.reset();
+                crc.update(codec.array(), 0, codec.size());
+                out.writeInt((int) crc.getValue());
+            }
+            
+            out.flush();
+            fos.getFD().sync();
+        }
+        
+        long bytes = Files.size(tmp);
+        Files.move(tmp, snapshotFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        return bytes;
+    }
+    
+    @Override
+    public void markMigrated() throws IOException {
+        Files.move(snapshotFile, snapshotFile.resolveSibling(snapshotFile.getFileName() + ".migrated"),
+            StandardCopyOption.REPLACE_EXISTING);
+    }
+    
+    private static void checkCrc(byte[] data, int length, int expected, String what) throws IOException {
+        CRC32 crc = new CRC32();
+        crc.update(data, 0, length);
+        if ((int) crc.getValue() != expected) {
+            throw new IOException("CRC invalid pentru " + what);
+        }
+    }
+    
+    private static int encodeVarInt(int value, byte[] out) {
+        int i = 0;
+        while ((value & ~0x7F) != 0) {
+            out[i++] = (byte) ((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        out[i++] = (byte) value;
+        return i;
+    }
+    
+    private static int readVarInt(DataInputStream in) throws IOException {
+        int value = 0;
+        for (int shift = 0; shift < 32; shift += 7) {
+            int b = in.readUnsignedByte();
+            value |= (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new IOException("Lungime de înregistrare invalidă");
+    }
+}
@@ -0,0 +1,203 @@
+package server;
+
+import common.Account;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+import java.util.function.LongUnaryOperator;
+import java.util.function.Supplier;
+import javax.management.ObjectName;
+
+/**
+ * Checkpoint-uri periodice și compactarea jurnalului
+ *
+ * Un fir de fundal scrie un snapshot consistent al conturilor fără a opri operațiunile:
+ * fiecare cont este copiat separat, sub propriul lock, împreună cu LSN-ul ultimei
+ * înregistrări aplicate. La repornire înregistrările deja incluse într-un cont sunt
+ * sărite, astfel că un snapshot "fuzzy" este suficient. După scrierea snapshot-ului
+ * segmentele de jurnal acoperite sunt șterse, iar repornirea citește doar snapshot-ul
+ * și coada scurtă de jurnal de după el.
+ */
+public class CheckpointManager implements CheckpointManagerMBean {
+    
+    private static final String MBEAN_NAME = "server:type=Checkpoint";
+    
+    private final LedgerJournal journal;
+    private final SnapshotStore snapshotStore;
+    private final HistoryStore historyStore;
+    private final Supplier<Map<String, Account>> accountsSnapshot;
+    private final LongSupplier nextAccountNumber;
+    private final LongSupplier oldestInFlightLsn;
+    private final LongUnaryOperator carryForward;
+    // Rulează după fiecare verificare periodică (de exemplu eliberarea conturilor deja scrise)
+    private final Runnable afterTick;
+    
+    private ScheduledExecutorService scheduler;
+    private volatile long lastCheckpointNanos = System.nanoTime();
+    
+    // Metrici
+    private volatile long checkpointCount;
+    private volatile long lastDurationMillis;
+    private volatile long lastSnapshotBytes;
+    private volatile long totalSnapshotBytes;
+    private volatile long lastCheckpointLsn = -1;
+    // Ultimul LSN din jurnal acoperit de checkpoint (inclusiv înregistrările copiate de acesta)
+    private volatile long lastJournalLsn = -1;
+    private volatile long deletedSegments;
+    
+    public CheckpointManager(LedgerJournal journal, SnapshotStore snapshotStore, HistoryStore historyStore,
+                             Supplier<Map<String, Account>> accountsSnapshot, LongSupplier nextAccountNumber,
+                             LongSupplier oldestInFlightLsn, LongUnaryOperator carryForward, Runnable afterTick) {
+        this.journal = journal;
+        this.snapshotStore = snapshotStore;
+        this.historyStore = historyStore;
+        this.accountsSnapshot = accountsSnapshot;
+        this.nextAccountNumber = nextAccountNumber;
+        this.oldestInFlightLsn = oldestInFlightLsn;
+        this.carryForward = carryForward;
+        this.afterTick = afterTick;
+    }
+    
+    /**
+     * Pornește firul de fundal
+     * Un checkpoint are loc la fiecare intervalSeconds sau mai devreme, dacă coada
+     * jurnalului depășește journalBytesThreshold
+     */
+    public void start(long intervalSeconds, long journalBytesThreshold) {
+        long intervalNanos = TimeUnit.SECONDS.toNanos(intervalSeconds);
+        
+        scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "ledger-checkpoint");
+            thread.setDaemon(true);
+            return thread;
+        });
+        scheduler.scheduleWithFixedDelay(() -> {
+            boolean due = System.nanoTime() - lastCheckpointNanos >= intervalNanos;
+            if (due || journal.getActiveSegmentBytes() >= journalBytesThreshold) {
+                checkpoint();
+            }
+            afterTick.run();
+        }, 1, 1, TimeUnit.SECONDS);
+        
+        try {
+            ManagementFactory.getPlatformMBeanServer().registerMBean(this, new ObjectName(MBEAN_NAME));
+        } catch (Exception e) {
+            System.err.println("[CHECKPOINT] Metricile JMX nu au putut fi înregistrate: " + e.getMessage());
+        }
+    }
+    
+    /**
+     * Oprește firul de fundal (un checkpoint în curs este lăsat să se termine)
+     */
+    public void stop() {
+        if (scheduler != null) {
+            scheduler.shutdown();
+            try {
+                scheduler.awaitTermination(30, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            // Altfel serverul JMX ar păstra referința către conturi după oprire
+            try {
+                ObjectName name = new ObjectName(MBEAN_NAME);
+                if (ManagementFactory.getPlatformMBeanServer().isRegistered(name)) {
+                    ManagementFactory.getPlatformMBeanServer().unregisterMBean(name);
+                }
+            } catch (Exception e) {
+                System.err.println("[CHECKPOINT] Metricile JMX nu au putut fi eliminate: " + e.getMessage());
+            }
+        }
+    }
+    
+    /**
+     * Execută un checkpoint complet
+     * @return true dacă snapshot-ul a fost scris
+     */
+    public synchronized boolean checkpoint() {
+        lastCheckpointNanos = System.nanoTime();
+        if (journal.getLastLsn() == lastJournalLsn) {
+            return false;
+        }
+        
+        long start = System.nanoTime();
+        try {
+            // Tot ce are LSN mai mic decât coveredFrom este deja aplicat în conturi
+            long coveredFrom = journal.rollSegment();
+            // Un transfer între partiții neterminat trebuie să poată fi reluat după o cădere,
+            // deci jurnalul se păstrează începând cu debitarea lui
+            long replayFrom = Math.min(coveredFrom, oldestInFlightLsn.getAsLong());
+            Map<String, Account> accounts = accountsSnapshot.get();
+            long counter = nextAccountNumber.getAsLong();
+            
+            // Snapshot-ul nu are voie să conțină operațiuni care nu sunt încă durabile
+            long maxLsn = coveredFrom - 1;
+            for (Account account : accounts.values()) {
+                maxLsn = Math.max(maxLsn, account.getLastLsn());
+            }
+            journal.awaitDurable(maxLsn);
+            // Paginile de istoric referite de snapshot trebuie să fie deja pe disc
+            historyStore.force();
+            
+            long bytes = snapshotStore.write(accounts, counter, replayFrom - 1);
+            // Înregistrările care trebuie să supraviețuiască ștergerii (cheile de idempotență
+            // încă valabile) sunt copiate în segmentul activ înainte ca segmentele vechi să dispară
+            long carried = carryForward.applyAsLong(replayFrom);
+            journal.awaitDurable(carried);
+            int deleted = journal.deleteSegmentsBefore(replayFrom);
+            
+            lastDurationMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+            lastSnapshotBytes = bytes;
+            totalSnapshotBytes += bytes;
+            lastCheckpointLsn = replayFrom - 1;
+            lastJournalLsn = Math.max(lastCheckpointLsn, carried);
+            deletedSegments += deleted;
+            checkpointCount++;
+            
+            System.out.println("[CHECKPOINT] " + accounts.size() + " conturi, " + bytes + " octeți, " + 
+                lastDurationMillis + " ms, LSN " + lastCheckpointLsn + ", segmente șterse: " + deleted);
+            return true;
+        } catch (IOException e) {
+            System.err.println("[CHECKPOINT] Eroare: " + e.getMessage());
+            return false;
+        }
+    }
+    
+    @Override
+    public long getCheckpointCount() {
+        return checkpointCount;
+    }
+    
+    @Override
+    public long getLastDurationMillis() {
+        return lastDurationMillis;
+    }
+    
+    @Override
+    public long getLastSnapshotBytes() {
+        return lastSnapshotBytes;
+    }
+    
+    @Override
+    public long getTotalSnapshotBytes() {
+        return totalSnapshotBytes;
+    }
+    
+    @Override
+    public long getLastCheckpointLsn() {
+        return lastCheckpointLsn;
+    }
+    
+    @Override
+    public long getDeletedSegments() {
+        return deletedSegments;
+    }
+    
+    @Override
+    public long getJournalTailBytes() {
+        return journal.getActiveSegmentBytes();
+    }
+}
@@ -0,0 +1,21 @@
+package server;
+
+/**
+ * Metrici JMX pentru checkpoint-uri (vizibile în jconsole sub server:type=Checkpoint)
+ */
+public interface CheckpointManagerMBean {
+    
+    long getCheckpointCount();
+    
+    long getLastDurationMillis();
+    
+    long getLastSnapshotBytes();
+    
+    long getTotalSnapshotBytes();
+    
+    long getLastCheckpointLsn();
+    
+    long getDeletedSegments();
+    
+    long getJournalTailBytes();
+}
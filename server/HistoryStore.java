@@ -0,0 +1,321 @@
+package server;
+
+import common.Account;
+import common.Transaction;
+import common.TransactionLog;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.zip.CRC32;
+
+/**
+ * Istoricul tranzacțiilor arhivat pe disc, în pagini
+ *
+ * Fiecare cont păstrează în memorie doar tranzacțiile recente. Când acestea depășesc
+ * două pagini, cea mai veche pagină este scrisă la finalul segmentului activ
+ * (data/history/history-NNNNNN.seg) și legată de pagina anterioară a contului, astfel
+ * încât istoricul unui cont formează un lanț de la cea mai nouă pagină spre cea mai veche.
+ * Paginile citite sunt păstrate într-un cache LRU de dimensiune limitată.
+ *
+ * Format pagină: [pagina anterioară long][număr tranzacții int][lungime int][conținut][crc int]
+ * Adresa unei pagini: (număr segment << 40) | poziția în segment; adresa 0 înseamnă "nicio pagină".
+ */
+public class HistoryStore {
+    
+    public static final long NO_PAGE = 0;
+    // Numărul de tranzacții dintr-o pagină arhivată
+    public static final int PAGE_SIZE = 64;
+    
+    private static final int PAGE_HEADER_SIZE = 8 + 4 + 4;
+    private static final long SEGMENT_BYTES = 64L * 1024 * 1024;
+    private static final int OFFSET_BITS = 40;
+    
+    /**
+     * O pagină citită de pe disc (nu se mai modifică după încărcare)
+     * Tranzacțiile stau pe coloane; obiectele Transaction se creează doar pentru cele cerute.
+     */
+    public static class Page {
+        private final long previous;
+        private final TransactionLog transactions;
+        
+        Page(long previous, TransactionLog transactions) {
+            this.previous = previous;
+            this.transactions = transactions;
+        }
+        
+        public long getPrevious() {
+            return previous;
+        }
+        
+        public TransactionLog getTransactions() {
+            return transactions;
+        }
+    }
+    
+    private final Path directory;
+    private final Map<Integer, FileChannel> segments = new ConcurrentHashMap<>();
+    private final AccountCodec codec = new AccountCodec();
+    private final Map<Long, Page> cache;
+    
+    // Segmentul în care se adaugă pagini noi
+    private int activeSegment;
+    private long activeSize;
+    private boolean dirty;
+    
+    // Metrici pentru cache
+    private long cacheHits;
+    private long cacheMisses;
+    
+    /**
+     * @param cachePages numărul maxim de pagini păstrate în cache
+     */
+    public HistoryStore(Path directory, int cachePages) throws IOException {
+        this.directory = directory;
+        this.cache = new LinkedHashMap<Long, Page>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Long, Page> eldest) {
+                return size() > cachePages;
+            }
+        };
+        
+        Files.createDirectories(directory);
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory, "history-*.seg")) {
+            for (Path file : stream) {
+                String name = file.getFileName().toString();
+                int index = Integer.parseInt(name.substring("history-".length(), name.length() - ".seg".length()));
+                activeSegment = Math.max(activeSegment, index);
+            }
+        }
+        
+        // O pagină scrisă pe jumătate la o cădere rămâne la final fără a fi referită,
+        // deoarece snapshot-urile sunt scrise doar după force()
+        if (activeSegment == 0) {
+            activeSegment = 1;
+        }
+        activeSize = channel(activeSegment).size();
+    }
+    
+    /**
+     * Arhivează tranzacțiile recente ale contului cât timp depășesc două pagini
+     * Apelantul trebuie să dețină lock-ul contului.
+     */
+    public void archive(Account account) throws IOException {
+        while (account.getTransactionCount() - account.getArchivedCount() >= 2 * PAGE_SIZE) {
+            long head = append(account.getHistoryHead(), account.getTransactionLog(), 0, PAGE_SIZE);
+            account.archiveTransactions(PAGE_SIZE, head);
+        }
+    }
+    
+    /**
+     * Adaugă o pagină nouă, legată de pagina anterioară, cu count tranzacții din jurnal începând cu from
+     * @return adresa paginii
+     */
+    public synchronized long append(long previous, TransactionLog transactions, int from, int count)
+            throws IOException {
+        codec.reset();
+        for (int i = from; i < from + count; i++) {
+            codec.writeTransaction(transactions, i);
+        }
+        
+        ByteBuffer page = ByteBuffer.allocate(PAGE_HEADER_SIZE + codec.size() + 4);
+        page.putLong(previous).putInt(count).putInt(codec.size());
+        page.put(codec.array(), 0, codec.size());
+        CRC32 crc = new CRC32();
+        crc.update(page.array(), 0, page.position());
+        page.putInt((int) crc.getValue());
+        page.flip();
+        
+        if (activeSize > 0 && activeSize + page.limit() > SEGMENT_BYTES) {
+            channel(activeSegment).force(false);
+            activeSegment++;
+            activeSize = 0;
+        }
+        
+        FileChannel channel = channel(activeSegment);
+        long position = activeSize;
+        while (page.hasRemaining()) {
+            channel.write(page, position + page.position());
+        }
+        activeSize += page.limit();
+        dirty = true;
+        return ((long) activeSegment << OFFSET_BITS) | position;
+    }
+    
+    /**
+     * Citește o pagină, din cache sau de pe disc
+     */
+    public Page readPage(long address) throws IOException {
+        synchronized (cache) {
+            Page page = cache.get(address);
+            if (page != null) {
+                cacheHits++;
+                return page;
+            }
+            cacheMisses++;
+        }
+        
+        Page page = load(address);
+        synchronized (cache) {
+            cache.put(address, page);
+        }
+        return page;
+    }
+    
+    /**
+     * Citește o pagină direct de pe disc, fără a o păstra în cache (pentru pagini citite o singură dată)
+     */
+    public Page readPageUncached(long address) throws IOException {
+        return load(address);
+    }
+    
+    /**
+     * Citește tot istoricul arhivat care începe cu pagina head, de la cea mai veche tranzacție
+     */
+    public List<Transaction> readAll(long head, int expectedCount) throws IOException {
+        List<Page> pages = new ArrayList<>();
+        int count = 0;
+        for (long address = head; address != NO_PAGE; ) {
+            Page page = readPage(address);
+            pages.add(page);
+            count += page.getTransactions().size();
+            address = page.getPrevious();
+        }
+        if (count != expectedCount) {
+            throw new IOException("Istoric incomplet: " + count + " din " + expectedCount + " tranzacții");
+        }
+        
+        List<Transaction> history = new ArrayList<>(count);
+        for (int i = pages.size() - 1; i >= 0; i--) {
+            history.addAll(pages.get(i).getTransactions().toList());
+        }
+        return history;
+    }
+    
+    /**
+     * Adaugă tranzacțiile arhivate cu număr de secvență în intervalul (afterSequence, toSequence],
+     * de la cea mai nouă la cea mai veche, până când lista ajunge la limit elemente
+     * Sunt citite doar paginile necesare, pornind de la cea mai nouă.
+     */
+    public void collectNewestFirst(long head, int archivedCount, long toSequence, long afterSequence, int limit,
+                                   List<Transaction> out) throws IOException {
+        long pageLast = archivedCount;
+        for (long address = head; address != NO_PAGE && out.size() < limit && pageLast > afterSequence; ) {
+            Page page = readPage(address);
+            TransactionLog transactions = page.getTransactions();
+            long pageFirst = pageLast - transactions.size() + 1;
+            
+            for (long sequence = Math.min(toSequence, pageLast); sequence >= pageFirst; sequence--) {
+                if (sequence <= afterSequence || out.size() >= limit) {
+                    break;
+                }
+                out.add(transactions.get((int) (sequence - pageFirst)));
+            }
+            
+            pageLast = pageFirst - 1;
+            address = page.getPrevious();
+        }
+    }
+    
+    /**
+     * Sincronizează pe disc paginile scrise (apelat înainte de scrierea unui snapshot)
+     */
+    public void force() throws IOException {
+        FileChannel channel;
+        synchronized (this) {
+            if (!dirty) {
+                return;
+            }
+            dirty = false;
+            channel = channel(activeSegment);
+        }
+        channel.force(false);
+    }
+    
+    public long getCacheHits() {
+        synchronized (cache) {
+            return cacheHits;
+        }
+    }
+    
+    public long getCacheMisses() {
+        synchronized (cache) {
+            return cacheMisses;
+        }
+    }
+    
+    public void close() throws IOException {
+        force();
+        for (FileChannel channel : segments.values()) {
+            channel.close();
+        }
+    }
+    
+    private Page load(long address) throws IOException {
+        int segment = (int) (address >>> OFFSET_BITS);
+        if (segment < 1 || segment > activeSegment()) {
+            throw new IOException("Adresă de pagină invalidă: " + Long.toHexString(address));
+        }
+        FileChannel channel = channel(segment);
+        long position = address & ((1L << OFFSET_BITS) - 1);
+        
+        ByteBuffer header = ByteBuffer.allocate(PAGE_HEADER_SIZE);
+        readFully(channel, header, position);
+        long previous = header.getLong(0);
+        int count = header.getInt(8);
+        int length = header.getInt(12);
+        if (count < 0 || length < 0 || position + PAGE_HEADER_SIZE + length + 4 > channel.size()) {
+            throw new IOException("Pagină de istoric invalidă la adresa " + Long.toHexString(address));
+        }
+        
+        ByteBuffer page = ByteBuffer.allocate(PAGE_HEADER_SIZE + length + 4);
+        readFully(channel, page, position);
+        CRC32 crc = new CRC32();
+        crc.update(page.array(), 0, PAGE_HEADER_SIZE + length);
+        if ((int) crc.getValue() != page.getInt(PAGE_HEADER_SIZE + length)) {
+            throw new IOException("CRC invalid pentru pagina de istoric " + Long.toHexString(address));
+        }
+        
+        ByteBuffer payload = ByteBuffer.wrap(page.array(), PAGE_HEADER_SIZE, length);
+        TransactionLog transactions = new TransactionLog();
+        for (int i = 0; i < count; i++) {
+            AccountCodec.readTransaction(payload, transactions);
+        }
+        return new Page(previous, transactions);
+    }
+    
+    private synchronized int activeSegment() {
+        return activeSegment;
+    }
+    
+    private FileChannel channel(int segment) throws IOException {
+        FileChannel channel = segments.get(segment);
+        if (channel == null) {
+            synchronized (segments) {
+                channel = segments.get(segment);
+                if (channel == null) {
+                    channel = FileChannel.open(directory.resolve(String.format("history-%06d.seg", segment)),
+                        StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+                    segments.put(segment, channel);
+                }
+            }
+        }
+        return channel;
+    }
+    
+    private static void readFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, position + buffer.position()) < 0) {
+                throw new IOException("Segment de istoric trunchiat la poziția " + position);
+            }
+        }
+    }
+}
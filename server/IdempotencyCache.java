@@ -0,0 +1,237 @@
+package server;
+
+import common.BankException;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Cache-ul cheilor de idempotență pentru depuneri, retrageri și transferuri
+ *
+ * Un client care nu știe dacă o operațiune a fost aplicată (de exemplu după un timeout RMI)
+ * o poate repeta cu aceeași cheie: operațiunea se execută o singură dată, iar reîncercarea
+ * primește rezultatul original. Cheile sunt valabile pe cont, expiră după ttlMillis și sunt
+ * cel mult maxEntries; la depășire sunt eliminate cele mai vechi dintre cele terminate.
+ * Cheia unei operațiuni încă în curs nu este eliminată niciodată, deoarece o reîncercare ar
+ * executa-o a doua oară; cât timp multe operațiuni sunt în curs, limita poate fi depășită.
+ * La fel, cheia unei operațiuni eșuate după ce a ajuns în jurnal (finalizată la repornire)
+ * rămâne rezervată până la expirare.
+ *
+ * Cheile sunt păstrate în jurnal odată cu operațiunea, deci supraviețuiesc repornirii.
+ */
+public class IdempotencyCache {
+    
+    public static final int MAX_KEY_LENGTH = 64;
+    
+    /**
+     * O cheie rezervată de o operațiune; finalizată cu rezultatul ei sau eliminată dacă eșuează
+     */
+    static final class Entry {
+        private final String accountNumber;
+        private final String key;
+        private final String fingerprint;
+        private final long createdMillis;
+        private final CompletableFuture<JournalRecord.Idempotency> outcome = new CompletableFuture<>();
+        // Înregistrarea din jurnal care conține cheia (operațiunea sau o copie făcută la checkpoint)
+        private volatile JournalRecord.Idempotency recorded;
+        private volatile long lsn;
+        // Operațiunea a eșuat după ce a ajuns în jurnal; cheia nu poate fi eliminată pentru spațiu
+        private volatile boolean unfinished;
+        
+        private Entry(String accountNumber, String key, String fingerprint, long createdMillis) {
+            this.accountNumber = accountNumber;
+            this.key = key;
+            this.fingerprint = fingerprint;
+            this.createdMillis = createdMillis;
+        }
+        
+        String getAccountNumber() {
+            return accountNumber;
+        }
+        
+        String getKey() {
+            return key;
+        }
+        
+        String getFingerprint() {
+            return fingerprint;
+        }
+        
+        long getCreatedMillis() {
+            return createdMillis;
+        }
+        
+        JournalRecord.Idempotency getRecorded() {
+            return recorded;
+        }
+        
+        /**
+         * Rezultatul operațiunii originale, finalizat după ce aceasta este durabilă
+         */
+        CompletableFuture<JournalRecord.Idempotency> getOutcome() {
+            return outcome;
+        }
+        
+        /**
+         * Marchează înregistrarea din jurnal care conține cheia (apelată după append)
+         */
+        void recorded(JournalRecord record) {
+            this.recorded = record.getIdempotency();
+            this.lsn = record.getLsn();
+        }
+    }
+    
+    private final int maxEntries;
+    private final long ttlMillis;
+    // Ordinea inserării este și ordinea expirării
+    private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<>();
+    
+    public IdempotencyCache(int maxEntries, long ttlMillis) {
+        this.maxEntries = Math.max(1, maxEntries);
+        this.ttlMillis = ttlMillis;
+    }
+    
+    /**
+     * Descrierea unei cereri, comparată la reîncercare cu cea originală
+     */
+    public static String fingerprint(String operation, String toAccount, long amountBani) {
+        return toAccount == null ? operation + " " + amountBani : operation + " " + toAccount + " " + amountBani;
+    }
+    
+    /**
+     * Verifică formatul unei chei primite de la client
+     */
+    public static void validateKey(String key) throws BankException {
+        if (key.isEmpty() || key.length() > MAX_KEY_LENGTH) {
+            throw new BankException("Cheia de idempotență trebuie să aibă între 1 și " + MAX_KEY_LENGTH +
+                " caractere!");
+        }
+    }
+    
+    /**
+     * Intrare nouă pentru o cheie primită de la client (încă nerezervată)
+     */
+    public Entry newEntry(String accountNumber, String key, String fingerprint) {
+        return new Entry(accountNumber, key, fingerprint, System.currentTimeMillis());
+    }
+    
+    /**
+     * Rezervă cheia pentru o operațiune nouă
+     * @return null dacă intrarea a fost rezervată și apelantul trebuie să execute operațiunea,
+     *         altfel intrarea existentă (operațiunea originală, terminată sau încă în curs)
+     */
+    public synchronized Entry reserve(Entry entry) {
+        expire(entry.createdMillis);
+        String id = id(entry.accountNumber, entry.key);
+        Entry existing = entries.get(id);
+        if (existing != null) {
+            return existing;
+        }
+        entries.put(id, entry);
+        evictOverflow();
+        return null;
+    }
+    
+    /**
+     * Operațiunea s-a încheiat și este durabilă: reîncercările primesc rezultatul ei
+     */
+    public void complete(Entry entry) {
+        entry.outcome.complete(entry.recorded);
+    }
+    
+    /**
+     * Operațiunea a eșuat fără să fie aplicată: cheia este eliberată pentru o nouă încercare,
+     * iar apelurile care așteptau primesc aceeași eroare
+     */
+    public void fail(Entry entry, Throwable error) {
+        synchronized (this) {
+            entries.remove(id(entry.accountNumber, entry.key), entry);
+        }
+        entry.outcome.completeExceptionally(error);
+    }
+    
+    /**
+     * Operațiunea a eșuat după ce înregistrarea ei a ajuns în jurnal (de exemplu un transfer
+     * între partiții a cărui creditare și compensare au eșuat): recuperarea o poate finaliza,
+     * deci cheia rămâne rezervată, iar apelurile care așteptau și reîncercările primesc eroarea
+     */
+    public void failUnfinished(Entry entry, Throwable error) {
+        entry.unfinished = true;
+        entry.outcome.completeExceptionally(error);
+    }
+    
+    /**
+     * Refacerea unei chei din jurnal la pornire (operațiune sau copie IDEMPOTENCY_KEY)
+     */
+    public synchronized void restore(JournalRecord record) {
+        JournalRecord.Idempotency idempotency = record.getIdempotency();
+        if (System.currentTimeMillis() - record.getTimestamp() >= ttlMillis) {
+            return;
+        }
+        Entry entry = new Entry(record.getAccountNumber(), idempotency.getKey(), idempotency.getFingerprint(),
+            record.getTimestamp());
+        entry.recorded(record);
+        entry.outcome.complete(idempotency);
+        String id = id(entry.accountNumber, entry.key);
+        entries.remove(id);
+        entries.put(id, entry);
+        evictOverflow();
+    }
+    
+    /**
+     * Cheia unei operațiuni anulate la recuperare (transfer returnat) nu mai este valabilă
+     */
+    public synchronized void forget(JournalRecord record) {
+        JournalRecord.Idempotency idempotency = record.getIdempotency();
+        if (idempotency != null) {
+            entries.remove(id(record.getAccountNumber(), idempotency.getKey()));
+        }
+    }
+    
+    /**
+     * Cheile valabile a căror înregistrare are LSN mai mic decât lsn (va fi ștearsă la checkpoint)
+     */
+    synchronized List<Entry> recordedBefore(long lsn) {
+        expire(System.currentTimeMillis());
+        List<Entry> result = new ArrayList<>();
+        for (Entry entry : entries.values()) {
+            if (entry.recorded != null && entry.lsn < lsn) {
+                result.add(entry);
+            }
+        }
+        return result;
+    }
+    
+    public synchronized int size() {
+        return entries.size();
+    }
+    
+    private void expire(long now) {
+        Iterator<Entry> iterator = entries.values().iterator();
+        while (iterator.hasNext()) {
+            Entry entry = iterator.next();
+            if (now - entry.createdMillis < ttlMillis) {
+                break;
+            }
+            if (entry.outcome.isDone()) {
+                iterator.remove();
+            }
+        }
+    }
+    
+    private void evictOverflow() {
+        Iterator<Entry> iterator = entries.values().iterator();
+        while (entries.size() > maxEntries && iterator.hasNext()) {
+            Entry entry = iterator.next();
+            if (entry.outcome.isDone() && !entry.unfinished) {
+                iterator.remove();
+            }
+        }
+    }
+    
+    private static String id(String accountNumber, String key) {
+        return accountNumber + '\u0000' + key;
+    }
+}
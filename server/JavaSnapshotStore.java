@@ -0,0 +1,90 @@
+package server;
+
+import common.Account;
+import java.io.*;
+import java.nio.file.*;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Snapshot prin serializare Java standard (formatul original)
+ * Snapshot-ul este format din accounts.dat (conturile) și counter.dat
+ * (următorul număr de cont și LSN-ul până la care jurnalul este inclus).
+ * Scrierea se face în fișiere temporare urmate de o redenumire atomică.
+ */
+public class JavaSnapshotStore implements SnapshotStore {
+    
+    private final Path accountsFile;
+    private final Path counterFile;
+    
+    public JavaSnapshotStore(Path accountsFile, Path counterFile) {
+        this.accountsFile = accountsFile;
+        this.counterFile = counterFile;
+    }
+    
+    @Override
+    @SuppressWarnings("unchecked")
+    public Snapshot load() throws IOException {
+        if (!Files.exists(accountsFile) || !Files.exists(counterFile)) {
+            return null;
+        }
+        
+        Map<String, Account> accounts;
+        try (ObjectInputStream ois = new ObjectInputStream(
+                new BufferedInputStream(Files.newInputStream(accountsFile)))) {
+            accounts = (Map<String, Account>) ois.readObject();
+        } catch (ClassNotFoundException e) {
+            throw new IOException("Format snapshot necunoscut", e);
+        }
+        
+        long nextAccountNumber;
+        long lsn = 0;
+        try (ObjectInputStream ois = new ObjectInputStream(Files.newInputStream(counterFile))) {
+            nextAccountNumber = ois.readLong();
+            // Fișierele vechi nu conțin LSN-ul
+            if (ois.available() >= 8) {
+                lsn = ois.readLong();
+            }
+        }
+        
+        return new Snapshot(accounts, nextAccountNumber, lsn);
+    }
+    
+    /**
+     * Conturile sunt redenumite înaintea counter-ului: dacă serverul se oprește între
+     * cele două redenumiri, LSN-ul vechi face ca jurnalul să fie reaplicat de mai devreme.
+     */
+    @Override
+    public long write(Map<String, Account> accounts, long nextAccountNumber, long lsn) throws IOException {
+        Path accountsTmp = accountsFile.resolveSibling(accountsFile.getFileName() + ".tmp");
+        Path counterTmp = counterFile.resolveSibling(counterFile.getFileName() + ".tmp");
+        
+        try (FileOutputStream fos = new FileOutputStream(accountsTmp.toFile());
+             ObjectOutputStream oos = new ObjectOutputStream(new BufferedOutputStream(fos))) {
+            oos.writeObject(new HashMap<>(accounts));
+            oos.flush();
+            fos.getFD().sync();
+        }
+        
+        try (FileOutputStream fos = new FileOutputStream(counterTmp.toFile());
+             ObjectOutputStream oos = new ObjectOutputStream(fos)) {
+            oos.writeLong(nextAccountNumber);
+            oos.writeLong(lsn);
+            oos.flush();
+            fos.getFD().sync();
+        }
+        
+        long bytes = Files.size(accountsTmp) + Files.size(counterTmp);
+        Files.move(accountsTmp, accountsFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        Files.move(counterTmp, counterFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        return bytes;
+    }
+    
+    @Override
+    public void markMigrated() throws IOException {
+        Files.move(accountsFile, accountsFile.resolveSibling(accountsFile.getFileName() + ".migrated"),
+            StandardCopyOption.REPLACE_EXISTING);
+        Files.move(counterFile, counterFile.resolveSibling(counterFile.getFileName() + ".migrated"),
+            StandardCopyOption.REPLACE_EXISTING);
+    }
+}
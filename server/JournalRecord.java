@@ -0,0 +1,324 @@
+package server;
+
+import common.Money;
+import java.io.*;
+
+/**
+ * O înregistrare din jurnalul de operațiuni (write-ahead log)
+ * Fiecare mutație a registrului bancar produce exact o înregistrare mică
+ * Suma este păstrată în bani; pe disc rămâne scrisă ca double în RON (conversie exactă).
+ * O operațiune cu cheie de idempotență are cheia și rezultatul ei atașate înregistrării,
+ * marcate pe disc cu bitul FLAG_IDEMPOTENCY din octetul de tip.
+ */
+public class JournalRecord {
+    
+    private static final int FLAG_IDEMPOTENCY = 0x80;
+    
+    /**
+     * Tipurile de înregistrări din jurnal
+     */
+    public enum Type {
+        CREATE_ACCOUNT,
+        DEPOSIT,
+        WITHDRAW,
+        TRANSFER,
+        // Transfer între partiții diferite, în doi pași: debitarea sursei, apoi creditarea
+        // destinației sau, dacă aceasta eșuează, returnarea sumei în contul sursă
+        TRANSFER_DEBIT,
+        TRANSFER_CREDIT,
+        TRANSFER_REFUND,
+        // Antetul unui grup de înregistrări scrise împreună (lot de transferuri); conține
+        // numărul lor și nu modifică niciun cont
+        BATCH,
+        // O cheie de idempotență încă valabilă, rescrisă la checkpoint când înregistrarea
+        // operațiunii ei este ștearsă odată cu segmentul vechi; nu modifică niciun cont
+        IDEMPOTENCY_KEY
+    }
+    
+    /**
+     * Cheia de idempotență a unei operațiuni și rezultatul returnat clientului
+     * (soldul și versiunea contului după operațiune), pentru a-l putea repeta la o reîncercare
+     */
+    public static final class Idempotency {
+        private final String key;
+        private final String fingerprint;
+        private final long resultBani;
+        private final long resultVersion;
+        
+        public Idempotency(String key, String fingerprint, long resultBani, long resultVersion) {
+            this.key = key;
+            this.fingerprint = fingerprint;
+            this.resultBani = resultBani;
+            this.resultVersion = resultVersion;
+        }
+        
+        public String getKey() {
+            return key;
+        }
+        
+        /**
+         * Descrierea cererii (operațiune, destinație, sumă); o cheie refolosită pentru
+         * altă cerere este respinsă
+         */
+        public String getFingerprint() {
+            return fingerprint;
+        }
+        
+        public long getResultBani() {
+            return resultBani;
+        }
+        
+        public long getResultVersion() {
+            return resultVersion;
+        }
+    }
+    
+    private long lsn;
+    private final Type type;
+    private final long timestamp;
+    private final String accountNumber;
+    private final String relatedAccount;
+    private final String ownerName;
+    private final String pin;
+    private final long amountBani;
+    // Pentru TRANSFER_CREDIT și TRANSFER_REFUND: LSN-ul debitării la care se referă
+    private final long debitLsn;
+    // Pentru BATCH: numărul de înregistrări din grup
+    private final int batchSize;
+    // Setată înainte de scrierea în jurnal, doar pentru operațiunile cu cheie de idempotență
+    private Idempotency idempotency;
+    
+    private JournalRecord(long lsn, Type type, long timestamp, String accountNumber, String relatedAccount,
+                          String ownerName, String pin, long amountBani) {
+        this(lsn, type, timestamp, accountNumber, relatedAccount, ownerName, pin, amountBani, 0, 0);
+    }
+    
+    private JournalRecord(long lsn, Type type, long timestamp, String accountNumber, String relatedAccount,
+                          String ownerName, String pin, long amountBani, long debitLsn, int batchSize) {
+        this.lsn = lsn;
+        this.type = type;
+        this.timestamp = timestamp;
+        this.accountNumber = accountNumber;
+        this.relatedAccount = relatedAccount;
+        this.ownerName = ownerName;
+        this.pin = pin;
+        this.amountBani = amountBani;
+        this.debitLsn = debitLsn;
+        this.batchSize = batchSize;
+    }
+    
+    public static JournalRecord createAccount(String accountNumber, String ownerName, String pin, long initialBalanceBani) {
+        return new JournalRecord(0, Type.CREATE_ACCOUNT, System.currentTimeMillis(), accountNumber, null,
+            ownerName, pin, initialBalanceBani);
+    }
+    
+    public static JournalRecord deposit(String accountNumber, long amountBani) {
+        return new JournalRecord(0, Type.DEPOSIT, System.currentTimeMillis(), accountNumber, null, null, null, amountBani);
+    }
+    
+    public static JournalRecord withdraw(String accountNumber, long amountBani) {
+        return new JournalRecord(0, Type.WITHDRAW, System.currentTimeMillis(), accountNumber, null, null, null, amountBani);
+    }
+    
+    public static JournalRecord transfer(String fromAccount, String toAccount, long amountBani) {
+        return new JournalRecord(0, Type.TRANSFER, System.currentTimeMillis(), fromAccount, toAccount, null, null,
+            amountBani);
+    }
+    
+    /**
+     * Primul pas al unui transfer între partiții: scade suma din contul sursă
+     */
+    public static JournalRecord transferDebit(String fromAccount, String toAccount, long amountBani) {
+        return new JournalRecord(0, Type.TRANSFER_DEBIT, System.currentTimeMillis(), fromAccount, toAccount, null, null,
+            amountBani);
+    }
+    
+    /**
+     * Al doilea pas: adaugă suma debitată în contul destinație
+     */
+    public static JournalRecord transferCredit(JournalRecord debit) {
+        return new JournalRecord(0, Type.TRANSFER_CREDIT, System.currentTimeMillis(), debit.getRelatedAccount(),
+            debit.getAccountNumber(), null, null, debit.getAmountBani(), debit.getLsn(), 0);
+    }
+    
+    /**
+     * Compensarea: suma debitată revine în contul sursă, fiindcă creditarea nu a reușit
+     */
+    public static JournalRecord transferRefund(JournalRecord debit) {
+        return new JournalRecord(0, Type.TRANSFER_REFUND, System.currentTimeMillis(), debit.getAccountNumber(),
+            debit.getRelatedAccount(), null, null, debit.getAmountBani(), debit.getLsn(), 0);
+    }
+    
+    /**
+     * Antetul unui grup: următoarele batchSize înregistrări sunt aplicate doar împreună
+     */
+    static JournalRecord batch(String accountNumber, int batchSize) {
+        return new JournalRecord(0, Type.BATCH, System.currentTimeMillis(), accountNumber, null, null, null, 0, 0,
+            batchSize);
+    }
+    
+    /**
+     * Copia unei chei de idempotență, cu momentul operațiunii originale (de la care curge expirarea)
+     */
+    public static JournalRecord idempotencyKey(String accountNumber, long timestamp, Idempotency idempotency) {
+        JournalRecord record = new JournalRecord(0, Type.IDEMPOTENCY_KEY, timestamp, accountNumber, null, null, null, 0);
+        record.idempotency = idempotency;
+        return record;
+    }
+    
+    public long getLsn() {
+        return lsn;
+    }
+    
+    void setLsn(long lsn) {
+        this.lsn = lsn;
+    }
+    
+    public Type getType() {
+        return type;
+    }
+    
+    public long getTimestamp() {
+        return timestamp;
+    }
+    
+    public String getAccountNumber() {
+        return accountNumber;
+    }
+    
+    public String getRelatedAccount() {
+        return relatedAccount;
+    }
+    
+    public String getOwnerName() {
+        return ownerName;
+    }
+    
+    public String getPin() {
+        return pin;
+    }
+    
+    public long getDebitLsn() {
+        return debitLsn;
+    }
+    
+    public int getBatchSize() {
+        return batchSize;
+    }
+    
+    public Idempotency getIdempotency() {
+        return idempotency;
+    }
+    
+    /**
+     * Atașează cheia de idempotență; trebuie apelată înainte ca înregistrarea să fie pusă în jurnal
+     */
+    void setIdempotency(Idempotency idempotency) {
+        this.idempotency = idempotency;
+    }
+    
+    public long getAmountBani() {
+        return amountBani;
+    }
+    
+    /**
+     * Suma în RON (pentru tranzacțiile afișate clienților)
+     */
+    public double getAmount() {
+        return Money.toRon(amountBani);
+    }
+    
+    /**
+     * Scrie conținutul înregistrării (fără antet de lungime și CRC)
+     */
+    void writeTo(DataOutputStream out) throws IOException {
+        out.writeLong(lsn);
+        out.writeByte(type.ordinal() | (idempotency != null ? FLAG_IDEMPOTENCY : 0));
+        out.writeLong(timestamp);
+        out.writeUTF(accountNumber);
+        switch (type) {
+            case CREATE_ACCOUNT:
+                out.writeUTF(ownerName);
+                out.writeUTF(pin);
+                break;
+            case TRANSFER:
+            case TRANSFER_DEBIT:
+                out.writeUTF(relatedAccount);
+                break;
+            case TRANSFER_CREDIT:
+            case TRANSFER_REFUND:
+                out.writeUTF(relatedAccount);
+                out.writeLong(debitLsn);
+                break;
+            case BATCH:
+                out.writeInt(batchSize);
+                break;
+            default:
+                break;
+        }
+        out.writeDouble(Money.toRon(amountBani));
+        if (idempotency != null) {
+            out.writeUTF(idempotency.getKey());
+            out.writeUTF(idempotency.getFingerprint());
+            out.writeLong(idempotency.getResultBani());
+            out.writeLong(idempotency.getResultVersion());
+        }
+    }
+    
+    /**
+     * Citește conținutul unei înregistrări scrise cu writeTo
+     */
+    static JournalRecord readFrom(DataInputStream in) throws IOException {
+        long lsn = in.readLong();
+        int ordinal = in.readUnsignedByte();
+        boolean keyed = (ordinal & FLAG_IDEMPOTENCY) != 0;
+        ordinal &= ~FLAG_IDEMPOTENCY;
+        if (ordinal >= Type.values().length) {
+            throw new IOException("Tip de înregistrare necunoscut: " + ordinal);
+        }
+        Type type = Type.values()[ordinal];
+        long timestamp = in.readLong();
+        String accountNumber = in.readUTF();
+        String relatedAccount = null;
+        String ownerName = null;
+        String pin = null;
+        long debitLsn = 0;
+        int batchSize = 0;
+        switch (type) {
+            case CREATE_ACCOUNT:
+                ownerName = in.readUTF();
+                pin = in.readUTF();
+                break;
+            case TRANSFER:
+            case TRANSFER_DEBIT:
+                relatedAccount = in.readUTF();
+                break;
+            case TRANSFER_CREDIT:
+            case TRANSFER_REFUND:
+                relatedAccount = in.readUTF();
+                debitLsn = in.readLong();
+                break;
+            case BATCH:
+                batchSize = in.readInt();
+                if (batchSize <= 0) {
+                    throw new IOException("Grup de înregistrări invalid: " + batchSize);
+                }
+                break;
+            default:
+                break;
+        }
+        long amountBani = Money.toBani(in.readDouble());
+        JournalRecord record = new JournalRecord(lsn, type, timestamp, accountNumber, relatedAccount, ownerName, pin,
+            amountBani, debitLsn, batchSize);
+        if (keyed) {
+            record.idempotency = new Idempotency(in.readUTF(), in.readUTF(), in.readLong(), in.readLong());
+        }
+        return record;
+    }
+    
+    @Override
+    public String toString() {
+        return "#" + lsn + " " + type + " " + accountNumber + (relatedAccount != null ? " -> " + relatedAccount : "")
+            + " " + Money.format(amountBani);
+    }
+}
@@ -0,0 +1,106 @@
+package server;
+
+import common.Account;
+import common.BankException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+
+/**
+ * Motorul care execută comenzile ce modifică registrul (creare cont, depunere, retragere, transfer)
+ * Fiecare implementare garantează că o comandă are acces exclusiv la conturile implicate;
+ * diferă doar modul în care obține această excludere (lock-uri sau un singur fir de execuție).
+ *
+ * O comandă verifică fondurile, scrie înregistrarea în jurnal și o aplică în memorie.
+ * Așteptarea fsync-ului se face de apelant, după ce comanda s-a încheiat.
+ */
+public interface LedgerExecutor {
+    
+    /**
+     * Comanda propriu-zisă, rulată cu acces exclusiv la conturi
+     */
+    interface Command {
+        Result run() throws BankException;
+    }
+    
+    /**
+     * Rezultatul unei comenzi: soldul nou și versiunea nouă a contului principal,
+     * plus durabilitatea înregistrării
+     */
+    final class Result {
+        private final long balanceBani;
+        private final long version;
+        private final CompletableFuture<Long> durable;
+        
+        public Result(long balanceBani, long version, CompletableFuture<Long> durable) {
+            this.balanceBani = balanceBani;
+            this.version = version;
+            this.durable = durable;
+        }
+        
+        public long getBalanceBani() {
+            return balanceBani;
+        }
+        
+        public long getVersion() {
+            return version;
+        }
+        
+        public CompletableFuture<Long> getDurable() {
+            return durable;
+        }
+    }
+    
+    /**
+     * Execută o comandă asupra unuia sau a două conturi
+     * @param first contul principal
+     * @param second al doilea cont (destinația unui transfer) sau null
+     */
+    Result execute(Account first, Account second, Command command) throws BankException;
+    
+    /**
+     * Trimite o comandă fără a aștepta rezultatul ei
+     * Implicit comanda rulează imediat, pe firul apelantului; motoarele cu fire proprii
+     * returnează un future finalizat de firul care aplică comanda.
+     */
+    default CompletableFuture<Result> submit(Account first, Account second, Command command) {
+        CompletableFuture<Result> completion = new CompletableFuture<>();
+        try {
+            completion.complete(execute(first, second, command));
+        } catch (BankException | RuntimeException e) {
+            completion.completeExceptionally(e);
+        }
+        return completion;
+    }
+    
+    /**
+     * Verifică dacă o comandă asupra celor două conturi poate fi executată atomic
+     * Când nu poate (conturile au proprietari diferiți), un transfer se face în doi pași.
+     */
+    default boolean isAtomic(Account first, Account second) {
+        return true;
+    }
+    
+    /**
+     * Oprește motorul după ce termină comenzile deja primite
+     */
+    void stop();
+    
+    /**
+     * Așteaptă rezultatul unei comenzi (sau operațiuni) executate pe alt fir și transmite
+     * excepțiile ei apelantului
+     */
+    static <T> T awaitCompletion(Future<T> completion) throws BankException {
+        try {
+            return completion.get();
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof BankException) {
+                throw (BankException) e.getCause();
+            }
+            throw new BankException("Eroare la executarea operațiunii: " + e.getCause().getMessage(), e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new BankException("Operațiunea a fost întreruptă!", e);
+        }
+    }
+}
@@ -0,0 +1,619 @@
+package server;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.*;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+
+/**
+ * Jurnal append-only pentru operațiunile bancare (write-ahead log)
+ * Fiecare mutație scrie o singură înregistrare mică, astfel încât costul I/O
+ * al unei operațiuni nu depinde de numărul de conturi sau de tranzacții.
+ *
+ * Scrierile folosesc group commit: operațiunile concurente își pun înregistrările
+ * în coadă, iar un singur fir (flusher) le scrie și le sincronizează pe disc ca un lot.
+ * Fiecare apelant primește un CompletableFuture finalizat când lotul său este durabil.
+ *
+ * Jurnalul este împărțit în segmente (journal-[primul LSN].log). La un checkpoint
+ * se deschide un segment nou, iar segmentele acoperite de snapshot sunt șterse.
+ *
+ * Înregistrările care trebuie să devină durabile împreună (un lot de transferuri) sunt
+ * precedate de un antet BATCH și scrise mereu în același lot; la recuperare un grup
+ * incomplet este ignorat în întregime.
+ *
+ * Format pe disc: [lungime int][conținut][crc32 int] pentru fiecare înregistrare
+ */
+public class LedgerJournal implements Closeable {
+    
+    private static final String SEGMENT_PREFIX = "journal-";
+    private static final String SEGMENT_SUFFIX = ".log";
+    
+    private final Path directory;
+    private final int maxBatch;
+    private final long maxWaitNanos;
+    
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition notEmpty = lock.newCondition();
+    private final Condition durableAdvanced = lock.newCondition();
+    private final ArrayDeque<PendingRecord> queue = new ArrayDeque<>();
+    // Segmentele existente, după primul LSN pe care îl pot conține
+    private final TreeMap<Long, Path> segments = new TreeMap<>();
+    
+    private FileChannel channel;
+    private long activeSegmentBytes;
+    private CompletableFuture<Long> rollRequest;
+    private Thread flusher;
+    private volatile boolean running;
+    private IOException failure;
+    private long lastLsn;
+    private long durableLsn;
+    
+    public LedgerJournal(Path directory, int maxBatch, long maxWaitMicros) {
+        this.directory = directory;
+        this.maxBatch = Math.max(1, maxBatch);
+        this.maxWaitNanos = TimeUnit.MICROSECONDS.toNanos(Math.max(0, maxWaitMicros));
+    }
+    
+    /**
+     * Deschide jurnalul și reaplică înregistrările cu LSN mai mare decât afterLsn
+     * Segmentele acoperite integral de afterLsn nu mai sunt citite.
+     * O coadă incompletă (scriere întreruptă) a ultimului segment este trunchiată.
+     * După recuperare pornește firul care scrie loturile pe disc.
+     * @return numărul de înregistrări reaplicate
+     */
+    public int recover(long afterLsn, Consumer<JournalRecord> handler) throws IOException {
+        lock.lock();
+        try {
+            Files.createDirectories(directory);
+            listSegments();
+            
+            lastLsn = afterLsn;
+            int replayed = 0;
+            long validLength = 0;
+            
+            List<Map.Entry<Long, Path>> entries = new ArrayList<>(segments.entrySet());
+            List<JournalRecord> group = new ArrayList<>();
+            for (int i = 0; i < entries.size(); i++) {
+                boolean last = i == entries.size() - 1;
+                if (!last && entries.get(i + 1).getKey() <= afterLsn + 1) {
+                    continue;
+                }
+                
+                Path segment = entries.get(i).getValue();
+                validLength = 0;
+                // Înregistrările grupului curent care mai trebuie citite și începutul antetului său
+                int groupRemaining = 0;
+                long groupStart = 0;
+                group.clear();
+                try (DataInputStream in = new DataInputStream(
+                        new BufferedInputStream(Files.newInputStream(segment)))) {
+                    while (true) {
+                        DecodedRecord decoded = readRecord(in);
+                        if (decoded == null) {
+                            break;
+                        }
+                        if (decoded.record.getType() == JournalRecord.Type.BATCH) {
+                            groupStart = validLength;
+                            groupRemaining = decoded.record.getBatchSize();
+                        } else if (groupRemaining > 0) {
+                            groupRemaining--;
+                        }
+                        validLength += 8 + decoded.encodedLength;
+                        group.add(decoded.record);
+                        if (groupRemaining > 0) {
+                            continue;
+                        }
+                        
+                        // O înregistrare simplă sau un grup complet
+                        for (JournalRecord record : group) {
+                            if (record.getType() != JournalRecord.Type.BATCH && record.getLsn() > afterLsn) {
+                                handler.accept(record);
+                                replayed++;
+                            }
+                            lastLsn = Math.max(lastLsn, record.getLsn());
+                        }
+                        group.clear();
+                    }
+                }
+                if (groupRemaining > 0) {
+                    // Grupul nu a fost scris complet, deci nu este aplicat deloc
+                    validLength = groupStart;
+                }
+                
+                if (!last && validLength < Files.size(segment)) {
+                    throw new IOException("Segment de jurnal corupt: " + segment.getFileName());
+                }
+            }
+            durableLsn = lastLsn;
+            
+            if (segments.isEmpty()) {
+                openSegment(lastLsn + 1);
+            } else {
+                channel = FileChannel.open(segments.lastEntry().getValue(),
+                    StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+                if (channel.size() > validLength) {
+                    System.err.println("[JURNAL] Coadă incompletă trunchiată la " + validLength + " octeți");
+                    channel.truncate(validLength);
+                }
+                channel.position(validLength);
+                activeSegmentBytes = validLength;
+            }
+            
+            running = true;
+            flusher = new Thread(this::flushLoop, "ledger-journal-flusher");
+            flusher.setDaemon(true);
+            flusher.start();
+            return replayed;
+        } finally {
+            lock.unlock();
+        }
+    }
+    
+    /**
+     * Pune o înregistrare în coada de scriere și îi atribuie următorul LSN
+     * Ordinea LSN-urilor este ordinea apelurilor, deci și ordinea din fișier.
+     * @return un future finalizat cu LSN-ul după ce înregistrarea este durabilă pe disc
+     */
+    public CompletableFuture<Long> append(JournalRecord record) {
+        CompletableFuture<Long> durable = new CompletableFuture<>();
+        lock.lock();
+        try {
+            if (!acceptsRecords(durable)) {
+                return durable;
+            }
+            record.setLsn(++lastLsn);
+            queue.addLast(new PendingRecord(record, durable, false));
+            notEmpty.signal();
+        } finally {
+            lock.unlock();
+        }
+        return durable;
+    }
+    
+    /**
+     * Pune în coadă un grup de înregistrări care devin durabile împreună
+     * Grupul primește LSN-uri consecutive după un antet BATCH și este scris pe disc într-un
+     * singur lot, chiar dacă depășește dimensiunea maximă a lotului.
+     * @return un future finalizat cu LSN-ul ultimei înregistrări după ce tot grupul este durabil
+     */
+    public CompletableFuture<Long> appendGroup(List<JournalRecord> records) {
+        if (records.isEmpty()) {
+            throw new IllegalArgumentException("Grupul de înregistrări este gol");
+        }
+        CompletableFuture<Long> durable = new CompletableFuture<>();
+        lock.lock();
+        try {
+            if (!acceptsRecords(durable)) {
+                return durable;
+            }
+            JournalRecord header = JournalRecord.batch(records.get(0).getAccountNumber(), records.size());
+            header.setLsn(++lastLsn);
+            queue.addLast(new PendingRecord(header, new CompletableFuture<>(), true));
+            for (int i = 0; i < records.size(); i++) {
+                boolean last = i == records.size() - 1;
+                records.get(i).setLsn(++lastLsn);
+                queue.addLast(new PendingRecord(records.get(i), last ? durable : new CompletableFuture<>(), !last));
+            }
+            notEmpty.signal();
+        } finally {
+            lock.unlock();
+        }
+        return durable;
+    }
+    
+    /**
+     * Verifică, sub lock, că jurnalul este deschis și nu a avut o eroare de scriere
+     * Altfel finalizează durable cu eroarea corespunzătoare.
+     */
+    private boolean acceptsRecords(CompletableFuture<Long> durable) {
+        if (!running) {
+            durable.completeExceptionally(new IOException("Jurnalul nu este deschis"));
+            return false;
+        }
+        if (failure != null) {
+            durable.completeExceptionally(failure);
+            return false;
+        }
+        return true;
+    }
+    
+    public long getLastLsn() {
+        lock.lock();
+        try {
+            return lastLsn;
+        } finally {
+            lock.unlock();
+        }
+    }
+    
+    /**
+     * Numărul de octeți scriși în segmentul activ (coada jurnalului de după ultimul checkpoint)
+     */
+    public long getActiveSegmentBytes() {
+        lock.lock();
+        try {
+            return activeSegmentBytes;
+        } finally {
+            lock.unlock();
+        }
+    }
+    
+    /**
+     * Închide segmentul activ și începe unul nou
+     * Toate înregistrările cu LSN mai mic decât valoarea returnată se află în
+     * segmente închise și sunt deja durabile.
+     * @return primul LSN care va fi scris în segmentul nou
+     */
+    public long rollSegment() throws IOException {
+        CompletableFuture<Long> request;
+        lock.lock();
+        try {
+            if (!running) {
+                throw new IOException("Jurnalul nu este deschis");
+            }
+            if (rollRequest == null) {
+                rollRequest = new CompletableFuture<>();
+                notEmpty.signal();
+            }
+            request = rollRequest;
+        } finally {
+            lock.unlock();
+        }
+        
+        try {
+            return request.get();
+        } catch (ExecutionException e) {
+            throw e.getCause() instanceof IOException ? (IOException) e.getCause() : new IOException(e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Întrerupt în timpul schimbării segmentului", e);
+        }
+    }
+    
+    /**
+     * Șterge segmentele închise care conțin doar înregistrări cu LSN mai mic decât lsn
+     * @return numărul de segmente șterse
+     */
+    public int deleteSegmentsBefore(long lsn) {
+        List<Path> obsolete = new ArrayList<>();
+        lock.lock();
+        try {
+            Long first = segments.firstKey();
+            while (first != null) {
+                Long next = segments.higherKey(first);
+                if (next == null || next > lsn) {
+                    break;
+                }
+                obsolete.add(segments.remove(first));
+                first = next;
+            }
+        } finally {
+            lock.unlock();
+        }
+        
+        for (Path segment : obsolete) {
+            try {
+                Files.deleteIfExists(segment);
+            } catch (IOException e) {
+                System.err.println("[JURNAL] Segmentul nu a putut fi șters: " + segment.getFileName());
+            }
+        }
+        return obsolete.size();
+    }
+    
+    /**
+     * Așteaptă până când toate înregistrările cu LSN cel mult lsn sunt durabile
+     */
+    public void awaitDurable(long lsn) throws IOException {
+        lock.lock();
+        try {
+            while (durableLsn < lsn) {
+                if (failure != null) {
+                    throw failure;
+                }
+                if (!running) {
+                    throw new IOException("Jurnalul nu este deschis");
+                }
+                durableAdvanced.await();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Întrerupt în așteptarea jurnalului", e);
+        } finally {
+            lock.unlock();
+        }
+    }
+    
+    /**
+     * Oprește flusher-ul după ce scrie tot ce se află în coadă și închide fișierul
+     */
+    @Override
+    public void close() throws IOException {
+        Thread thread;
+        lock.lock();
+        try {
+            running = false;
+            notEmpty.signalAll();
+            durableAdvanced.signalAll();
+            thread = flusher;
+        } finally {
+            lock.unlock();
+        }
+        
+        if (thread != null) {
+            try {
+                thread.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        
+        lock.lock();
+        try {
+            if (channel != null) {
+                channel.close();
+                channel = null;
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+    
+    /**
+     * Bucla flusher-ului: adună un lot, îl scrie, face fsync și notifică apelanții
+     */
+    private void flushLoop() {
+        List<PendingRecord> batch = new ArrayList<>(maxBatch);
+        while (true) {
+            batch.clear();
+            CompletableFuture<Long> roll;
+            try {
+                if (!collectBatch(batch)) {
+                    return;
+                }
+            } catch (InterruptedException e) {
+                return;
+            }
+            
+            lock.lock();
+            try {
+                roll = rollRequest;
+                rollRequest = null;
+            } finally {
+                lock.unlock();
+            }
+            
+            try {
+                if (roll != null) {
+                    long firstLsn = rollTo();
+                    roll.complete(firstLsn);
+                }
+                if (!batch.isEmpty()) {
+                    writeBatch(batch);
+                    for (PendingRecord pending : batch) {
+                        pending.durable.complete(pending.record.getLsn());
+                    }
+                }
+            } catch (IOException e) {
+                System.err.println("[JURNAL] Eroare la scrierea lotului: " + e.getMessage());
+                if (roll != null) {
+                    roll.completeExceptionally(e);
+                }
+                failAll(batch, e);
+            }
+        }
+    }
+    
+    /**
+     * Așteaptă prima înregistrare, apoi cel mult maxWait pentru a umple lotul
+     * @return false dacă jurnalul a fost închis și coada este goală
+     */
+    private boolean collectBatch(List<PendingRecord> batch) throws InterruptedException {
+        lock.lock();
+        try {
+            while (queue.isEmpty() && rollRequest == null) {
+                if (!running) {
+                    return false;
+                }
+                notEmpty.await();
+            }
+            
+            long deadline = System.nanoTime() + maxWaitNanos;
+            while (!queue.isEmpty() && queue.size() < maxBatch && running) {
+                long remaining = deadline - System.nanoTime();
+                if (remaining <= 0) {
+                    break;
+                }
+                notEmpty.awaitNanos(remaining);
+            }
+            
+            // Un grup nu este împărțit între loturi (și deci nici între segmente)
+            while (!queue.isEmpty() && (batch.size() < maxBatch || batch.get(batch.size() - 1).groupContinues)) {
+                batch.add(queue.pollFirst());
+            }
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+    
+    private void writeBatch(List<PendingRecord> batch) throws IOException {
+        ByteBuffer[] buffers = new ByteBuffer[batch.size()];
+        long total = 0;
+        for (int i = 0; i < buffers.length; i++) {
+            buffers[i] = encode(batch.get(i).record);
+            total += buffers[i].remaining();
+        }
+        
+        long written = 0;
+        while (written < total) {
+            written += channel.write(buffers);
+        }
+        channel.force(false);
+        
+        lock.lock();
+        try {
+            activeSegmentBytes += total;
+            durableLsn = batch.get(batch.size() - 1).record.getLsn();
+            durableAdvanced.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+    
+    /**
+     * Închide segmentul curent (deja sincronizat) și deschide unul nou
+     * Apelată doar din firul flusher, între loturi, deci tot ce s-a scris este durabil.
+     * @return primul LSN al segmentului nou
+     */
+    private long rollTo() throws IOException {
+        lock.lock();
+        try {
+            long firstLsn = durableLsn + 1;
+            if (segments.lastKey() != firstLsn) {
+                channel.close();
+                openSegment(firstLsn);
+            }
+            return firstLsn;
+        } finally {
+            lock.unlock();
+        }
+    }
+    
+    private void openSegment(long firstLsn) throws IOException {
+        Path segment = directory.resolve(String.format("%s%020d%s", SEGMENT_PREFIX, firstLsn, SEGMENT_SUFFIX));
+        channel = FileChannel.open(segment, StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+        channel.truncate(0);
+        segments.put(firstLsn, segment);
+        activeSegmentBytes = 0;
+    }
+    
+    private void listSegments() throws IOException {
+        segments.clear();
+        try (Stream<Path> files = Files.list(directory)) {
+            files.forEach(file -> {
+                String name = file.getFileName().toString();
+                if (name.startsWith(SEGMENT_PREFIX) && name.endsWith(SEGMENT_SUFFIX)) {
+                    try {
+                        long firstLsn = Long.parseLong(
+                            name.substring(SEGMENT_PREFIX.length(), name.length() - SEGMENT_SUFFIX.length()));
+                        segments.put(firstLsn, file);
+                    } catch (NumberFormatException e) {
+                        System.err.println("[JURNAL] Fișier ignorat: " + name);
+                    }
+                }
+            });
+        }
+    }
+    
+    /**
+     * După o eroare de scriere jurnalul refuză orice operațiune nouă:
+     * starea din memorie nu mai poate fi garantată pe disc până la repornire
+     */
+    private void failAll(List<PendingRecord> batch, IOException error) {
+        List<PendingRecord> rest = new ArrayList<>();
+        lock.lock();
+        try {
+            failure = error;
+            rest.addAll(queue);
+            queue.clear();
+            durableAdvanced.signalAll();
+        } finally {
+            lock.unlock();
+        }
+        for (PendingRecord pending : batch) {
+            pending.durable.completeExceptionally(error);
+        }
+        for (PendingRecord pending : rest) {
+            pending.durable.completeExceptionally(error);
+        }
+    }
+    
+    static ByteBuffer encode(JournalRecord record) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(64);
+        record.writeTo(new DataOutputStream(bytes));
+        byte[] payload = bytes.toByteArray();
+        
+        CRC32 crc = new CRC32();
+        crc.update(payload, 0, payload.length);
+        
+        ByteBuffer buffer = ByteBuffer.allocate(payload.length + 8);
+        buffer.putInt(payload.length);
+        buffer.put(payload);
+        buffer.putInt((int) crc.getValue());
+        buffer.flip();
+        return buffer;
+    }
+    
+    /**
+     * Citește următoarea înregistrare validă sau null la sfârșit / coadă coruptă
+     */
+    private static DecodedRecord readRecord(DataInputStream in) throws IOException {
+        int length;
+        try {
+            length = in.readInt();
+        } catch (EOFException e) {
+            return null;
+        }
+        if (length <= 0 || length > 1 << 20) {
+            return null;
+        }
+        byte[] payload = new byte[length];
+        int expectedCrc;
+        try {
+            in.readFully(payload);
+            expectedCrc = in.readInt();
+        } catch (EOFException e) {
+            return null;
+        }
+        
+        CRC32 crc = new CRC32();
+        crc.update(payload, 0, payload.length);
+        if ((int) crc.getValue() != expectedCrc) {
+            return null;
+        }
+        
+        try {
+            JournalRecord record = JournalRecord.readFrom(new DataInputStream(new ByteArrayInputStream(payload)));
+            return new DecodedRecord(record, length);
+        } catch (IOException e) {
+            return null;
+        }
+    }
+    
+    private static class PendingRecord {
+        final JournalRecord record;
+        final CompletableFuture<Long> durable;
+        // Următoarea înregistrare din coadă face parte din același grup
+        final boolean groupContinues;
+        
+        PendingRecord(JournalRecord record, CompletableFuture<Long> durable, boolean groupContinues) {
+            this.record = record;
+            this.durable = durable;
+            this.groupContinues = groupContinues;
+        }
+    }
+    
+    private static class DecodedRecord {
+        final JournalRecord record;
+        final int encodedLength;
+        
+        DecodedRecord(JournalRecord record, int encodedLength) {
+            this.record = record;
+            this.encodedLength = encodedLength;
+        }
+    }
+}
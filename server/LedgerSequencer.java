@@ -0,0 +1,186 @@
+package server;
+
+import common.Account;
+import common.BankException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Motor cu un singur fir de business: comenzile sunt publicate într-un ring prealocat
+ * și aplicate strict în ordinea secvenței de un fir dedicat (modelul "single writer").
+ *
+ * Firele RMI revendică o secvență (un singur increment atomic), completează slotul și îl
+ * publică; firul de business consumă sloturile în ordine și finalizează handle-ul fiecărei
+ * comenzi. Cum un singur fir scrie în registru, ordinea operațiunilor - și deci ordinea
+ * LSN-urilor din jurnal - este determinată doar de secvență. Jurnalul este consumatorul
+ * din aval: primește înregistrările în ordinea secvenței, iar firul lui le scrie în loturi.
+ *
+ * Monitorul fiecărui cont este luat în continuare la aplicare, dar nu mai este disputat
+ * între scriitori; servește doar cititorilor (checkpoint, istoric) pentru copii consistente.
+ */
+public class LedgerSequencer implements LedgerExecutor {
+    
+    // Cât timp verifică firul de business ringul înainte de a adormi
+    private static final int SPIN_TRIES = 200;
+    
+    /**
+     * Un slot din ring, refolosit la fiecare trecere
+     * Câmpurile sunt scrise de producător înainte de publicarea secvenței (scriere volatilă).
+     */
+    private static final class Slot {
+        private volatile long published = -1;
+        private Account first;
+        private Account second;
+        private Command command;
+        private CompletableFuture<Result> completion;
+    }
+    
+    private final Slot[] ring;
+    private final int mask;
+    // Ultima secvență revendicată de producători
+    private final AtomicLong claimed = new AtomicLong(-1);
+    // Ultima secvență aplicată de firul de business (producătorii nu o pot depăși cu un ring întreg)
+    private volatile long consumed = -1;
+    private volatile boolean sleeping;
+    private volatile boolean running = true;
+    // Setat de firul de business când se oprește; după aceea niciun slot nu mai este citit
+    private volatile boolean stopped;
+    private final Thread businessThread;
+    
+    /**
+     * @param ringSize numărul de sloturi, rotunjit în sus la o putere a lui 2
+     */
+    public LedgerSequencer(int ringSize) {
+        int size = Integer.highestOneBit(Math.max(2, ringSize) - 1) << 1;
+        this.ring = new Slot[size];
+        this.mask = size - 1;
+        for (int i = 0; i < size; i++) {
+            ring[i] = new Slot();
+        }
+        
+        this.businessThread = new Thread(this::runBusinessLoop, "ledger-sequencer");
+        businessThread.setDaemon(true);
+        businessThread.start();
+    }
+    
+    @Override
+    public Result execute(Account first, Account second, Command command) throws BankException {
+        return LedgerExecutor.awaitCompletion(submit(first, second, command));
+    }
+    
+    /**
+     * Publică comanda în ring; dacă ringul este plin, apelantul așteaptă un slot liber
+     */
+    @Override
+    public CompletableFuture<Result> submit(Account first, Account second, Command command) {
+        CompletableFuture<Result> completion = new CompletableFuture<>();
+        if (!running) {
+            completion.completeExceptionally(stopping());
+            return completion;
+        }
+        
+        long sequence = claimed.incrementAndGet();
+        // stop() poate fi apelat între verificarea de mai sus și revendicare. Comanda este atunci
+        // respinsă, dar slotul este publicat gol: firul de business, dacă a văzut revendicarea,
+        // așteaptă secvența înainte de a se opri.
+        boolean accepted = running;
+        
+        // Ringul este plin: așteptăm până când firul de business eliberează slotul
+        // (sau până când se oprește; o comandă acceptată este mereu consumată înainte de oprire)
+        while (sequence - ring.length > consumed && !stopped) {
+            LockSupport.parkNanos(1000);
+        }
+        
+        Slot slot = ring[(int) (sequence & mask)];
+        slot.first = first;
+        slot.second = second;
+        slot.command = accepted ? command : null;
+        slot.completion = completion;
+        slot.published = sequence;
+        if (sleeping) {
+            LockSupport.unpark(businessThread);
+        }
+        
+        if (!accepted) {
+            completion.completeExceptionally(stopping());
+        }
+        return completion;
+    }
+    
+    private void runBusinessLoop() {
+        long next = 0;
+        int idle = 0;
+        
+        while (true) {
+            Slot slot = ring[(int) (next & mask)];
+            if (slot.published != next) {
+                // Toate secvențele revendicate au fost consumate; o revendicare ulterioară vede
+                // running == false și nu mai are nevoie de acest fir
+                if (!running && claimed.get() < next) {
+                    stopped = true;
+                    return;
+                }
+                if (++idle < SPIN_TRIES) {
+                    Thread.yield();
+                    continue;
+                }
+                // Anunțăm că adormim, apoi verificăm încă o dată ca să nu pierdem o publicare
+                sleeping = true;
+                if (slot.published != next && running) {
+                    LockSupport.park(this);
+                }
+                sleeping = false;
+                continue;
+            }
+            idle = 0;
+            
+            // Slotul unei comenzi respinse la oprire este doar sărit
+            if (slot.command != null) {
+                apply(slot);
+            }
+            slot.first = null;
+            slot.second = null;
+            slot.command = null;
+            slot.completion = null;
+            consumed = next++;
+        }
+    }
+    
+    private void apply(Slot slot) {
+        CompletableFuture<Result> completion = slot.completion;
+        try {
+            Result result;
+            synchronized (slot.first) {
+                if (slot.second == null) {
+                    result = slot.command.run();
+                } else {
+                    synchronized (slot.second) {
+                        result = slot.command.run();
+                    }
+                }
+            }
+            completion.complete(result);
+        } catch (Throwable e) {
+            completion.completeExceptionally(e);
+        }
+    }
+    
+    private static BankException stopping() {
+        return new BankException("Serverul se oprește. Încercați din nou!");
+    }
+    
+    /**
+     * Nu mai acceptă comenzi noi; comenzile deja acceptate sunt aplicate înainte de oprire
+     */
+    @Override
+    public void stop() {
+        running = false;
+        LockSupport.unpark(businessThread);
+        try {
+            businessThread.join(5000);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
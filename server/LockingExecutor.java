@@ -0,0 +1,33 @@
+package server;
+
+import common.Account;
+import common.BankException;
+
+/**
+ * Motorul implicit: comanda rulează pe firul apelantului, sub lock-urile conturilor implicate
+ * Pentru două conturi lock-urile se obțin în ordinea numerelor de cont, pentru a evita deadlock.
+ */
+public class LockingExecutor implements LedgerExecutor {
+    
+    @Override
+    public Result execute(Account first, Account second, Command command) throws BankException {
+        if (second == null) {
+            synchronized (first) {
+                return command.run();
+            }
+        }
+        
+        boolean ordered = first.getAccountNumber().compareTo(second.getAccountNumber()) < 0;
+        Object firstLock = ordered ? first : second;
+        Object secondLock = ordered ? second : first;
+        synchronized (firstLock) {
+            synchronized (secondLock) {
+                return command.run();
+            }
+        }
+    }
+    
+    @Override
+    public void stop() {
+    }
+}
@@ -0,0 +1,557 @@
+package server;
+
+import common.Account;
+import common.Money;
+import common.TransactionLog;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.CRC32;
+
+/**
+ * Tabel de conturi cu rânduri de lungime fixă, mapat în memorie (-storage mmap)
+ *
+ * Rândul unui cont este dat direct de numărul lui (RO1000000000 -> rândul 0), deci la
+ * pornire fișierul este doar mapat, fără a deserializa conturile. Un cont este încărcat
+ * în memorie abia la primul acces, iar la fiecare checkpoint se rescriu doar rândurile
+ * conturilor modificate. Istoricul tranzacțiilor este păstrat în HistoryStore: rândul
+ * indică lanțul de pagini arhivate și un lanț scurt de pagini cu tranzacțiile recente.
+ * Un checkpoint adaugă la acest lanț doar tranzacțiile apărute de la checkpoint-ul
+ * anterior; după MAX_TAIL_PAGES pagini (sau după ce tranzacțiile scrise au fost arhivate)
+ * tranzacțiile recente sunt rescrise într-o singură pagină, iar lanțul vechi nu mai este citit.
+ *
+ * Fiecare rând are două copii cu CRC: checkpoint-ul scrie mereu copia mai veche, iar la
+ * citire se alege copia validă cu LSN-ul mai mare. Un rând scris pe jumătate la o cădere
+ * nu distruge astfel starea anterioară. Antetul folosește același mecanism.
+ */
+public class MappedAccountTable implements SnapshotStore {
+    
+    // Lungimea maximă (UTF-8) a numelui titularului într-un rând
+    public static final int MAX_OWNER_BYTES = 96;
+    
+    private static final int MAGIC = 0x53424D54; // "SBMT"
+    private static final int VERSION = 3;
+    // Versiunea 2 nu avea numărul paginilor recente; rândurile ei sunt citite în continuare
+    private static final int LEGACY_VERSION = 2;
+    private static final long FIRST_ACCOUNT_NUMBER = 1000000000L;
+    private static final String ACCOUNT_PREFIX = "RO";
+    
+    // Antet: [magic int][versiune int][dimensiune rând int] și două copii ale stării
+    // Copie antet: [generație long][lsn long][următorul număr de cont long][număr conturi long][crc int]
+    private static final int HEADER_SIZE = 4096;
+    private static final int HEADER_COPY_OFFSET = 64;
+    private static final int HEADER_COPY_SIZE = 64;
+    private static final int HEADER_CRC_OFFSET = 32;
+    
+    // Copie rând: [număr long][lsn long][sold double][creat la long][cap istoric long][nr. arhivate int]
+    //             [hash PIN 32][lungime titular short][titular 96][nr. recente int][pagină recente long]
+    //             [pagini recente short][crc int]
+    private static final int COPY_SIZE = 192;
+    private static final int ROW_SIZE = 2 * COPY_SIZE;
+    private static final int OFF_LSN = 8;
+    private static final int OFF_BALANCE = 16;
+    private static final int OFF_CREATED_AT = 24;
+    private static final int OFF_HISTORY_HEAD = 32;
+    private static final int OFF_ARCHIVED_COUNT = 40;
+    private static final int OFF_PIN_HASH = 44;
+    private static final int PIN_HASH_SIZE = 32;
+    private static final int OFF_OWNER_LENGTH = 76;
+    private static final int OFF_OWNER = 78;
+    private static final int OFF_TAIL_COUNT = 174;
+    private static final int OFF_TAIL_PAGE = 178;
+    private static final int OFF_TAIL_PAGES = 186;
+    private static final int OFF_CRC = 188;
+    private static final int OFF_LEGACY_CRC = 186;
+    
+    // Lungimea maximă a lanțului de pagini recente; citirea unui cont parcurge cel mult atâtea pagini
+    private static final int MAX_TAIL_PAGES = 8;
+    
+    // Fișierul este mapat în regiuni, pentru a depăși limita de 2 GB a unei mapări
+    private static final int ROWS_PER_REGION = 1 << 16;
+    private static final long REGION_SIZE = (long) ROWS_PER_REGION * ROW_SIZE;
+    
+    /**
+     * Starea unui cont citită dintr-o copie validă a rândului
+     */
+    private static class Row {
+        long number;
+        long lsn;
+        double balance;
+        long createdAt;
+        long historyHead;
+        int archivedCount;
+        int tailCount;
+        long tailPage;
+        int tailPages;
+        byte[] pinHash;
+        String owner;
+        int copy;
+    }
+    
+    private final Path tableFile;
+    private final HistoryStore history;
+    private FileChannel channel;
+    private MappedByteBuffer header;
+    private volatile MappedByteBuffer[] regions = new MappedByteBuffer[0];
+    
+    // Starea confirmată de ultimul checkpoint
+    private int headerCopy;
+    private long generation;
+    private long lsn;
+    private long nextAccountNumber = FIRST_ACCOUNT_NUMBER;
+    private volatile long accountCount;
+    
+    public MappedAccountTable(Path tableFile, HistoryStore history) {
+        this.tableFile = tableFile;
+        this.history = history;
+    }
+    
+    public boolean exists() {
+        return Files.exists(tableFile);
+    }
+    
+    /**
+     * Mapează tabelul existent; conturile nu sunt citite, doar antetul
+     * @return snapshot fără conturi (ele se încarcă la cerere) sau null dacă tabelul nu există
+     */
+    @Override
+    public synchronized Snapshot load() throws IOException {
+        if (!exists()) {
+            return null;
+        }
+        open();
+        return new Snapshot(Collections.emptyMap(), nextAccountNumber, lsn);
+    }
+    
+    /**
+     * Rescrie rândurile conturilor modificate de la checkpoint-ul anterior
+     * Tranzacțiile noi ale fiecărui cont modificat sunt adăugate la lanțul lui de pagini recente;
+     * paginile și rândurile sunt sincronizate pe disc înaintea antetului.
+     */
+    @Override
+    public synchronized long write(Map<String, Account> accounts, long nextAccountNumber, long lsn)
+            throws IOException {
+        open();
+        long bytes = 0;
+        int added = 0;
+        
+        for (Account account : accounts.values()) {
+            String accountNumber = account.getAccountNumber();
+            long slot = slotOf(accountNumber);
+            if (slot < 0) {
+                throw new IOException("Număr de cont invalid pentru tabel: " + accountNumber);
+            }
+            
+            Row current = readRow(slot);
+            if (isCurrent(current, account)) {
+                continue;
+            }
+            TransactionLog tail = account.getTransactionLog();
+            
+            // Tranzacțiile din rândul curent care sunt încă recente în cont, la începutul jurnalului
+            int stored = current == null || current.tailPage == HistoryStore.NO_PAGE ? -1
+                : current.archivedCount + current.tailCount - account.getArchivedCount();
+            long tailPage;
+            int tailPages;
+            if (stored >= 0 && stored <= tail.size() && (stored == tail.size() || current.tailPages < MAX_TAIL_PAGES)) {
+                tailPage = current.tailPage;
+                tailPages = current.tailPages;
+                if (stored < tail.size()) {
+                    tailPage = history.append(tailPage, tail, stored, tail.size() - stored);
+                    tailPages++;
+                }
+            } else if (tail.size() > 0) {
+                tailPage = history.append(HistoryStore.NO_PAGE, tail, 0, tail.size());
+                tailPages = 1;
+            } else {
+                tailPage = HistoryStore.NO_PAGE;
+                tailPages = 0;
+            }
+            
+            byte[] pinHash;
+            if (current != null) {
+                pinHash = current.pinHash;
+            } else if (account.getPin() != null) {
+                pinHash = hashPin(accountNumber, account.getPin());
+            } else {
+                throw new IOException("Contul " + accountNumber + " nu are PIN");
+            }
+            
+            writeCopy(slot, current != null ? 1 - current.copy : 0, account, tail.size(), tailPage, tailPages, pinHash);
+            bytes += COPY_SIZE;
+            if (current == null) {
+                added++;
+            }
+        }
+        
+        history.force();
+        for (MappedByteBuffer region : regions) {
+            region.force();
+        }
+        
+        this.accountCount += added;
+        this.lsn = lsn;
+        this.nextAccountNumber = nextAccountNumber;
+        this.generation++;
+        writeHeader();
+        return bytes + HEADER_COPY_SIZE;
+    }
+    
+    @Override
+    public void markMigrated() throws IOException {
+        throw new IOException("Tabelul mapat nu poate fi convertit în alt format (PIN-urile sunt păstrate doar ca hash)");
+    }
+    
+    /**
+     * Verifică dacă tabelul conține contul (fără a-l încărca)
+     */
+    public boolean contains(String accountNumber) {
+        Row row = readRow(slotOf(accountNumber));
+        return row != null;
+    }
+    
+    /**
+     * Verifică dacă rândul contului conține deja starea lui din memorie (sold și istoric),
+     * adică dacă un cont încărcat poate fi eliberat și recitit mai târziu din tabel
+     */
+    public boolean isStored(Account account) {
+        return isCurrent(readRow(slotOf(account.getAccountNumber())), account);
+    }
+    
+    /**
+     * Încarcă un cont din tabel, cu tranzacțiile recente (istoricul arhivat rămâne pe disc)
+     * Contul încărcat nu are PIN în clar; verificarea se face cu checkPin.
+     * @return contul sau null dacă nu există în tabel
+     */
+    public Account readAccount(String accountNumber) throws IOException {
+        Row row = readRow(slotOf(accountNumber));
+        if (row == null) {
+            return null;
+        }
+        
+        Account account = new Account(accountNumber, row.owner, null, 0, AccountCodec.toDateTime(row.createdAt));
+        account.setBalanceBani(Money.toBani(row.balance));
+        account.setArchivedHistory(row.historyHead, row.archivedCount);
+        if (row.tailCount > 0) {
+            account.addTransactions(readTail(row, accountNumber));
+        }
+        account.setLastLsn(row.lsn);
+        return account;
+    }
+    
+    /**
+     * Citește ultimele tailCount tranzacții din lanțul de pagini recente
+     * Paginile sunt citite fără cache: tranzacțiile rămân oricum în contul încărcat.
+     */
+    private TransactionLog readTail(Row row, String accountNumber) throws IOException {
+        List<TransactionLog> pages = new ArrayList<>();
+        int count = 0;
+        for (long address = row.tailPage; address != HistoryStore.NO_PAGE && count < row.tailCount
+                && pages.size() < row.tailPages; ) {
+            HistoryStore.Page page = history.readPageUncached(address);
+            pages.add(page.getTransactions());
+            count += page.getTransactions().size();
+            address = page.getPrevious();
+        }
+        if (count < row.tailCount) {
+            throw new IOException("Paginile cu tranzacții recente nu corespund contului " + accountNumber);
+        }
+        
+        TransactionLog tail = new TransactionLog();
+        for (int i = pages.size() - 1; i >= 0; i--) {
+            tail.addAll(pages.get(i));
+        }
+        // Tranzacțiile mai vechi din prima pagină au fost între timp arhivate
+        tail.removeFirst(count - row.tailCount);
+        return tail;
+    }
+    
+    /**
+     * Compară PIN-ul primit cu hash-ul din tabel
+     */
+    public boolean checkPin(String accountNumber, String pin) {
+        Row row = readRow(slotOf(accountNumber));
+        return row != null && MessageDigest.isEqual(row.pinHash, hashPin(accountNumber, pin));
+    }
+    
+    public long getAccountCount() {
+        return accountCount;
+    }
+    
+    /**
+     * Adaugă numerele tuturor conturilor din tabel
+     */
+    public void collectAccountNumbers(Collection<String> numbers) {
+        MappedByteBuffer[] current = regions;
+        for (long slot = 0; slot < (long) current.length * ROWS_PER_REGION; slot++) {
+            Row row = readRow(slot);
+            if (row != null) {
+                numbers.add(ACCOUNT_PREFIX + row.number);
+            }
+        }
+    }
+    
+    public synchronized void close() throws IOException {
+        if (channel != null) {
+            channel.close();
+            channel = null;
+        }
+    }
+    
+    /**
+     * Deschide și mapează fișierul (o singură dată)
+     */
+    private void open() throws IOException {
+        if (channel != null) {
+            return;
+        }
+        
+        channel = FileChannel.open(tableFile, StandardOpenOption.CREATE, StandardOpenOption.READ,
+            StandardOpenOption.WRITE);
+        boolean fresh = channel.size() == 0;
+        header = channel.map(FileChannel.MapMode.READ_WRITE, 0, HEADER_SIZE);
+        
+        if (fresh) {
+            header.putInt(0, MAGIC);
+            header.putInt(4, VERSION);
+            header.putInt(8, ROW_SIZE);
+            writeHeader();
+        } else {
+            int version = header.getInt(4);
+            if (header.getInt(0) != MAGIC || (version != VERSION && version != LEGACY_VERSION)
+                    || header.getInt(8) != ROW_SIZE) {
+                throw new IOException("Fișierul nu este un tabel de conturi compatibil: " + tableFile);
+            }
+            readHeader();
+            if (version == LEGACY_VERSION) {
+                // Rândurile vechi rămân valide și sunt rescrise în formatul nou la prima modificare
+                header.putInt(4, VERSION);
+                header.force();
+                System.out.println("[PERSISTENȚĂ] Tabelul de conturi a fost actualizat la versiunea " + VERSION);
+            }
+        }
+        
+        long regionCount = (channel.size() - HEADER_SIZE + REGION_SIZE - 1) / REGION_SIZE;
+        for (int i = 0; i < regionCount; i++) {
+            region(i);
+        }
+    }
+    
+    private void readHeader() throws IOException {
+        long bestGeneration = -1;
+        for (int copy = 0; copy < 2; copy++) {
+            int base = HEADER_COPY_OFFSET + copy * HEADER_COPY_SIZE;
+            byte[] bytes = new byte[HEADER_COPY_SIZE];
+            ByteBuffer view = header.duplicate();
+            view.position(base);
+            view.get(bytes);
+            
+            ByteBuffer buffer = ByteBuffer.wrap(bytes);
+            if (buffer.getInt(HEADER_CRC_OFFSET) != crc(bytes, HEADER_CRC_OFFSET)) {
+                continue;
+            }
+            long copyGeneration = buffer.getLong(0);
+            if (copyGeneration > bestGeneration) {
+                bestGeneration = copyGeneration;
+                headerCopy = copy;
+                generation = copyGeneration;
+                lsn = buffer.getLong(8);
+                nextAccountNumber = buffer.getLong(16);
+                accountCount = buffer.getLong(24);
+            }
+        }
+        if (bestGeneration < 0) {
+            throw new IOException("Antetul tabelului de conturi este corupt: " + tableFile);
+        }
+    }
+    
+    private void writeHeader() {
+        int copy = generation == 0 ? 0 : 1 - headerCopy;
+        ByteBuffer buffer = ByteBuffer.allocate(HEADER_COPY_SIZE);
+        buffer.putLong(generation).putLong(lsn).putLong(nextAccountNumber).putLong(accountCount);
+        buffer.putInt(HEADER_CRC_OFFSET, crc(buffer.array(), HEADER_CRC_OFFSET));
+        
+        ByteBuffer view = header.duplicate();
+        view.position(HEADER_COPY_OFFSET + copy * HEADER_COPY_SIZE);
+        view.put(buffer.array());
+        header.force();
+        headerCopy = copy;
+    }
+    
+    /**
+     * Citește rândul unui cont, alegând copia validă cea mai nouă
+     */
+    private Row readRow(long slot) {
+        if (slot < 0 || slot / ROWS_PER_REGION >= regions.length) {
+            return null;
+        }
+        MappedByteBuffer region = regions[(int) (slot / ROWS_PER_REGION)];
+        int base = (int) (slot % ROWS_PER_REGION) * ROW_SIZE;
+        
+        Row best = null;
+        for (int copy = 0; copy < 2; copy++) {
+            Row row = decodeCopy(region, base + copy * COPY_SIZE, copy);
+            if (row != null && row.number == slot + FIRST_ACCOUNT_NUMBER && isNewer(row, best)) {
+                best = row;
+            }
+        }
+        return best;
+    }
+    
+    private static boolean isCurrent(Row row, Account account) {
+        return row != null && row.lsn >= account.getLastLsn() && row.archivedCount == account.getArchivedCount()
+            && row.tailCount == account.getTransactionCount() - account.getArchivedCount();
+    }
+    
+    private static boolean isNewer(Row row, Row best) {
+        if (best == null || row.lsn != best.lsn) {
+            return best == null || row.lsn > best.lsn;
+        }
+        return row.archivedCount + row.tailCount > best.archivedCount + best.tailCount;
+    }
+    
+    private static Row decodeCopy(MappedByteBuffer region, int offset, int copy) {
+        // Copia este citită o singură dată, apoi verificată, pentru a nu combina două scrieri
+        byte[] bytes = new byte[COPY_SIZE];
+        ByteBuffer view = region.duplicate();
+        view.position(offset);
+        view.get(bytes);
+        
+        ByteBuffer buffer = ByteBuffer.wrap(bytes);
+        if (buffer.getLong(0) == 0) {
+            return null;
+        }
+        boolean legacy = false;
+        if (buffer.getInt(OFF_CRC) != crc(bytes, OFF_CRC)) {
+            // Copie scrisă de versiunea 2: CRC-ul stă în locul numărului de pagini, iar după el nu urmează nimic
+            legacy = buffer.getShort(OFF_LEGACY_CRC + 4) == 0
+                && buffer.getInt(OFF_LEGACY_CRC) == crc(bytes, OFF_LEGACY_CRC);
+            if (!legacy) {
+                return null;
+            }
+        }
+        int ownerLength = buffer.getShort(OFF_OWNER_LENGTH);
+        if (ownerLength < 0 || ownerLength > MAX_OWNER_BYTES) {
+            return null;
+        }
+        
+        Row row = new Row();
+        row.number = buffer.getLong(0);
+        row.lsn = buffer.getLong(OFF_LSN);
+        row.balance = buffer.getDouble(OFF_BALANCE);
+        row.createdAt = buffer.getLong(OFF_CREATED_AT);
+        row.historyHead = buffer.getLong(OFF_HISTORY_HEAD);
+        row.archivedCount = buffer.getInt(OFF_ARCHIVED_COUNT);
+        row.tailCount = buffer.getInt(OFF_TAIL_COUNT);
+        row.tailPage = buffer.getLong(OFF_TAIL_PAGE);
+        // În versiunea 2 tranzacțiile recente erau mereu într-o singură pagină
+        row.tailPages = legacy ? (row.tailPage != HistoryStore.NO_PAGE ? 1 : 0) : buffer.getShort(OFF_TAIL_PAGES);
+        row.pinHash = Arrays.copyOfRange(bytes, OFF_PIN_HASH, OFF_PIN_HASH + PIN_HASH_SIZE);
+        row.owner = new String(bytes, OFF_OWNER, ownerLength, StandardCharsets.UTF_8);
+        row.copy = copy;
+        return row;
+    }
+    
+    private void writeCopy(long slot, int copy, Account account, int tailCount, long tailPage, int tailPages,
+                           byte[] pinHash) throws IOException {
+        byte[] owner = truncateUtf8(account.getOwnerName(), MAX_OWNER_BYTES);
+        
+        ByteBuffer buffer = ByteBuffer.allocate(COPY_SIZE);
+        buffer.putLong(0, slot + FIRST_ACCOUNT_NUMBER);
+        buffer.putLong(OFF_LSN, account.getLastLsn());
+        buffer.putDouble(OFF_BALANCE, account.getBalance());
+        buffer.putLong(OFF_CREATED_AT, AccountCodec.toEpochMillis(account.getCreatedAt()));
+        buffer.putLong(OFF_HISTORY_HEAD, account.getHistoryHead());
+        buffer.putInt(OFF_ARCHIVED_COUNT, account.getArchivedCount());
+        buffer.position(OFF_PIN_HASH);
+        buffer.put(pinHash);
+        buffer.putShort(OFF_OWNER_LENGTH, (short) owner.length);
+        buffer.position(OFF_OWNER);
+        buffer.put(owner);
+        buffer.putInt(OFF_TAIL_COUNT, tailCount);
+        buffer.putLong(OFF_TAIL_PAGE, tailPage);
+        buffer.putShort(OFF_TAIL_PAGES, (short) tailPages);
+        buffer.putInt(OFF_CRC, crc(buffer.array(), OFF_CRC));
+        
+        MappedByteBuffer region = region((int) (slot / ROWS_PER_REGION));
+        ByteBuffer view = region.duplicate();
+        view.position((int) (slot % ROWS_PER_REGION) * ROW_SIZE + copy * COPY_SIZE);
+        view.put(buffer.array());
+    }
+    
+    /**
+     * Returnează regiunea cu indexul dat, mapând-o (și extinzând fișierul) la nevoie
+     */
+    private MappedByteBuffer region(int index) throws IOException {
+        MappedByteBuffer[] current = regions;
+        if (index < current.length) {
+            return current[index];
+        }
+        
+        MappedByteBuffer[] grown = Arrays.copyOf(current, index + 1);
+        for (int i = current.length; i <= index; i++) {
+            grown[i] = channel.map(FileChannel.MapMode.READ_WRITE, HEADER_SIZE + i * REGION_SIZE, REGION_SIZE);
+        }
+        regions = grown;
+        return grown[index];
+    }
+    
+    /**
+     * Rândul unui cont sau -1 dacă numărul nu are formatul generat de server
+     */
+    private static long slotOf(String accountNumber) {
+        if (accountNumber == null || !accountNumber.startsWith(ACCOUNT_PREFIX)) {
+            return -1;
+        }
+        try {
+            long slot = Long.parseLong(accountNumber.substring(ACCOUNT_PREFIX.length())) - FIRST_ACCOUNT_NUMBER;
+            return slot >= 0 && slot < Integer.MAX_VALUE ? slot : -1;
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+    
+    /**
+     * Hash-ul PIN-ului, legat de numărul contului
+     */
+    static byte[] hashPin(String accountNumber, String pin) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            return digest.digest((accountNumber + ":" + pin).getBytes(StandardCharsets.UTF_8));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 indisponibil", e);
+        }
+    }
+    
+    private static byte[] truncateUtf8(String value, int maxBytes) {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        int length = value.length();
+        while (bytes.length > maxBytes) {
+            length--;
+            if (Character.isLowSurrogate(value.charAt(length))) {
+                length--;
+            }
+            bytes = value.substring(0, length).getBytes(StandardCharsets.UTF_8);
+        }
+        return bytes;
+    }
+    
+    private static int crc(byte[] data, int length) {
+        CRC32 crc = new CRC32();
+        crc.update(data, 0, length);
+        return (int) crc.getValue();
+    }
+}
@@ -0,0 +1,104 @@
+package server;
+
+import common.Account;
+import common.BankException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Motor partiționat: conturile sunt împărțite în N partiții după hash-ul numărului de cont,
+ * iar fiecare partiție are propriul fir care îi aplică toate comenzile, în ordine.
+ *
+ * Operațiunile pe conturi din partiții diferite rulează în paralel, fără lock-uri între ele.
+ * Un transfer între două partiții nu poate fi executat atomic de un singur fir, așa că
+ * BankServiceImpl îl face în doi pași (debitare, apoi creditare sau compensare).
+ *
+ * Ca la sequencer, monitorul contului este luat la aplicare doar pentru cititori.
+ */
+public class PartitionedExecutor implements LedgerExecutor {
+    
+    private final ExecutorService[] partitions;
+    
+    public PartitionedExecutor(int partitionCount) {
+        this.partitions = new ExecutorService[Math.max(1, partitionCount)];
+        for (int i = 0; i < partitions.length; i++) {
+            String name = "ledger-partition-" + i;
+            partitions[i] = Executors.newSingleThreadExecutor(r -> {
+                Thread thread = new Thread(r, name);
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+    }
+    
+    public int getPartitionCount() {
+        return partitions.length;
+    }
+    
+    /**
+     * Partiția care deține contul
+     */
+    public int partitionOf(Account account) {
+        return Math.floorMod(account.getAccountNumber().hashCode(), partitions.length);
+    }
+    
+    @Override
+    public boolean isAtomic(Account first, Account second) {
+        return second == null || partitionOf(first) == partitionOf(second);
+    }
+    
+    @Override
+    public Result execute(Account first, Account second, Command command) throws BankException {
+        return LedgerExecutor.awaitCompletion(submit(first, second, command));
+    }
+    
+    @Override
+    public CompletableFuture<Result> submit(Account first, Account second, Command command) {
+        if (!isAtomic(first, second)) {
+            throw new IllegalArgumentException("Conturile " + first.getAccountNumber() + " și " +
+                second.getAccountNumber() + " aparțin unor partiții diferite");
+        }
+        
+        CompletableFuture<Result> completion = new CompletableFuture<>();
+        try {
+            partitions[partitionOf(first)].execute(() -> {
+                try {
+                    synchronized (first) {
+                        if (second == null) {
+                            completion.complete(command.run());
+                        } else {
+                            synchronized (second) {
+                                completion.complete(command.run());
+                            }
+                        }
+                    }
+                } catch (Throwable e) {
+                    completion.completeExceptionally(e);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            completion.completeExceptionally(new BankException("Serverul se oprește. Încercați din nou!"));
+        }
+        return completion;
+    }
+    
+    /**
+     * Fiecare partiție termină comenzile deja primite
+     */
+    @Override
+    public void stop() {
+        for (ExecutorService partition : partitions) {
+            partition.shutdown();
+        }
+        for (ExecutorService partition : partitions) {
+            try {
+                partition.awaitTermination(5, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+}
@@ -0,0 +1,187 @@
+package server;
+
+/**
+ * Configurația serverului RMI, citită din argumentele liniei de comandă
+ *
+ * Exemple:
+ *   java server.BankServer 1099
+ *   java server.BankServer -port 1099 -journalBatch 512 -journalWaitMicros 300
+ *   java server.BankServer -checkpointSeconds 60 -checkpointJournalMb 32
+ *   java server.BankServer -snapshotFormat java
+ *   java server.BankServer -storage mmap -historyCachePages 4096
+ *   java server.BankServer -storage mmap -accountCache 100000
+ *   java server.BankServer -engine sequencer -ringSize 4096
+ *   java server.BankServer -engine partitioned -partitions 8
+ *   java server.BankServer -idempotencyKeys 10000 -idempotencyTtlMinutes 1440
+ */
+public class ServerConfig {
+    
+    public static final int DEFAULT_PORT = 1099;
+    public static final int DEFAULT_JOURNAL_BATCH = 256;
+    public static final long DEFAULT_JOURNAL_WAIT_MICROS = 200;
+    public static final long DEFAULT_CHECKPOINT_SECONDS = 60;
+    public static final long DEFAULT_CHECKPOINT_JOURNAL_MB = 32;
+    public static final String SNAPSHOT_FORMAT_BINARY = "binary";
+    public static final String SNAPSHOT_FORMAT_JAVA = "java";
+    public static final String STORAGE_HEAP = "heap";
+    public static final String STORAGE_MMAP = "mmap";
+    public static final int DEFAULT_HISTORY_CACHE_PAGES = 4096;
+    public static final int UNLIMITED_ACCOUNT_CACHE = 0;
+    public static final String ENGINE_LOCKING = "locking";
+    public static final String ENGINE_SEQUENCER = "sequencer";
+    public static final String ENGINE_PARTITIONED = "partitioned";
+    public static final int DEFAULT_RING_SIZE = 4096;
+    public static final int DEFAULT_IDEMPOTENCY_KEYS = 10000;
+    public static final long DEFAULT_IDEMPOTENCY_TTL_MINUTES = 24 * 60;
+    
+    private int port = DEFAULT_PORT;
+    // Numărul maxim de înregistrări scrise și sincronizate pe disc într-un singur lot
+    private int journalMaxBatch = DEFAULT_JOURNAL_BATCH;
+    // Cât așteaptă flusher-ul după prima înregistrare pentru a umple lotul
+    private long journalMaxWaitMicros = DEFAULT_JOURNAL_WAIT_MICROS;
+    // Intervalul dintre checkpoint-uri și dimensiunea jurnalului care forțează unul mai devreme
+    private long checkpointIntervalSeconds = DEFAULT_CHECKPOINT_SECONDS;
+    private long checkpointJournalBytes = DEFAULT_CHECKPOINT_JOURNAL_MB * 1024 * 1024;
+    // Formatul snapshot-ului: binar compact (implicit) sau serializare Java
+    private String snapshotFormat = SNAPSHOT_FORMAT_BINARY;
+    // Stocarea conturilor: toate în memorie (implicit) sau tabel mapat în memorie
+    private String storage = STORAGE_HEAP;
+    // Numărul maxim de pagini de istoric arhivat păstrate în cache-ul LRU
+    private int historyCachePages = DEFAULT_HISTORY_CACHE_PAGES;
+    // Numărul maxim de conturi păstrate ca obiecte în heap în modul mmap (0 = fără limită);
+    // celelalte rămân doar în tabelul mapat, în afara heap-ului
+    private int accountCache = UNLIMITED_ACCOUNT_CACHE;
+    // Motorul de execuție: lock-uri per cont (implicit) sau un singur fir alimentat printr-un ring
+    private String engine = ENGINE_LOCKING;
+    private int ringSize = DEFAULT_RING_SIZE;
+    // Numărul de partiții (fire) ale motorului partiționat; implicit câte unul pe procesor
+    private int partitions = Runtime.getRuntime().availableProcessors();
+    // Numărul maxim de chei de idempotență păstrate și cât timp rămâne valabilă o cheie
+    private int idempotencyKeys = DEFAULT_IDEMPOTENCY_KEYS;
+    private long idempotencyTtlMinutes = DEFAULT_IDEMPOTENCY_TTL_MINUTES;
+    
+    /**
+     * Construiește configurația din argumentele primite de BankServer
+     * Primul argument fără prefix este interpretat ca port (compatibilitate)
+     */
+    public static ServerConfig fromArgs(String[] args) {
+        ServerConfig config = new ServerConfig();
+        
+        for (int i = 0; i < args.length; i++) {
+            try {
+                if (args[i].equals("-port") && i + 1 < args.length) {
+                    config.port = Integer.parseInt(args[++i]);
+                } else if (args[i].equals("-journalBatch") && i + 1 < args.length) {
+                    config.journalMaxBatch = Math.max(1, Integer.parseInt(args[++i]));
+                } else if (args[i].equals("-journalWaitMicros") && i + 1 < args.length) {
+                    config.journalMaxWaitMicros = Math.max(0, Long.parseLong(args[++i]));
+                } else if (args[i].equals("-checkpointSeconds") && i + 1 < args.length) {
+                    config.checkpointIntervalSeconds = Math.max(1, Long.parseLong(args[++i]));
+                } else if (args[i].equals("-checkpointJournalMb") && i + 1 < args.length) {
+                    config.checkpointJournalBytes = Math.max(1, Long.parseLong(args[++i])) * 1024 * 1024;
+                } else if (args[i].equals("-snapshotFormat") && i + 1 < args.length) {
+                    String format = args[++i];
+                    if (format.equals(SNAPSHOT_FORMAT_BINARY) || format.equals(SNAPSHOT_FORMAT_JAVA)) {
+                        config.snapshotFormat = format;
+                    } else {
+                        System.err.println("Format de snapshot necunoscut: " + format + ". Se folosește "
+                            + SNAPSHOT_FORMAT_BINARY + ".");
+                    }
+                } else if (args[i].equals("-storage") && i + 1 < args.length) {
+                    String storage = args[++i];
+                    if (storage.equals(STORAGE_HEAP) || storage.equals(STORAGE_MMAP)) {
+                        config.storage = storage;
+                    } else {
+                        System.err.println("Mod de stocare necunoscut: " + storage + ". Se folosește "
+                            + STORAGE_HEAP + ".");
+                    }
+                } else if (args[i].equals("-historyCachePages") && i + 1 < args.length) {
+                    config.historyCachePages = Math.max(1, Integer.parseInt(args[++i]));
+                } else if (args[i].equals("-accountCache") && i + 1 < args.length) {
+                    config.accountCache = Math.max(0, Integer.parseInt(args[++i]));
+                } else if (args[i].equals("-engine") && i + 1 < args.length) {
+                    String engine = args[++i];
+                    if (engine.equals(ENGINE_LOCKING) || engine.equals(ENGINE_SEQUENCER)
+                            || engine.equals(ENGINE_PARTITIONED)) {
+                        config.engine = engine;
+                    } else {
+                        System.err.println("Motor de execuție necunoscut: " + engine + ". Se folosește "
+                            + ENGINE_LOCKING + ".");
+                    }
+                } else if (args[i].equals("-ringSize") && i + 1 < args.length) {
+                    config.ringSize = Math.min(1 << 20, Math.max(2, Integer.parseInt(args[++i])));
+                } else if (args[i].equals("-partitions") && i + 1 < args.length) {
+                    config.partitions = Math.max(1, Integer.parseInt(args[++i]));
+                } else if (args[i].equals("-idempotencyKeys") && i + 1 < args.length) {
+                    config.idempotencyKeys = Math.max(1, Integer.parseInt(args[++i]));
+                } else if (args[i].equals("-idempotencyTtlMinutes") && i + 1 < args.length) {
+                    config.idempotencyTtlMinutes = Math.max(1, Long.parseLong(args[++i]));
+                } else if (!args[i].startsWith("-")) {
+                    config.port = Integer.parseInt(args[i]);
+                } else {
+                    System.err.println("Argument necunoscut ignorat: " + args[i]);
+                }
+            } catch (NumberFormatException e) {
+                System.err.println("Valoare invalidă pentru " + args[i] + ". Se folosește valoarea implicită.");
+            }
+        }
+        
+        return config;
+    }
+    
+    public int getPort() {
+        return port;
+    }
+    
+    public int getJournalMaxBatch() {
+        return journalMaxBatch;
+    }
+    
+    public long getJournalMaxWaitMicros() {
+        return journalMaxWaitMicros;
+    }
+    
+    public long getCheckpointIntervalSeconds() {
+        return checkpointIntervalSeconds;
+    }
+    
+    public long getCheckpointJournalBytes() {
+        return checkpointJournalBytes;
+    }
+    
+    public String getSnapshotFormat() {
+        return snapshotFormat;
+    }
+    
+    public String getStorage() {
+        return storage;
+    }
+    
+    public int getHistoryCachePages() {
+        return historyCachePages;
+    }
+    
+    public int getAccountCache() {
+        return accountCache;
+    }
+    
+    public String getEngine() {
+        return engine;
+    }
+    
+    public int getRingSize() {
+        return ringSize;
+    }
+    
+    public int getPartitions() {
+        return partitions;
+    }
+    
+    public int getIdempotencyKeys() {
+        return idempotencyKeys;
+    }
+    
+    public long getIdempotencyTtlMinutes() {
+        return idempotencyTtlMinutes;
+    }
+}
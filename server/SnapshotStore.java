@@ -0,0 +1,57 @@
+package server;
+
+import common.Account;
+import java.io.IOException;
+import java.util.Map;
+
+/**
+ * Citește și scrie snapshot-ul complet al conturilor
+ * Formatul este ales din configurație (-snapshotFormat binary|java).
+ */
+public interface SnapshotStore {
+    
+    /**
+     * Conținutul unui snapshot încărcat de pe disc
+     */
+    class Snapshot {
+        private final Map<String, Account> accounts;
+        private final long nextAccountNumber;
+        private final long lsn;
+        
+        public Snapshot(Map<String, Account> accounts, long nextAccountNumber, long lsn) {
+            this.accounts = accounts;
+            this.nextAccountNumber = nextAccountNumber;
+            this.lsn = lsn;
+        }
+        
+        public Map<String, Account> getAccounts() {
+            return accounts;
+        }
+        
+        public long getNextAccountNumber() {
+            return nextAccountNumber;
+        }
+        
+        public long getLsn() {
+            return lsn;
+        }
+    }
+    
+    /**
+     * Încarcă snapshot-ul de pe disc
+     * @return snapshot-ul sau null dacă nu există
+     */
+    Snapshot load() throws IOException;
+    
+    /**
+     * Scrie un snapshot nou pe disc, înlocuindu-l atomic pe cel vechi
+     * @param lsn LSN-ul până la care jurnalul este inclus în snapshot
+     * @return numărul de octeți scriși
+     */
+    long write(Map<String, Account> accounts, long nextAccountNumber, long lsn) throws IOException;
+    
+    /**
+     * Redenumește fișierele (.migrated) după ce snapshot-ul a fost mutat în alt format
+     */
+    void markMigrated() throws IOException;
+}
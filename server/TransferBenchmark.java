@@ -0,0 +1,172 @@
+package server;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.nio.file.*;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Stream;
+
+/**
+ * Benchmark de scalabilitate pentru transferuri: măsoară debitul cu 1, 2, 4 ... N fire
+ * Serviciul rulează în același proces (fără RMI), cu datele într-un director temporar,
+ * astfel încât datele reale din data/ nu sunt atinse.
+ *
+ * Exemple:
+ *   java server.TransferBenchmark
+ *   java server.TransferBenchmark -threads 16 -accounts 10000 -seconds 5 -journalWaitMicros 0
+ *
+ * Argumentele necunoscute de benchmark sunt transmise mai departe către ServerConfig.
+ * Jurnalul de operațiuni afișat de server în consolă este suprimat pe durata măsurătorilor.
+ */
+public class TransferBenchmark {
+    
+    private static final String PIN = "1234";
+    private static final double INITIAL_BALANCE = 1000000;
+    
+    public static void main(String[] args) throws Exception {
+        int maxThreads = Runtime.getRuntime().availableProcessors();
+        int accountCount = 1000;
+        int seconds = 3;
+        List<String> serverArgs = new ArrayList<>();
+        
+        for (int i = 0; i < args.length; i++) {
+            if (args[i].equals("-threads") && i + 1 < args.length) {
+                maxThreads = Math.max(1, Integer.parseInt(args[++i]));
+            } else if (args[i].equals("-accounts") && i + 1 < args.length) {
+                accountCount = Math.max(2, Integer.parseInt(args[++i]));
+            } else if (args[i].equals("-seconds") && i + 1 < args.length) {
+                seconds = Math.max(1, Integer.parseInt(args[++i]));
+            } else {
+                serverArgs.add(args[i]);
+            }
+        }
+        
+        PrintStream report = System.out;
+        System.setOut(new PrintStream(new OutputStream() {
+            @Override
+            public void write(int b) {
+            }
+        }));
+        
+        Path dataDir = Files.createTempDirectory("bank-benchmark");
+        System.setProperty(BankServiceImpl.DATA_DIR_PROPERTY, dataDir.toString());
+        ServerConfig config = ServerConfig.fromArgs(serverArgs.toArray(new String[0]));
+        BankServiceImpl service = new BankServiceImpl(config);
+        
+        try {
+            String[] accounts = createAccounts(service, accountCount, maxThreads);
+            report.println("Transferuri între " + accountCount + " conturi, " + seconds + " s per treaptă");
+            report.println(String.format("%8s %14s %10s", "Fire", "Operațiuni/s", "Accelerare"));
+            
+            double baseline = 0;
+            for (int threads = 1; threads <= maxThreads; threads = nextStep(threads, maxThreads)) {
+                double throughput = run(service, accounts, threads, seconds);
+                if (baseline == 0) {
+                    baseline = throughput;
+                }
+                report.println(String.format("%8d %14.0f %9.2fx", threads, throughput, throughput / baseline));
+            }
+        } finally {
+            service.shutdown();
+            deleteRecursively(dataDir);
+        }
+        System.exit(0);
+    }
+    
+    private static int nextStep(int threads, int maxThreads) {
+        if (threads == maxThreads) {
+            return maxThreads + 1;
+        }
+        return Math.min(threads * 2, maxThreads);
+    }
+    
+    private static String[] createAccounts(BankServiceImpl service, int count, int threads) throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            List<Future<String>> futures = new ArrayList<>();
+            for (int i = 0; i < count; i++) {
+                futures.add(executor.submit(() -> service.createAccount("Benchmark", PIN, INITIAL_BALANCE)));
+            }
+            String[] accounts = new String[count];
+            for (int i = 0; i < count; i++) {
+                accounts[i] = futures.get(i).get();
+            }
+            return accounts;
+        } finally {
+            executor.shutdown();
+        }
+    }
+    
+    /**
+     * Rulează transferuri aleatorii de 1 RON între conturi distincte timp de câteva secunde
+     * @return numărul de transferuri reușite pe secundă
+     */
+    static double run(BankServiceImpl service, String[] accounts, int threads, int seconds) 
+            throws InterruptedException {
+        LongAdder completed = new LongAdder();
+        LongAdder failed = new LongAdder();
+        AtomicBoolean running = new AtomicBoolean(true);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Thread> workers = new ArrayList<>();
+        
+        for (int t = 0; t < threads; t++) {
+            Thread worker = new Thread(() -> {
+                ThreadLocalRandom random = ThreadLocalRandom.current();
+                try {
+                    start.await();
+                } catch (InterruptedException e) {
+                    return;
+                }
+                while (running.get()) {
+                    int from = random.nextInt(accounts.length);
+                    int to = random.nextInt(accounts.length - 1);
+                    if (to >= from) {
+                        to++;
+                    }
+                    try {
+                        service.transfer(accounts[from], PIN, accounts[to], 1);
+                        completed.increment();
+                    } catch (Exception e) {
+                        failed.increment();
+                    }
+                }
+            }, "benchmark-" + t);
+            worker.start();
+            workers.add(worker);
+        }
+        
+        long startNanos = System.nanoTime();
+        start.countDown();
+        Thread.sleep(TimeUnit.SECONDS.toMillis(seconds));
+        running.set(false);
+        for (Thread worker : workers) {
+            worker.join();
+        }
+        double elapsed = (System.nanoTime() - startNanos) / 1e9;
+        
+        if (failed.sum() > 0) {
+            System.err.println("Transferuri eșuate: " + failed.sum());
+        }
+        return completed.sum() / elapsed;
+    }
+    
+    private static void deleteRecursively(Path dir) {
+        try (Stream<Path> paths = Files.walk(dir)) {
+            paths.sorted(Comparator.reverseOrder()).forEach(path -> {
+                try {
+                    Files.delete(path);
+                } catch (IOException e) {
+                    System.err.println("Nu s-a putut șterge " + path);
+                }
+            });
+        } catch (IOException e) {
+            System.err.println("Nu s-a putut șterge directorul temporar " + dir);
+        }
+    }
+}
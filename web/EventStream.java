@@ -0,0 +1,190 @@
+package web;
+
+import com.sun.net.httpserver.HttpExchange;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Un flux server-sent events (text/event-stream) deschis pe un răspuns HTTP
+ *
+ * Antetele sunt trimise la deschidere, iar corpul rămâne deschis, cu transfer "chunked".
+ * Fiecare eveniment are un nume, un id (versiunea contului) și o singură linie "data:" cu
+ * un obiect JSON; JSON-ul scris de JsonStreamWriter nu conține sfârșituri de linie, deci
+ * nu trebuie împărțit. Comentariile (": ping") țin conexiunea activă prin proxy-uri și
+ * arată clientului că serverul încă răspunde.
+ *
+ * Scrierile sunt blocante: apelantul trimite următorul eveniment doar după ce precedentul
+ * a plecat, astfel încât un client lent nu acumulează evenimente în memoria serverului.
+ * O scriere care nu se termină în writeTimeoutMillis (clientul nu mai citește) este
+ * întreruptă: firul care scrie primește întreruperea, canalul conexiunii se închide, iar
+ * scrierea eșuează cu IOException.
+ */
+public class EventStream implements Closeable {
+    
+    private static final ScheduledThreadPoolExecutor WRITE_TIMEOUTS = newTimeoutScheduler();
+    
+    private final HttpExchange exchange;
+    private final OutputStream out;
+    private final JsonStreamWriter json;
+    private final long writeTimeoutMillis;
+    
+    // Firul care scrie în acest moment (null între scrieri) și dacă scrierea lui a expirat;
+    // ambele se modifică sub lock, ca întreruperea să nu ajungă după încheierea scrierii
+    private Thread writer;
+    private boolean timedOut;
+    // Numărul scrierii curente: un termen expirat nu întrerupe o scriere începută ulterior
+    private long writes;
+    private ScheduledFuture<?> timeout;
+    
+    private EventStream(HttpExchange exchange, long writeTimeoutMillis) {
+        this.exchange = exchange;
+        this.out = exchange.getResponseBody();
+        this.json = new JsonStreamWriter(out);
+        this.writeTimeoutMillis = writeTimeoutMillis;
+    }
+    
+    private static ScheduledThreadPoolExecutor newTimeoutScheduler() {
+        ScheduledThreadPoolExecutor scheduler = new ScheduledThreadPoolExecutor(1, r -> {
+            Thread thread = new Thread(r, "sse-write-timeout");
+            thread.setDaemon(true);
+            return thread;
+        });
+        scheduler.setRemoveOnCancelPolicy(true);
+        return scheduler;
+    }
+    
+    /**
+     * Trimite antetele fluxului și intervalul de reconectare recomandat clientului
+     * @param writeTimeoutMillis timpul maxim pentru trimiterea unui eveniment
+     */
+    public static EventStream open(HttpExchange exchange, long retryMillis, long writeTimeoutMillis)
+            throws IOException {
+        exchange.getResponseHeaders().set("Content-Type", "text/event-stream; charset=UTF-8");
+        exchange.getResponseHeaders().set("Cache-Control", "no-cache");
+        // Proxy-urile care acumulează răspunsul ar întârzia evenimentele
+        exchange.getResponseHeaders().set("X-Accel-Buffering", "no");
+        // Lungimea 0 înseamnă transfer "chunked"
+        exchange.sendResponseHeaders(200, 0);
+        EventStream stream = new EventStream(exchange, writeTimeoutMillis);
+        stream.beginWrite();
+        try {
+            stream.writeLine("retry: " + retryMillis);
+            stream.writeLine("");
+            stream.out.flush();
+        } finally {
+            stream.endWrite();
+        }
+        return stream;
+    }
+    
+    /**
+     * Începe un eveniment; datele lui se scriu în JSON-ul returnat, apoi se apelează endEvent()
+     * Termenul scrierii începe aici și se încheie la endEvent().
+     */
+    public JsonStreamWriter beginEvent(String name, long id) throws IOException {
+        beginWrite();
+        try {
+            writeLine("event: " + name);
+            writeLine("id: " + id);
+            write("data: ");
+        } catch (IOException | RuntimeException e) {
+            endWrite();
+            throw e;
+        }
+        return json;
+    }
+    
+    /**
+     * Încheie evenimentul curent și îl trimite clientului
+     */
+    public void endEvent() throws IOException {
+        try {
+            json.flush();
+            writeLine("");
+            writeLine("");
+            out.flush();
+        } finally {
+            endWrite();
+        }
+    }
+    
+    /**
+     * Un comentariu, ignorat de client (folosit ca heartbeat)
+     */
+    public void comment(String text) throws IOException {
+        beginWrite();
+        try {
+            writeLine(": " + text);
+            writeLine("");
+            out.flush();
+        } finally {
+            endWrite();
+        }
+    }
+    
+    /**
+     * Închide fluxul; o scriere abandonată (de exemplu după o eroare în JSON) nu mai poate fi întreruptă
+     */
+    @Override
+    public void close() {
+        synchronized (this) {
+            writer = null;
+        }
+        if (timeout != null) {
+            timeout.cancel(false);
+        }
+        exchange.close();
+    }
+    
+    private void beginWrite() {
+        long write;
+        synchronized (this) {
+            writer = Thread.currentThread();
+            timedOut = false;
+            write = ++writes;
+        }
+        timeout = WRITE_TIMEOUTS.schedule(() -> expire(write), writeTimeoutMillis, TimeUnit.MILLISECONDS);
+    }
+    
+    /**
+     * Întrerupe scrierea dacă este tot cea pentru care a fost programat termenul
+     */
+    private synchronized void expire(long write) {
+        if (writer != null && writes == write) {
+            timedOut = true;
+            writer.interrupt();
+        }
+    }
+    
+    /**
+     * Încheie termenul scrierii curente
+     * @throws IOException dacă scrierea a expirat (chiar dacă a reușit în ultimul moment)
+     */
+    private void endWrite() throws IOException {
+        timeout.cancel(false);
+        boolean expired;
+        synchronized (this) {
+            writer = null;
+            expired = timedOut;
+        }
+        if (expired) {
+            // Întreruperea a fost trimisă sub lock, deci a ajuns deja; nu o lăsăm firului pentru sarcina următoare
+            Thread.interrupted();
+            throw new IOException("Clientul nu a citit evenimentul în " + writeTimeoutMillis + " ms");
+        }
+    }
+    
+    private void writeLine(String line) throws IOException {
+        write(line);
+        out.write('\n');
+    }
+    
+    private void write(String text) throws IOException {
+        out.write(text.getBytes(StandardCharsets.UTF_8));
+    }
+}
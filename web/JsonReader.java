@@ -0,0 +1,551 @@
+package web;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Cititor JSON într-o singură trecere, direct peste octeții UTF-8 ai cererii
+ *
+ * Textul este parcurs o singură dată, de la stânga la dreapta, fără expresii regulate și fără
+ * o copie String a întregului corp. Se creează obiecte doar pentru valorile citite: numele
+ * câmpurilor și șirurile (decodate din UTF-8, cu secvențele escape rezolvate). Obiectele și
+ * vectorii imbricați sunt citiți cu beginObject/beginArray sau ca arbore cu readValue().
+ *
+ * Exemplu:
+ *   reader.beginObject();
+ *   while (reader.hasNext()) {
+ *       String name = reader.nextName();
+ *       if (name.equals("legs")) { reader.beginArray(); ... reader.endArray(); }
+ *       else reader.skipValue();
+ *   }
+ *   reader.endObject();
+ */
+public class JsonReader {
+    
+    // Corpul maxim acceptat al unei cereri
+    public static final int MAX_BODY_BYTES = 1 << 20;
+    private static final int MAX_DEPTH = 64;
+    
+    /**
+     * Tipul următoarei valori (sau al următorului element de structură)
+     */
+    public enum Token {
+        BEGIN_OBJECT, END_OBJECT, BEGIN_ARRAY, END_ARRAY, NAME, STRING, NUMBER, BOOLEAN, NULL, END_DOCUMENT
+    }
+    
+    /**
+     * JSON invalid; mesajul conține poziția (în octeți) la care a fost găsită eroarea
+     */
+    public static class MalformedJsonException extends IOException {
+        private static final long serialVersionUID = 1L;
+        
+        MalformedJsonException(String message) {
+            super(message);
+        }
+    }
+    
+    // Contextul fiecărui nivel deschis
+    private static final byte EMPTY_OBJECT = 1;
+    private static final byte OBJECT_VALUE = 2;
+    private static final byte NONEMPTY_OBJECT = 3;
+    private static final byte EMPTY_ARRAY = 4;
+    private static final byte NONEMPTY_ARRAY = 5;
+    private static final byte EMPTY_DOCUMENT = 6;
+    private static final byte NONEMPTY_DOCUMENT = 7;
+    
+    private final byte[] data;
+    private final int limit;
+    private int position;
+    private final byte[] stack = new byte[MAX_DEPTH + 1];
+    private int depth;
+    // Tokenul deja identificat de peek() și neconsumat încă
+    private Token peeked;
+    
+    public JsonReader(byte[] data, int offset, int length) {
+        this.data = data;
+        this.position = offset;
+        this.limit = offset + length;
+        stack[depth++] = EMPTY_DOCUMENT;
+    }
+    
+    /**
+     * Citește tot corpul unei cereri (cel mult MAX_BODY_BYTES) într-un cititor
+     */
+    public static JsonReader of(InputStream in) throws IOException {
+        byte[] buffer = new byte[1024];
+        int length = 0;
+        int read;
+        while ((read = in.read(buffer, length, buffer.length - length)) != -1) {
+            length += read;
+            if (length == buffer.length) {
+                if (buffer.length >= MAX_BODY_BYTES) {
+                    throw new MalformedJsonException("Corpul cererii depășește " + MAX_BODY_BYTES + " octeți");
+                }
+                buffer = Arrays.copyOf(buffer, Math.min(buffer.length * 2, MAX_BODY_BYTES));
+            }
+        }
+        return new JsonReader(buffer, 0, length);
+    }
+    
+    /**
+     * Câmpurile simple ale unui obiect JSON (șiruri, numere, true/false) ca text
+     * Câmpurile null lipsesc din rezultat; obiectele și vectorii imbricați sunt ignorați
+     * (se citesc cu metodele de parcurgere). Un corp gol dă un rezultat gol.
+     */
+    public Map<String, String> readFlatObject() throws IOException {
+        Map<String, String> result = new HashMap<>();
+        if (peek() == Token.END_DOCUMENT) {
+            return result;
+        }
+        beginObject();
+        while (hasNext()) {
+            String name = nextName();
+            switch (peek()) {
+                case STRING:
+                case NUMBER:
+                case BOOLEAN:
+                    result.put(name, nextString());
+                    break;
+                default:
+                    skipValue();
+            }
+        }
+        endObject();
+        expectEnd();
+        return result;
+    }
+    
+    /**
+     * Următorul token, fără a-l consuma
+     */
+    public Token peek() throws IOException {
+        if (peeked != null) {
+            return peeked;
+        }
+        byte context = stack[depth - 1];
+        int c;
+        switch (context) {
+            case EMPTY_ARRAY:
+                stack[depth - 1] = NONEMPTY_ARRAY;
+                if (nextNonWhitespace() == ']') {
+                    return peeked = Token.END_ARRAY;
+                }
+                break;
+            case NONEMPTY_ARRAY:
+                c = nextNonWhitespace();
+                if (c == ']') {
+                    return peeked = Token.END_ARRAY;
+                }
+                expect(c, ',');
+                position++;
+                break;
+            case EMPTY_OBJECT:
+            case NONEMPTY_OBJECT:
+                c = nextNonWhitespace();
+                if (c == '}') {
+                    return peeked = Token.END_OBJECT;
+                }
+                if (context == NONEMPTY_OBJECT) {
+                    expect(c, ',');
+                    position++;
+                    c = nextNonWhitespace();
+                }
+                expect(c, '"');
+                stack[depth - 1] = OBJECT_VALUE;
+                return peeked = Token.NAME;
+            case OBJECT_VALUE:
+                c = nextNonWhitespace();
+                expect(c, ':');
+                position++;
+                stack[depth - 1] = NONEMPTY_OBJECT;
+                break;
+            case EMPTY_DOCUMENT:
+                stack[depth - 1] = NONEMPTY_DOCUMENT;
+                break;
+            default:
+                if (nextNonWhitespace() == -1) {
+                    return peeked = Token.END_DOCUMENT;
+                }
+                throw error("Text după sfârșitul documentului JSON");
+        }
+        
+        c = nextNonWhitespace();
+        switch (c) {
+            case '{':
+                return peeked = Token.BEGIN_OBJECT;
+            case '[':
+                return peeked = Token.BEGIN_ARRAY;
+            case '"':
+                return peeked = Token.STRING;
+            case 't':
+            case 'f':
+                return peeked = Token.BOOLEAN;
+            case 'n':
+                return peeked = Token.NULL;
+            case -1:
+                if (context == EMPTY_DOCUMENT) {
+                    return peeked = Token.END_DOCUMENT;
+                }
+                throw error("Document JSON incomplet");
+            default:
+                if (c == '-' || c >= '0' && c <= '9') {
+                    return peeked = Token.NUMBER;
+                }
+                throw error("Caracter neașteptat '" + (char) c + "'");
+        }
+    }
+    
+    /**
+     * Dacă obiectul sau vectorul curent mai are elemente
+     */
+    public boolean hasNext() throws IOException {
+        Token token = peek();
+        return token != Token.END_OBJECT && token != Token.END_ARRAY && token != Token.END_DOCUMENT;
+    }
+    
+    public void beginObject() throws IOException {
+        consume(Token.BEGIN_OBJECT);
+        position++;
+        push(EMPTY_OBJECT);
+    }
+    
+    public void endObject() throws IOException {
+        consume(Token.END_OBJECT);
+        position++;
+        depth--;
+    }
+    
+    public void beginArray() throws IOException {
+        consume(Token.BEGIN_ARRAY);
+        position++;
+        push(EMPTY_ARRAY);
+    }
+    
+    public void endArray() throws IOException {
+        consume(Token.END_ARRAY);
+        position++;
+        depth--;
+    }
+    
+    public String nextName() throws IOException {
+        consume(Token.NAME);
+        return readString();
+    }
+    
+    /**
+     * Valoarea unui șir, a unui număr (textul lui din cerere) sau a unui boolean ("true"/"false")
+     */
+    public String nextString() throws IOException {
+        Token token = peek();
+        if (token == Token.STRING) {
+            peeked = null;
+            return readString();
+        }
+        if (token == Token.NUMBER) {
+            peeked = null;
+            int start = position;
+            skipNumber();
+            return new String(data, start, position - start, StandardCharsets.US_ASCII);
+        }
+        if (token == Token.BOOLEAN) {
+            return nextBoolean() ? "true" : "false";
+        }
+        throw error("Se aștepta un șir, dar urmează " + token);
+    }
+    
+    public long nextLong() throws IOException {
+        String text = nextString();
+        try {
+            return Long.parseLong(text);
+        } catch (NumberFormatException e) {
+            throw error("Număr întreg invalid: " + text);
+        }
+    }
+    
+    public double nextDouble() throws IOException {
+        String text = nextString();
+        try {
+            return Double.parseDouble(text);
+        } catch (NumberFormatException e) {
+            throw error("Număr invalid: " + text);
+        }
+    }
+    
+    public boolean nextBoolean() throws IOException {
+        consume(Token.BOOLEAN);
+        if (matches("true")) {
+            return true;
+        }
+        if (matches("false")) {
+            return false;
+        }
+        throw error("Valoare invalidă");
+    }
+    
+    public void nextNull() throws IOException {
+        consume(Token.NULL);
+        if (!matches("null")) {
+            throw error("Valoare invalidă");
+        }
+    }
+    
+    /**
+     * Sare peste valoarea următoare, inclusiv peste obiectele și vectorii imbricați
+     */
+    public void skipValue() throws IOException {
+        int level = 0;
+        do {
+            switch (peek()) {
+                case BEGIN_OBJECT:
+                    beginObject();
+                    level++;
+                    break;
+                case BEGIN_ARRAY:
+                    beginArray();
+                    level++;
+                    break;
+                case END_OBJECT:
+                    endObject();
+                    level--;
+                    break;
+                case END_ARRAY:
+                    endArray();
+                    level--;
+                    break;
+                case NAME:
+                    nextName();
+                    break;
+                case NULL:
+                    nextNull();
+                    break;
+                case END_DOCUMENT:
+                    throw error("Document JSON incomplet");
+                default:
+                    nextString();
+            }
+        } while (level > 0);
+    }
+    
+    /**
+     * Valoarea următoare ca arbore: Map (obiect, cu ordinea câmpurilor), List (vector),
+     * String (șir sau textul unui număr), Boolean sau null
+     */
+    public Object readValue() throws IOException {
+        switch (peek()) {
+            case BEGIN_OBJECT:
+                Map<String, Object> object = new LinkedHashMap<>();
+                beginObject();
+                while (hasNext()) {
+                    String name = nextName();
+                    object.put(name, readValue());
+                }
+                endObject();
+                return object;
+            case BEGIN_ARRAY:
+                List<Object> array = new ArrayList<>();
+                beginArray();
+                while (hasNext()) {
+                    array.add(readValue());
+                }
+                endArray();
+                return array;
+            case BOOLEAN:
+                return nextBoolean();
+            case NULL:
+                nextNull();
+                return null;
+            default:
+                return nextString();
+        }
+    }
+    
+    /**
+     * Verifică faptul că după valoarea citită nu mai urmează nimic
+     */
+    public void expectEnd() throws IOException {
+        if (peek() != Token.END_DOCUMENT) {
+            throw error("Text după sfârșitul documentului JSON");
+        }
+    }
+    
+    private void consume(Token expected) throws IOException {
+        Token token = peek();
+        if (token != expected) {
+            throw error("Se aștepta " + expected + ", dar urmează " + token);
+        }
+        peeked = null;
+    }
+    
+    private void push(byte context) throws IOException {
+        if (depth > MAX_DEPTH) {
+            throw error("Document JSON prea adânc");
+        }
+        stack[depth++] = context;
+    }
+    
+    /**
+     * Un șir care începe la poziția curentă (ghilimeaua de deschidere)
+     * Porțiunile fără secvențe escape sunt decodate direct din octeții cererii.
+     */
+    private String readString() throws IOException {
+        int start = ++position;
+        boolean ascii = true;
+        while (position < limit) {
+            int b = data[position] & 0xFF;
+            if (b == '"') {
+                String text = new String(data, start, position - start,
+                    ascii ? StandardCharsets.US_ASCII : StandardCharsets.UTF_8);
+                position++;
+                return text;
+            }
+            if (b == '\\') {
+                return readEscapedString(start);
+            }
+            if (b < 0x20) {
+                throw error("Caracter de control în șir");
+            }
+            if (b >= 0x80) {
+                ascii = false;
+            }
+            position++;
+        }
+        throw error("Șir neterminat");
+    }
+    
+    private String readEscapedString(int start) throws IOException {
+        StringBuilder text = new StringBuilder(position - start + 16);
+        int run = start;
+        while (position < limit) {
+            int b = data[position] & 0xFF;
+            if (b == '"') {
+                text.append(new String(data, run, position - run, StandardCharsets.UTF_8));
+                position++;
+                return text.toString();
+            }
+            if (b < 0x20) {
+                throw error("Caracter de control în șir");
+            }
+            if (b != '\\') {
+                position++;
+                continue;
+            }
+            // Secvențele escape sunt ASCII, deci nu pot despărți o secvență UTF-8
+            text.append(new String(data, run, position - run, StandardCharsets.UTF_8));
+            if (++position >= limit) {
+                break;
+            }
+            char escaped = (char) data[position++];
+            switch (escaped) {
+                case '"': case '\\': case '/': text.append(escaped); break;
+                case 'b': text.append('\b'); break;
+                case 'f': text.append('\f'); break;
+                case 'n': text.append('\n'); break;
+                case 'r': text.append('\r'); break;
+                case 't': text.append('\t'); break;
+                case 'u':
+                    if (position + 4 > limit) {
+                        throw error("Secvență unicode incompletă");
+                    }
+                    int value = 0;
+                    for (int i = 0; i < 4; i++) {
+                        int digit = Character.digit(data[position++], 16);
+                        if (digit < 0) {
+                            throw error("Secvență unicode invalidă");
+                        }
+                        value = value << 4 | digit;
+                    }
+                    text.append((char) value);
+                    break;
+                default:
+                    throw error("Secvență escape invalidă '\\" + escaped + "'");
+            }
+            run = position;
+        }
+        throw error("Șir neterminat");
+    }
+    
+    /**
+     * Sare peste un număr, verificând forma lui: -?(0|[1-9][0-9]*)(.[0-9]+)?([eE][+-]?[0-9]+)?
+     */
+    private void skipNumber() throws IOException {
+        if (current() == '-') {
+            position++;
+        }
+        if (current() == '0') {
+            position++;
+        } else if (!skipDigits()) {
+            throw error("Număr invalid");
+        }
+        if (current() == '.') {
+            position++;
+            if (!skipDigits()) {
+                throw error("Număr invalid");
+            }
+        }
+        if (current() == 'e' || current() == 'E') {
+            position++;
+            if (current() == '+' || current() == '-') {
+                position++;
+            }
+            if (!skipDigits()) {
+                throw error("Număr invalid");
+            }
+        }
+    }
+    
+    private boolean skipDigits() {
+        int start = position;
+        while (current() >= '0' && current() <= '9') {
+            position++;
+        }
+        return position > start;
+    }
+    
+    private boolean matches(String literal) {
+        if (position + literal.length() > limit) {
+            return false;
+        }
+        for (int i = 0; i < literal.length(); i++) {
+            if (data[position + i] != literal.charAt(i)) {
+                return false;
+            }
+        }
+        position += literal.length();
+        return true;
+    }
+    
+    private int current() {
+        return position < limit ? data[position] & 0xFF : -1;
+    }
+    
+    /**
+     * Sare peste spații și returnează următorul caracter, fără a-l consuma (-1 la final)
+     */
+    private int nextNonWhitespace() {
+        while (position < limit) {
+            int c = data[position] & 0xFF;
+            if (c != ' ' && c != '\n' && c != '\r' && c != '\t') {
+                return c;
+            }
+            position++;
+        }
+        return -1;
+    }
+    
+    private void expect(int c, char expected) throws IOException {
+        if (c != expected) {
+            throw error(c == -1 ? "Document JSON incomplet" : "Se aștepta '" + expected + "'");
+        }
+    }
+    
+    private MalformedJsonException error(String message) {
+        return new MalformedJsonException("JSON invalid la poziția " + position + ": " + message);
+    }
+}
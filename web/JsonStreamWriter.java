@@ -0,0 +1,277 @@
+package web;
+
+import com.sun.net.httpserver.HttpExchange;
+import common.Formatting;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Scrie corpul JSON al unui răspuns HTTP direct în fluxul de ieșire, în UTF-8
+ *
+ * Textul este codificat într-un buffer fix, fără String-uri intermediare pentru întregul
+ * răspuns. Dacă răspunsul încape în buffer, este trimis la close() cu lungime fixă; altfel
+ * antetele sunt trimise la prima umplere a buffer-ului și corpul continuă cu transfer
+ * "chunked" (comprimat gzip, dacă clientul acceptă). Memoria folosită nu depinde de mărimea
+ * răspunsului, iar primii octeți pleacă înainte ca răspunsul să fie complet.
+ *
+ * Virgulele dintre elemente sunt adăugate automat:
+ *   json.beginObject().name("success").value(true).name("ids").beginArray()...endArray().endObject();
+ */
+public class JsonStreamWriter implements Closeable {
+    
+    private static final int BUFFER_SIZE = 8192;
+    // Cea mai lungă secvență scrisă pentru un caracter (un caracter de control, ca escape unicode)
+    private static final int MAX_CHAR_BYTES = 6;
+    private static final int MAX_DEPTH = 32;
+    private static final byte[] HEX = "0123456789abcdef".getBytes();
+    
+    private final HttpExchange exchange;
+    private final int status;
+    private final byte[] buffer = new byte[BUFFER_SIZE];
+    private int position;
+    // null până la trimiterea antetelor (răspunsul încă poate avea lungime fixă)
+    private OutputStream out;
+    
+    // Pentru fiecare nivel deschis: dacă următorul element este primul (fără virgulă în față)
+    private final boolean[] first = new boolean[MAX_DEPTH];
+    private int depth;
+    private boolean afterName;
+    private final byte[] digits = new byte[20];
+    private final StringBuilder amount = new StringBuilder(24);
+    
+    public JsonStreamWriter(HttpExchange exchange, int status) {
+        this.exchange = exchange;
+        this.status = status;
+    }
+    
+    /**
+     * Scrie JSON într-un flux deja deschis, fără antete HTTP (de exemplu datele unui eveniment SSE)
+     * Textul pleacă la flush(); fluxul nu este închis de acest obiect.
+     */
+    public JsonStreamWriter(OutputStream out) {
+        this.exchange = null;
+        this.status = 0;
+        this.out = out;
+    }
+    
+    public JsonStreamWriter beginObject() throws IOException {
+        separator();
+        writeByte('{');
+        push();
+        return this;
+    }
+    
+    public JsonStreamWriter endObject() throws IOException {
+        return pop('}');
+    }
+    
+    public JsonStreamWriter beginArray() throws IOException {
+        separator();
+        writeByte('[');
+        push();
+        return this;
+    }
+    
+    public JsonStreamWriter endArray() throws IOException {
+        return pop(']');
+    }
+    
+    /**
+     * Numele următorului câmp din obiectul curent
+     */
+    public JsonStreamWriter name(String name) throws IOException {
+        separator();
+        writeString(name);
+        writeByte(':');
+        afterName = true;
+        return this;
+    }
+    
+    public JsonStreamWriter value(String value) throws IOException {
+        separator();
+        if (value == null) {
+            writeAscii("null");
+        } else {
+            writeString(value);
+        }
+        return this;
+    }
+    
+    public JsonStreamWriter value(long value) throws IOException {
+        separator();
+        writeLong(value);
+        return this;
+    }
+    
+    public JsonStreamWriter value(boolean value) throws IOException {
+        separator();
+        writeAscii(value ? "true" : "false");
+        return this;
+    }
+    
+    /**
+     * O sumă în bani, ca număr cu două zecimale (ex. 1234.05)
+     */
+    public JsonStreamWriter amount(long bani) throws IOException {
+        separator();
+        amount.setLength(0);
+        writeAscii(Formatting.appendAmount(amount, bani));
+        return this;
+    }
+    
+    /**
+     * Trimite textul scris până acum, fără a închide fluxul
+     */
+    public void flush() throws IOException {
+        flushBuffer();
+        out.flush();
+    }
+    
+    /**
+     * Trimite restul răspunsului și închide fluxul
+     */
+    @Override
+    public void close() throws IOException {
+        if (out == null) {
+            exchange.getResponseHeaders().set("Content-Type", "application/json; charset=UTF-8");
+            exchange.sendResponseHeaders(status, position);
+            out = exchange.getResponseBody();
+        }
+        out.write(buffer, 0, position);
+        position = 0;
+        out.close();
+    }
+    
+    private void push() {
+        if (depth == MAX_DEPTH) {
+            throw new IllegalStateException("JSON prea adânc");
+        }
+        first[depth++] = true;
+    }
+    
+    private JsonStreamWriter pop(char closing) throws IOException {
+        depth--;
+        afterName = false;
+        writeByte(closing);
+        return this;
+    }
+    
+    private void separator() throws IOException {
+        if (afterName) {
+            afterName = false;
+            return;
+        }
+        if (depth > 0) {
+            if (!first[depth - 1]) {
+                writeByte(',');
+            }
+            first[depth - 1] = false;
+        }
+    }
+    
+    private void writeString(String text) throws IOException {
+        writeByte('"');
+        for (int i = 0; i < text.length(); i++) {
+            if (position + MAX_CHAR_BYTES > BUFFER_SIZE) {
+                flushBuffer();
+            }
+            char c = text.charAt(i);
+            if (c == '"' || c == '\\') {
+                buffer[position++] = '\\';
+                buffer[position++] = (byte) c;
+            } else if (c < 0x20) {
+                writeControl(c);
+            } else if (c < 0x80) {
+                buffer[position++] = (byte) c;
+            } else if (c < 0x800) {
+                buffer[position++] = (byte) (0xC0 | (c >> 6));
+                buffer[position++] = (byte) (0x80 | (c & 0x3F));
+            } else if (Character.isHighSurrogate(c) && i + 1 < text.length() &&
+                    Character.isLowSurrogate(text.charAt(i + 1))) {
+                int codePoint = Character.toCodePoint(c, text.charAt(++i));
+                buffer[position++] = (byte) (0xF0 | (codePoint >> 18));
+                buffer[position++] = (byte) (0x80 | ((codePoint >> 12) & 0x3F));
+                buffer[position++] = (byte) (0x80 | ((codePoint >> 6) & 0x3F));
+                buffer[position++] = (byte) (0x80 | (codePoint & 0x3F));
+            } else if (Character.isSurrogate(c)) {
+                // Surogat fără pereche: nu are reprezentare UTF-8 validă
+                buffer[position++] = '?';
+            } else {
+                buffer[position++] = (byte) (0xE0 | (c >> 12));
+                buffer[position++] = (byte) (0x80 | ((c >> 6) & 0x3F));
+                buffer[position++] = (byte) (0x80 | (c & 0x3F));
+            }
+        }
+        writeByte('"');
+    }
+    
+    private void writeControl(char c) {
+        buffer[position++] = '\\';
+        switch (c) {
+            case '\n': buffer[position++] = 'n'; break;
+            case '\r': buffer[position++] = 'r'; break;
+            case '\t': buffer[position++] = 't'; break;
+            case '\b': buffer[position++] = 'b'; break;
+            case '\f': buffer[position++] = 'f'; break;
+            default:
+                buffer[position++] = 'u';
+                buffer[position++] = '0';
+                buffer[position++] = '0';
+                buffer[position++] = HEX[c >> 4];
+                buffer[position++] = HEX[c & 0xF];
+        }
+    }
+    
+    private void writeLong(long value) throws IOException {
+        if (value == Long.MIN_VALUE) {
+            writeAscii(String.valueOf(value));
+            return;
+        }
+        if (value < 0) {
+            writeByte('-');
+            value = -value;
+        }
+        int start = digits.length;
+        do {
+            digits[--start] = (byte) ('0' + value % 10);
+            value /= 10;
+        } while (value != 0);
+        for (int i = start; i < digits.length; i++) {
+            writeByte(digits[i]);
+        }
+    }
+    
+    private void writeAscii(CharSequence text) throws IOException {
+        for (int i = 0; i < text.length(); i++) {
+            writeByte(text.charAt(i));
+        }
+    }
+    
+    private void writeByte(int b) throws IOException {
+        if (position == BUFFER_SIZE) {
+            flushBuffer();
+        }
+        buffer[position++] = (byte) b;
+    }
+    
+    /**
+     * Trimite conținutul buffer-ului; prima dată trimite și antetele, pentru transfer "chunked"
+     */
+    private void flushBuffer() throws IOException {
+        if (out == null) {
+            boolean gzip = StaticAssetCache.acceptsGzip(exchange.getRequestHeaders().getFirst("Accept-Encoding"));
+            exchange.getResponseHeaders().set("Content-Type", "application/json; charset=UTF-8");
+            exchange.getResponseHeaders().set("Vary", "Accept-Encoding");
+            if (gzip) {
+                exchange.getResponseHeaders().set("Content-Encoding", "gzip");
+            }
+            // Lungimea 0 înseamnă transfer "chunked"
+            exchange.sendResponseHeaders(status, 0);
+            out = gzip ? new GZIPOutputStream(exchange.getResponseBody(), BUFFER_SIZE) : exchange.getResponseBody();
+        }
+        out.write(buffer, 0, position);
+        position = 0;
+    }
+}
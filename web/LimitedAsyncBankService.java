@@ -0,0 +1,150 @@
+package web;
+
+import common.*;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Semaphore;
+import java.util.function.Supplier;
+
+/**
+ * Limitează numărul operațiunilor bancare în curs pornite de serverul web
+ *
+ * Fiecare operațiune ocupă un loc până când future-ul ei se finalizează. Când toate locurile
+ * sunt ocupate, operațiunea nu mai este pornită și future-ul eșuează imediat cu
+ * ServiceBusyException (răspuns 503 cu Retry-After), în loc să stea la coadă în spatele
+ * apelurilor RMI lente. Firele cererilor HTTP rămân astfel libere pentru restul traficului.
+ *
+ * Așteptările de actualizări (awaitChangeAsync) au propriul număr de locuri: durează până la
+ * o modificare a contului, deci nu ocupă locurile operațiunilor obișnuite, dar nici nu sunt
+ * pornite peste limita lor (peste ea, ServiceBusyException ca pentru celelalte operațiuni).
+ */
+public class LimitedAsyncBankService implements AsyncBankService {
+    
+    /**
+     * Operațiunea a fost respinsă fiindcă limita de operațiuni simultane era atinsă
+     */
+    public static class ServiceBusyException extends RuntimeException {
+        private static final long serialVersionUID = 1L;
+        
+        ServiceBusyException(String message) {
+            super(message);
+        }
+    }
+    
+    private final AsyncBankService delegate;
+    private final Semaphore permits;
+    private final int limit;
+    private final Semaphore pollPermits;
+    private final int pollLimit;
+    
+    /**
+     * @param limit operațiunile obișnuite în curs acceptate simultan
+     * @param pollLimit așteptările de actualizări în curs acceptate simultan
+     */
+    public LimitedAsyncBankService(AsyncBankService delegate, int limit, int pollLimit) {
+        this.delegate = delegate;
+        this.limit = Math.max(1, limit);
+        this.permits = new Semaphore(this.limit);
+        this.pollLimit = Math.max(1, pollLimit);
+        this.pollPermits = new Semaphore(this.pollLimit);
+    }
+    
+    public int getLimit() {
+        return limit;
+    }
+    
+    /**
+     * Locurile libere în acest moment (pentru monitorizare)
+     */
+    public int getAvailable() {
+        return permits.availablePermits();
+    }
+    
+    @Override
+    public CompletableFuture<String> createAccountAsync(String ownerName, String pin, double initialBalance) {
+        return admit(() -> delegate.createAccountAsync(ownerName, pin, initialBalance));
+    }
+    
+    @Override
+    public CompletableFuture<AccountSummary> authenticateAsync(String accountNumber, String pin) {
+        return admit(() -> delegate.authenticateAsync(accountNumber, pin));
+    }
+    
+    @Override
+    public CompletableFuture<AccountSummary> getAccountSummaryAsync(String accountNumber, String pin) {
+        return admit(() -> delegate.getAccountSummaryAsync(accountNumber, pin));
+    }
+    
+    @Override
+    public CompletableFuture<AccountSummary> depositAsync(String accountNumber, String pin, double amount,
+            long expectedVersion, String idempotencyKey) {
+        return admit(() -> delegate.depositAsync(accountNumber, pin, amount, expectedVersion, idempotencyKey));
+    }
+    
+    @Override
+    public CompletableFuture<AccountSummary> withdrawAsync(String accountNumber, String pin, double amount,
+            long expectedVersion, String idempotencyKey) {
+        return admit(() -> delegate.withdrawAsync(accountNumber, pin, amount, expectedVersion, idempotencyKey));
+    }
+    
+    @Override
+    public CompletableFuture<AccountSummary> transferAsync(String fromAccount, String pin, String toAccount,
+            double amount, long expectedVersion, String idempotencyKey) {
+        return admit(() -> delegate.transferAsync(fromAccount, pin, toAccount, amount, expectedVersion,
+            idempotencyKey));
+    }
+    
+    @Override
+    public CompletableFuture<TransactionPage> getTransactionPageAsync(String accountNumber, String pin, long cursor,
+            int limit) {
+        return admit(() -> delegate.getTransactionPageAsync(accountNumber, pin, cursor, limit));
+    }
+    
+    @Override
+    public CompletableFuture<TransactionPage> getTransactionsSinceAsync(String accountNumber, String pin,
+            long sinceSequence, int limit) {
+        return admit(() -> delegate.getTransactionsSinceAsync(accountNumber, pin, sinceSequence, limit));
+    }
+    
+    /**
+     * Ocupă un loc dintre cele pentru așteptări, nu dintre cele ale operațiunilor obișnuite
+     */
+    @Override
+    public CompletableFuture<AccountSummary> awaitChangeAsync(String accountNumber, String pin, long afterVersion,
+            long timeoutMillis) {
+        return admit(pollPermits, () -> new ServiceBusyException("Serverul este ocupat (" + pollLimit + 
+            " așteptări de actualizări în curs). Reîncercați în scurt timp."), 
+            () -> delegate.awaitChangeAsync(accountNumber, pin, afterVersion, timeoutMillis));
+    }
+    
+    @Override
+    public CompletableFuture<List<String>> getAllAccountNumbersAsync() {
+        return admit(delegate::getAllAccountNumbersAsync);
+    }
+    
+    /**
+     * Pornește operațiunea dacă există un loc liber; locul se eliberează la finalizarea ei
+     */
+    private <T> CompletableFuture<T> admit(Supplier<CompletableFuture<T>> operation) {
+        return admit(permits, () -> new ServiceBusyException("Serverul este ocupat (" + limit + 
+            " operațiuni în curs). Reîncercați în scurt timp."), operation);
+    }
+    
+    private static <T> CompletableFuture<T> admit(Semaphore permits, Supplier<ServiceBusyException> busy, 
+            Supplier<CompletableFuture<T>> operation) {
+        if (!permits.tryAcquire()) {
+            CompletableFuture<T> rejected = new CompletableFuture<>();
+            rejected.completeExceptionally(busy.get());
+            return rejected;
+        }
+        CompletableFuture<T> result;
+        try {
+            result = operation.get();
+        } catch (RuntimeException | Error e) {
+            permits.release();
+            throw e;
+        }
+        result.whenComplete((value, error) -> permits.release());
+        return result;
+    }
+}
@@ -0,0 +1,174 @@
+package web;
+
+import common.*;
+import java.rmi.RemoteException;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Adaptorul asincron peste serviciul RMI, folosit când serverul web rulează separat
+ * Apelurile RMI sunt blocante, deci rulează pe un grup propriu de fire; firele serverului
+ * HTTP sunt eliberate imediat și răspunsul este trimis când apelul se încheie.
+ */
+public class RemoteAsyncBankService implements AsyncBankService {
+    
+    // De câte ori se încearcă un apel RMI cu cheie de idempotență înainte de a raporta eroarea
+    private static final int IDEMPOTENT_ATTEMPTS = 3;
+    
+    private final BankService bankService;
+    private final ExecutorService calls;
+    // Apelurile awaitChange, care pot dura până la timeout-ul lor, rulează separat: nu ocupă
+    // firele operațiunilor obișnuite
+    private final ExecutorService polls;
+    
+    /**
+     * @param pollThreads firele apelurilor awaitChange; apelantul nu pornește mai multe
+     *                    așteptări simultane decât atât, altfel ele stau la coadă
+     */
+    public RemoteAsyncBankService(BankService bankService, int threads, int pollThreads) {
+        this(bankService, newCallPool(threads, "rmi-call-"), newCallPool(pollThreads, "rmi-poll-"));
+    }
+    
+    /**
+     * @param calls executorul pe care rulează apelurile RMI blocante (de exemplu, un fir virtual
+     *              pentru fiecare apel; numărul apelurilor simultane este limitat de apelant)
+     * @param polls executorul apelurilor awaitChange, separat de calls
+     */
+    public RemoteAsyncBankService(BankService bankService, ExecutorService calls, ExecutorService polls) {
+        this.bankService = bankService;
+        this.calls = calls;
+        this.polls = polls;
+    }
+    
+    private static ExecutorService newCallPool(int threads, String namePrefix) {
+        AtomicInteger threadIds = new AtomicInteger();
+        return Executors.newFixedThreadPool(Math.max(1, threads), r -> {
+            Thread thread = new Thread(r, namePrefix + threadIds.getAndIncrement());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+    
+    /**
+     * Apel RMI care poate fi repetat
+     */
+    private interface RemoteCall<T> {
+        T call() throws RemoteException, BankException;
+    }
+    
+    /**
+     * Apel RMI care primește cheia de idempotență folosită la fiecare încercare
+     */
+    private interface IdempotentCall<T> {
+        T call(String idempotencyKey) throws RemoteException, BankException;
+    }
+    
+    @Override
+    public CompletableFuture<String> createAccountAsync(String ownerName, String pin, double initialBalance) {
+        return submit(() -> bankService.createAccount(ownerName, pin, initialBalance));
+    }
+    
+    @Override
+    public CompletableFuture<AccountSummary> authenticateAsync(String accountNumber, String pin) {
+        return submit(() -> bankService.authenticate(accountNumber, pin));
+    }
+    
+    @Override
+    public CompletableFuture<AccountSummary> getAccountSummaryAsync(String accountNumber, String pin) {
+        return submit(() -> bankService.getAccountSummary(accountNumber, pin));
+    }
+    
+    @Override
+    public CompletableFuture<AccountSummary> depositAsync(String accountNumber, String pin, double amount,
+            long expectedVersion, String idempotencyKey) {
+        return submit(() -> retryIdempotent(idempotencyKey, key ->
+            bankService.depositIfVersion(accountNumber, pin, amount, expectedVersion, key)));
+    }
+    
+    @Override
+    public CompletableFuture<AccountSummary> withdrawAsync(String accountNumber, String pin, double amount,
+            long expectedVersion, String idempotencyKey) {
+        return submit(() -> retryIdempotent(idempotencyKey, key ->
+            bankService.withdrawIfVersion(accountNumber, pin, amount, expectedVersion, key)));
+    }
+    
+    @Override
+    public CompletableFuture<AccountSummary> transferAsync(String fromAccount, String pin, String toAccount,
+            double amount, long expectedVersion, String idempotencyKey) {
+        return submit(() -> retryIdempotent(idempotencyKey, key -> bankService.transferIfVersion(
+            fromAccount, pin, toAccount, amount, expectedVersion, key)));
+    }
+    
+    @Override
+    public CompletableFuture<TransactionPage> getTransactionPageAsync(String accountNumber, String pin, long cursor,
+            int limit) {
+        return submit(() -> bankService.getTransactionPage(accountNumber, pin, cursor, limit));
+    }
+    
+    @Override
+    public CompletableFuture<TransactionPage> getTransactionsSinceAsync(String accountNumber, String pin,
+            long sinceSequence, int limit) {
+        return submit(() -> bankService.getTransactionsSince(accountNumber, pin, sinceSequence, limit));
+    }
+    
+    /**
+     * Apelul RMI rămâne blocat pe serverul bancar până la modificare sau timeout, deci ocupă
+     * un fir al executorului de așteptări pe toată durata lui
+     */
+    @Override
+    public CompletableFuture<AccountSummary> awaitChangeAsync(String accountNumber, String pin, long afterVersion,
+            long timeoutMillis) {
+        return submit(polls, () -> bankService.awaitChange(accountNumber, pin, afterVersion, timeoutMillis));
+    }
+    
+    @Override
+    public CompletableFuture<List<String>> getAllAccountNumbersAsync() {
+        return submit(bankService::getAllAccountNumbers);
+    }
+    
+    private <T> CompletableFuture<T> submit(RemoteCall<T> call) {
+        return submit(calls, call);
+    }
+    
+    private static <T> CompletableFuture<T> submit(ExecutorService executor, RemoteCall<T> call) {
+        CompletableFuture<T> result = new CompletableFuture<>();
+        try {
+            executor.execute(() -> {
+                try {
+                    result.complete(call.call());
+                } catch (Throwable e) {
+                    result.completeExceptionally(e);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            result.completeExceptionally(e);
+        }
+        return result;
+    }
+    
+    /**
+     * Execută un apel RMI cu cheie de idempotență, repetându-l la erorile de comunicare
+     * (timeout, conexiune întreruptă). Cu aceeași cheie, serverul aplică operațiunea o singură
+     * dată și returnează rezultatul original, deci repetarea nu poate dubla o tranzacție.
+     * Dacă clientul nu a trimis o cheie, se generează una pentru operațiunea curentă.
+     */
+    private static <T> T retryIdempotent(String idempotencyKey, IdempotentCall<T> call)
+            throws RemoteException, BankException {
+        String key = idempotencyKey != null ? idempotencyKey : UUID.randomUUID().toString();
+        for (int attempt = 1; ; attempt++) {
+            try {
+                return call.call(key);
+            } catch (RemoteException e) {
+                if (attempt >= IDEMPOTENT_ATTEMPTS) {
+                    throw e;
+                }
+                System.err.println("[RMI] Apel eșuat (încercarea " + attempt + "), se reîncearcă: " + e.getMessage());
+            }
+        }
+    }
+}
@@ -0,0 +1,350 @@
+package web;
+
+import com.sun.net.httpserver.Headers;
+import com.sun.net.httpserver.HttpExchange;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Fișierele statice ale interfeței web, încărcate o singură dată în memorie
+ *
+ * Pentru fiecare fișier se păstrează conținutul, varianta comprimată gzip (dacă este mai mică),
+ * un ETag calculat din conținut și data ultimei modificări. Cererile nu mai citesc de pe disc:
+ * - un browser care are deja fișierul primește 304 (If-None-Match / If-Modified-Since);
+ * - paginile HTML referă fișierele locale cu amprenta lor ("app.js?v=..."), deci o cerere cu
+ *   amprenta curentă poate fi păstrată în cache-ul browserului un an, fără revalidare;
+ * - restul răspunsurilor cer revalidare (Cache-Control: no-cache), rezolvată de obicei cu 304.
+ *
+ * Cu watch activat, directorul este urmărit și conținutul este reîncărcat integral la orice
+ * modificare; un set nou de fișiere este publicat dintr-o singură scriere volatilă.
+ */
+public class StaticAssetCache {
+    
+    private static final String INDEX = "/index.html";
+    private static final String FINGERPRINT_PARAM = "v";
+    private static final String LONG_CACHE = "public, max-age=31536000, immutable";
+    private static final String REVALIDATE = "no-cache";
+    // Referințele relative din HTML (href="..." / src="...") care primesc amprenta fișierului
+    private static final Pattern LOCAL_REFERENCE = Pattern.compile("(href|src)=\"([^\":?#]+)\"");
+    
+    /**
+     * Un fișier încărcat, cu varianta comprimată și antetele de cache
+     */
+    private static final class Asset {
+        private final byte[] content;
+        // null dacă gzip nu micșorează fișierul (imagini, fișiere mici)
+        private final byte[] gzip;
+        private final String contentType;
+        private final String fingerprint;
+        private final String lastModified;
+        private final long lastModifiedSeconds;
+        
+        Asset(byte[] content, String contentType, String fingerprint, long lastModifiedMillis) throws IOException {
+            this.content = content;
+            this.contentType = contentType;
+            this.fingerprint = fingerprint;
+            this.lastModifiedSeconds = lastModifiedMillis / 1000;
+            this.lastModified = DateTimeFormatter.RFC_1123_DATE_TIME.format(
+                ZonedDateTime.ofInstant(Instant.ofEpochSecond(lastModifiedSeconds), ZoneOffset.UTC));
+            byte[] compressed = compressible(contentType) ? gzip(content) : null;
+            this.gzip = compressed != null && compressed.length < content.length ? compressed : null;
+        }
+        
+        String etag(boolean compressed) {
+            return "\"" + fingerprint + (compressed ? "-gz\"" : "\"");
+        }
+    }
+    
+    private final Path root;
+    private volatile Map<String, Asset> assets;
+    
+    private StaticAssetCache(Path root) throws IOException {
+        this.root = root;
+        this.assets = load(root);
+    }
+    
+    /**
+     * Încarcă fișierele din directorul dat
+     * @param watch reîncarcă automat fișierele la modificare (util în dezvoltare)
+     */
+    public static StaticAssetCache load(Path root, boolean watch) throws IOException {
+        StaticAssetCache cache = new StaticAssetCache(root);
+        if (watch) {
+            cache.startWatching();
+        }
+        return cache;
+    }
+    
+    public int size() {
+        return assets.size();
+    }
+    
+    /**
+     * Răspunde unei cereri GET/HEAD pentru un fișier static
+     * Căile necunoscute primesc index.html (rutare în pagină); fără index.html, 404.
+     */
+    public void serve(HttpExchange exchange) throws IOException {
+        Map<String, Asset> current = assets;
+        String path = exchange.getRequestURI().getPath();
+        if (path.equals("/")) {
+            path = INDEX;
+        }
+        Asset asset = current.get(path);
+        if (asset == null) {
+            asset = current.get(INDEX);
+        }
+        if (asset == null) {
+            byte[] error = "File not found".getBytes(StandardCharsets.UTF_8);
+            exchange.sendResponseHeaders(404, error.length);
+            exchange.getResponseBody().write(error);
+            exchange.getResponseBody().close();
+            return;
+        }
+        
+        Headers request = exchange.getRequestHeaders();
+        Headers response = exchange.getResponseHeaders();
+        boolean compressed = asset.gzip != null && acceptsGzip(request.getFirst("Accept-Encoding"));
+        String etag = asset.etag(compressed);
+        
+        response.set("Content-Type", asset.contentType);
+        response.set("ETag", etag);
+        response.set("Last-Modified", asset.lastModified);
+        response.set("Cache-Control", asset.fingerprint.equals(fingerprintParam(exchange)) ? LONG_CACHE : REVALIDATE);
+        if (asset.gzip != null) {
+            response.set("Vary", "Accept-Encoding");
+        }
+        
+        if (notModified(request, asset, etag)) {
+            exchange.sendResponseHeaders(304, -1);
+            exchange.close();
+            return;
+        }
+        
+        byte[] body = compressed ? asset.gzip : asset.content;
+        if (compressed) {
+            response.set("Content-Encoding", "gzip");
+        }
+        if (exchange.getRequestMethod().equalsIgnoreCase("HEAD")) {
+            response.set("Content-Length", String.valueOf(body.length));
+            exchange.sendResponseHeaders(200, -1);
+            exchange.close();
+            return;
+        }
+        exchange.sendResponseHeaders(200, body.length);
+        OutputStream out = exchange.getResponseBody();
+        out.write(body);
+        out.close();
+    }
+    
+    /**
+     * If-None-Match are prioritate; If-Modified-Since este folosit doar în lipsa lui
+     */
+    private static boolean notModified(Headers request, Asset asset, String etag) {
+        String ifNoneMatch = request.getFirst("If-None-Match");
+        if (ifNoneMatch != null) {
+            for (String candidate : ifNoneMatch.split(",")) {
+                String tag = candidate.trim();
+                if (tag.startsWith("W/")) {
+                    tag = tag.substring(2);
+                }
+                if (tag.equals("*") || tag.equals(etag)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+        String ifModifiedSince = request.getFirst("If-Modified-Since");
+        if (ifModifiedSince != null) {
+            try {
+                long since = ZonedDateTime.parse(ifModifiedSince, DateTimeFormatter.RFC_1123_DATE_TIME).toEpochSecond();
+                return asset.lastModifiedSeconds <= since;
+            } catch (DateTimeParseException e) {
+                return false;
+            }
+        }
+        return false;
+    }
+    
+    /**
+     * Dacă antetul Accept-Encoding al clientului permite gzip
+     */
+    static boolean acceptsGzip(String acceptEncoding) {
+        if (acceptEncoding == null) {
+            return false;
+        }
+        for (String coding : acceptEncoding.split(",")) {
+            String[] parts = coding.trim().split(";");
+            if (parts[0].trim().equalsIgnoreCase("gzip")) {
+                // "gzip;q=0" înseamnă explicit că gzip nu este acceptat
+                return parts.length < 2 || !parts[1].trim().matches("q=0(\\.0*)?");
+            }
+        }
+        return false;
+    }
+    
+    private static String fingerprintParam(HttpExchange exchange) {
+        String query = exchange.getRequestURI().getRawQuery();
+        if (query == null) {
+            return null;
+        }
+        for (String pair : query.split("&")) {
+            if (pair.startsWith(FINGERPRINT_PARAM + "=")) {
+                return pair.substring(FINGERPRINT_PARAM.length() + 1);
+            }
+        }
+        return null;
+    }
+    
+    /**
+     * Citește toate fișierele, apoi adaugă amprentele în referințele paginilor HTML
+     */
+    private static Map<String, Asset> load(Path root) throws IOException {
+        if (!Files.isDirectory(root)) {
+            System.err.println("[WEB] Directorul cu fișiere statice lipsește: " + root);
+            return Collections.emptyMap();
+        }
+        List<Path> files;
+        try (Stream<Path> paths = Files.walk(root)) {
+            files = paths.filter(Files::isRegularFile).collect(Collectors.toList());
+        }
+        
+        Map<String, byte[]> contents = new HashMap<>();
+        Map<String, String> fingerprints = new HashMap<>();
+        long newest = 0;
+        for (Path file : files) {
+            String path = "/" + root.relativize(file).toString().replace('\\', '/');
+            byte[] content = Files.readAllBytes(file);
+            contents.put(path, content);
+            fingerprints.put(path, fingerprint(content));
+            newest = Math.max(newest, Files.getLastModifiedTime(file).toMillis());
+        }
+        
+        Map<String, Asset> loaded = new HashMap<>();
+        for (Path file : files) {
+            String path = "/" + root.relativize(file).toString().replace('\\', '/');
+            byte[] content = contents.get(path);
+            String fingerprint = fingerprints.get(path);
+            long lastModified = Files.getLastModifiedTime(file).toMillis();
+            if (path.endsWith(".html")) {
+                // Pagina se schimbă și când se schimbă un fișier referit (amprenta lui)
+                content = addFingerprints(path, content, fingerprints);
+                fingerprint = fingerprint(content);
+                lastModified = newest;
+            }
+            loaded.put(path, new Asset(content, contentType(path), fingerprint, lastModified));
+        }
+        return Collections.unmodifiableMap(loaded);
+    }
+    
+    /**
+     * Înlocuiește href="app.js" cu href="app.js?v=<amprentă>" pentru fișierele din cache
+     */
+    private static byte[] addFingerprints(String page, byte[] html, Map<String, String> fingerprints) {
+        String directory = page.substring(0, page.lastIndexOf('/') + 1);
+        Matcher matcher = LOCAL_REFERENCE.matcher(new String(html, StandardCharsets.UTF_8));
+        StringBuffer out = new StringBuffer(html.length + 64);
+        while (matcher.find()) {
+            String reference = matcher.group(2);
+            String target = reference.startsWith("/") ? reference : directory + reference;
+            String fingerprint = fingerprints.get(target);
+            String replacement = fingerprint == null ? matcher.group()
+                : matcher.group(1) + "=\"" + reference + "?" + FINGERPRINT_PARAM + "=" + fingerprint + "\"";
+            matcher.appendReplacement(out, Matcher.quoteReplacement(replacement));
+        }
+        matcher.appendTail(out);
+        return out.toString().getBytes(StandardCharsets.UTF_8);
+    }
+    
+    private void startWatching() throws IOException {
+        if (!Files.isDirectory(root)) {
+            return;
+        }
+        WatchService watcher = root.getFileSystem().newWatchService();
+        try (Stream<Path> paths = Files.walk(root)) {
+            for (Path directory : paths.filter(Files::isDirectory).collect(Collectors.toList())) {
+                directory.register(watcher, StandardWatchEventKinds.ENTRY_CREATE,
+                    StandardWatchEventKinds.ENTRY_MODIFY, StandardWatchEventKinds.ENTRY_DELETE);
+            }
+        }
+        Thread thread = new Thread(() -> watch(watcher), "static-watch");
+        thread.setDaemon(true);
+        thread.start();
+    }
+    
+    private void watch(WatchService watcher) {
+        while (true) {
+            WatchKey key;
+            try {
+                key = watcher.take();
+            } catch (InterruptedException e) {
+                return;
+            }
+            key.pollEvents();
+            key.reset();
+            try {
+                assets = load(root);
+                System.out.println("[WEB] Fișiere statice reîncărcate (" + assets.size() + ")");
+            } catch (IOException e) {
+                // Un fișier poate fi încă în curs de scriere; următorul eveniment reîncearcă
+                System.err.println("[WEB] Eroare la reîncărcarea fișierelor statice: " + e.getMessage());
+            }
+        }
+    }
+    
+    private static String fingerprint(byte[] content) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(content);
+            StringBuilder hex = new StringBuilder(16);
+            for (int i = 0; i < 8; i++) {
+                hex.append(Character.forDigit((digest[i] >> 4) & 0xF, 16)).append(Character.forDigit(digest[i] & 0xF, 16));
+            }
+            return hex.toString();
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 indisponibil", e);
+        }
+    }
+    
+    private static byte[] gzip(byte[] content) throws IOException {
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream(content.length / 3 + 64);
+        try (GZIPOutputStream out = new GZIPOutputStream(buffer)) {
+            out.write(content);
+        }
+        return buffer.toByteArray();
+    }
+    
+    private static boolean compressible(String contentType) {
+        return contentType.startsWith("text/") || contentType.startsWith("application/")
+            || contentType.startsWith("image/svg");
+    }
+    
+    private static String contentType(String path) {
+        if (path.endsWith(".html")) return "text/html; charset=UTF-8";
+        if (path.endsWith(".css")) return "text/css; charset=UTF-8";
+        if (path.endsWith(".js")) return "application/javascript; charset=UTF-8";
+        if (path.endsWith(".json")) return "application/json; charset=UTF-8";
+        if (path.endsWith(".png")) return "image/png";
+        if (path.endsWith(".jpg") || path.endsWith(".jpeg")) return "image/jpeg";
+        if (path.endsWith(".svg")) return "image/svg+xml";
+        if (path.endsWith(".ico")) return "image/x-icon";
+        return "text/plain; charset=UTF-8";
+    }
+}
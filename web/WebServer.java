@@ -7,30 +7,86 @@ import common.*;
 import java.io.*;
 import java.net.InetSocketAddress;
 import java.net.InetAddress;
-import java.nio.file.Files;
-import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.rmi.Naming;
+import java.util.ArrayList;
 import java.util.List;
-import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import server.BankServer;
+import server.ServerConfig;
 
 /**
  * Server Web pentru Sistemul Bancar
  * Oferă o interfață REST API și servește paginile web
+ *
+ * Operațiunile sunt apelate asincron: handler-ul pornește operațiunea și eliberează firul,
+ * iar răspunsul este trimis când future-ul ei se finalizează. Cu -embedded, serviciul bancar
+ * rulează în același proces și operațiunile se finalizează direct la commit-ul în jurnal.
+ *
+ * Cererile HTTP rulează implicit pe câte un fir virtual (Java 21+; pe versiunile mai vechi,
+ * pe un grup fix de fire). Operațiunile bancare simultane sunt limitate (-maxInFlight):
+ * peste limită, cererea primește imediat 503 cu Retry-After, în loc să aștepte la coadă.
+ *
+ * /api/stream trimite paginii soldul și tranzacțiile noi ale contului, ca server-sent events,
+ * imediat ce o operațiune asupra contului devine durabilă; pagina nu mai interoghează serverul.
  */
 public class WebServer {
     
     private static final int DEFAULT_WEB_PORT = 8080;
     private static final int DEFAULT_RMI_PORT = 1099;
-    private static BankService bankService;
+    // Numărul implicit de tranzacții dintr-o pagină de istoric
+    private static final int DEFAULT_PAGE_LIMIT = 20;
+    // Apelurile RMI simultane către un server separat (fără -embedded), fără fire virtuale
+    private static final int RMI_CALL_THREADS = 32;
+    // Firele apelurilor awaitChange către un server separat, fără fire virtuale; fiecare flux
+    // deschis ține unul ocupat, deci numărul fluxurilor este limitat la acestea
+    private static final int RMI_POLL_THREADS = 64;
+    // Firele cererilor HTTP când firele virtuale nu sunt disponibile sau -webThreads este un număr
+    private static final int DEFAULT_WEB_THREADS = 10;
+    private static final String VIRTUAL_THREADS = "virtual";
+    // Operațiunile bancare în curs acceptate simultan; peste limită se răspunde cu 503
+    private static final int DEFAULT_MAX_IN_FLIGHT = 256;
+    private static final int DEFAULT_RETRY_AFTER_SECONDS = 1;
+    // Fluxurile de actualizări deschise simultan (/api/stream); peste limită se răspunde cu 503
+    private static final int DEFAULT_MAX_STREAMS = 512;
+    // Intervalul heartbeat-urilor unui flux fără modificări
+    private static final long STREAM_HEARTBEAT_MILLIS = 15000;
+    // Intervalul după care pagina redeschide un flux întrerupt
+    private static final long STREAM_RETRY_MILLIS = 3000;
+    // Tranzacțiile noi trimise într-un eveniment; peste limită pagina reîncarcă istoricul
+    private static final int STREAM_TRANSACTION_LIMIT = 100;
+    // Firele care scriu evenimentele fluxurilor, fără fire virtuale
+    private static final int STREAM_WRITER_THREADS = 8;
+    // Un flux al cărui eveniment nu a fost scris în acest interval (client blocat) este închis
+    private static final long STREAM_WRITE_TIMEOUT_MILLIS = 10000;
+    private static AsyncBankService bankService;
     private static String basePath;
+    private static int retryAfterSeconds = DEFAULT_RETRY_AFTER_SECONDS;
+    private static int maxStreams = DEFAULT_MAX_STREAMS;
+    private static final AtomicInteger openStreams = new AtomicInteger();
+    // Evenimentele fluxurilor sunt scrise pe fire proprii: nici firele registrului, nici cele
+    // ale cererilor HTTP nu așteaptă după un client care citește încet
+    private static ExecutorService streamWriters;
+    // Răspunsurile operațiunilor asincrone sunt scrise pe firele cererilor HTTP, nu pe firul
+    // care finalizează operațiunea (firele de finalizare ale registrului sau firele RMI)
+    private static ExecutorService responseWriters;
     
     public static void main(String[] args) {
         int webPort = DEFAULT_WEB_PORT;
         String rmiHost = "localhost";
         int rmiPort = DEFAULT_RMI_PORT;
+        boolean embedded = false;
+        String webThreads = VIRTUAL_THREADS;
+        int maxInFlight = DEFAULT_MAX_IN_FLIGHT;
+        boolean watchStatic = false;
+        // Cu -embedded, celelalte argumente sunt opțiunile serverului bancar (vezi ServerConfig)
+        List<String> serverArgs = new ArrayList<>();
         
         // Parsare argumente
         for (int i = 0; i < args.length; i++) {
@@ -40,32 +96,85 @@ public class WebServer {
                 rmiHost = args[++i];
             } else if (args[i].equals("-rmiport") && i + 1 < args.length) {
                 rmiPort = Integer.parseInt(args[++i]);
+            } else if (args[i].equals("-embedded")) {
+                embedded = true;
+            } else if (args[i].equals("-webThreads") && i + 1 < args.length) {
+                webThreads = args[++i];
+            } else if (args[i].equals("-maxInFlight") && i + 1 < args.length) {
+                maxInFlight = Math.max(1, Integer.parseInt(args[++i]));
+            } else if (args[i].equals("-retryAfter") && i + 1 < args.length) {
+                retryAfterSeconds = Math.max(1, Integer.parseInt(args[++i]));
+            } else if (args[i].equals("-maxStreams") && i + 1 < args.length) {
+                maxStreams = Math.max(1, Integer.parseInt(args[++i]));
+            } else if (args[i].equals("-watchStatic")) {
+                watchStatic = true;
+            } else {
+                serverArgs.add(args[i]);
             }
         }
         
         try {
             // Determinăm path-ul de bază
             basePath = System.getProperty("user.dir");
+            // Fișierele statice sunt citite o singură dată; cu -watchStatic, și la fiecare modificare
+            StaticAssetCache assets = StaticAssetCache.load(Paths.get(basePath, "web", "static"), watchStatic);
             
-            // Conectare la serviciul RMI
-            String rmiUrl = "rmi://" + rmiHost + ":" + rmiPort + "/BankService";
-            System.out.println("╔════════════════════════════════════════════════════════════╗");
-            System.out.println("║           SISTEM BANCAR - SERVER WEB                       ║");
-            System.out.println("╠════════════════════════════════════════════════════════════╣");
-            System.out.println("  Conectare la serviciul RMI: " + rmiUrl);
-            
-            bankService = (BankService) Naming.lookup(rmiUrl);
+            ExecutorService virtualThreads = VIRTUAL_THREADS.equals(webThreads) ? newVirtualThreadExecutor() : null;
+            if (VIRTUAL_THREADS.equals(webThreads) && virtualThreads == null) {
+                System.out.println("  [INFO] Fire virtuale indisponibile (necesită Java 21+), se folosesc " + 
+                    DEFAULT_WEB_THREADS + " fire de platformă");
+            }
+            ExecutorService requestExecutor = virtualThreads != null ? virtualThreads
+                : newThreadPool(VIRTUAL_THREADS.equals(webThreads) ? DEFAULT_WEB_THREADS : Integer.parseInt(webThreads),
+                    "http-");
+            responseWriters = requestExecutor;
+            streamWriters = virtualThreads != null ? newVirtualThreadExecutor() 
+                : newThreadPool(STREAM_WRITER_THREADS, "sse-writer-");
             
-            if (bankService.ping()) {
-                System.out.println("  [OK] Conectat la serviciul bancar RMI");
+            if (embedded) {
+                // Serviciul bancar pornește în acest proces și rămâne disponibil prin RMI
+                serverArgs.add("-port");
+                serverArgs.add(String.valueOf(rmiPort));
+                bankService = BankServer.start(ServerConfig.fromArgs(serverArgs.toArray(new String[0])));
+                System.out.println("╔════════════════════════════════════════════════════════════╗");
+                System.out.println("║           SISTEM BANCAR - SERVER WEB                       ║");
+                System.out.println("╠════════════════════════════════════════════════════════════╣");
+                System.out.println("  [OK] Serviciul bancar rulează în același proces");
+            } else {
+                // Conectare la serviciul RMI
+                String rmiUrl = "rmi://" + rmiHost + ":" + rmiPort + "/BankService";
+                System.out.println("╔════════════════════════════════════════════════════════════╗");
+                System.out.println("║           SISTEM BANCAR - SERVER WEB                       ║");
+                System.out.println("╠════════════════════════════════════════════════════════════╣");
+                System.out.println("  Conectare la serviciul RMI: " + rmiUrl);
+                
+                BankService remote = (BankService) Naming.lookup(rmiUrl);
+                
+                if (remote.ping()) {
+                    System.out.println("  [OK] Conectat la serviciul bancar RMI");
+                }
+                // Cu fire virtuale, un apel RMI blocat nu ocupă un fir de platformă;
+                // numărul apelurilor simultane este limitat oricum de -maxInFlight și -maxStreams
+                if (virtualThreads != null) {
+                    bankService = new RemoteAsyncBankService(remote, virtualThreads, newVirtualThreadExecutor());
+                } else {
+                    if (maxStreams > RMI_POLL_THREADS) {
+                        System.out.println("  [INFO] Fără fire virtuale, -maxStreams este limitat la " + 
+                            RMI_POLL_THREADS + " (un fir de așteptare RMI pentru fiecare flux)");
+                        maxStreams = RMI_POLL_THREADS;
+                    }
+                    bankService = new RemoteAsyncBankService(remote, RMI_CALL_THREADS, maxStreams);
+                }
             }
+            // Așteptările fluxurilor au locuri separate de operațiunile obișnuite
+            bankService = new LimitedAsyncBankService(bankService, maxInFlight, maxStreams);
             
             // Creare server HTTP
             String localIP = InetAddress.getLocalHost().getHostAddress();
             HttpServer server = HttpServer.create(new InetSocketAddress(webPort), 0);
             
             // Configurare handlere
-            server.createContext("/", new StaticFileHandler());
+            server.createContext("/", new StaticFileHandler(assets));
             server.createContext("/api/login", new LoginHandler());
             server.createContext("/api/account", new AccountHandler());
             server.createContext("/api/deposit", new DepositHandler());
@@ -74,8 +183,9 @@ public class WebServer {
             server.createContext("/api/transactions", new TransactionsHandler());
             server.createContext("/api/create-account", new CreateAccountHandler());
             server.createContext("/api/accounts", new AccountsListHandler());
+            server.createContext("/api/stream", new StreamHandler());
             
-            server.setExecutor(Executors.newFixedThreadPool(10));
+            server.setExecutor(requestExecutor);
             server.start();
             
             System.out.println("╠════════════════════════════════════════════════════════════╣");
@@ -83,6 +193,9 @@ public class WebServer {
             System.out.println("╠════════════════════════════════════════════════════════════╣");
             System.out.println("  Adresa locală:  http://localhost:" + webPort);
             System.out.println("  Adresa rețea:   http://" + localIP + ":" + webPort);
+            System.out.println("  Fire cereri:    " + (virtualThreads != null ? "virtuale (unul pe cerere)"
+                : "grup fix") + ", operațiuni simultane: max " + maxInFlight);
+            System.out.println("  Actualizări:    /api/stream, fluxuri simultane: max " + maxStreams);
             System.out.println("╠════════════════════════════════════════════════════════════╣");
             System.out.println("  Deschideți browserul la adresa de mai sus");
             System.out.println("╚════════════════════════════════════════════════════════════╝");
@@ -96,52 +209,23 @@ public class WebServer {
     }
     
     /**
-     * Handler pentru fișiere statice (HTML, CSS, JS)
+     * Handler pentru fișiere statice (HTML, CSS, JS), servite din memorie
      */
     static class StaticFileHandler implements HttpHandler {
+        private final StaticAssetCache assets;
+        
+        StaticFileHandler(StaticAssetCache assets) {
+            this.assets = assets;
+        }
+        
         @Override
         public void handle(HttpExchange exchange) throws IOException {
-            String path = exchange.getRequestURI().getPath();
-            if (path.equals("/")) {
-                path = "/index.html";
-            }
-            
             try {
-                Path filePath = Paths.get(basePath, "web", "static", path);
-                
-                if (Files.exists(filePath) && !Files.isDirectory(filePath)) {
-                    byte[] content = Files.readAllBytes(filePath);
-                    String contentType = getContentType(path);
-                    
-                    exchange.getResponseHeaders().set("Content-Type", contentType);
-                    exchange.sendResponseHeaders(200, content.length);
-                    exchange.getResponseBody().write(content);
-                } else {
-                    // Returnăm index.html pentru SPA routing
-                    Path indexPath = Paths.get(basePath, "web", "static", "index.html");
-                    byte[] content = Files.readAllBytes(indexPath);
-                    exchange.getResponseHeaders().set("Content-Type", "text/html; charset=UTF-8");
-                    exchange.sendResponseHeaders(200, content.length);
-                    exchange.getResponseBody().write(content);
-                }
-            } catch (Exception e) {
-                String error = "File not found";
-                exchange.sendResponseHeaders(404, error.length());
-                exchange.getResponseBody().write(error.getBytes());
+                assets.serve(exchange);
+            } catch (IOException | RuntimeException e) {
+                System.err.println("[WEB] Fișierul static nu a putut fi trimis: " + e.getMessage());
+                exchange.close();
             }
-            exchange.getResponseBody().close();
-        }
-        
-        private String getContentType(String path) {
-            if (path.endsWith(".html")) return "text/html; charset=UTF-8";
-            if (path.endsWith(".css")) return "text/css; charset=UTF-8";
-            if (path.endsWith(".js")) return "application/javascript; charset=UTF-8";
-            if (path.endsWith(".json")) return "application/json; charset=UTF-8";
-            if (path.endsWith(".png")) return "image/png";
-            if (path.endsWith(".jpg") || path.endsWith(".jpeg")) return "image/jpeg";
-            if (path.endsWith(".svg")) return "image/svg+xml";
-            if (path.endsWith(".ico")) return "image/x-icon";
-            return "text/plain; charset=UTF-8";
         }
     }
     
@@ -168,22 +252,19 @@ public class WebServer {
                 String accountNumber = params.get("accountNumber");
                 String pin = params.get("pin");
                 
-                Account account = bankService.login(accountNumber, pin);
+                respondWhenDone(exchange, bankService.authenticateAsync(accountNumber, pin), 401, (json, account) -> 
+                    json.beginObject().name("success").value(true)
+                        .name("account").beginObject()
+                        .name("accountNumber").value(account.getAccountNumber())
+                        .name("ownerName").value(account.getOwnerName())
+                        .name("balance").amount(Money.toBani(account.getBalance()))
+                        .name("createdAt").value(account.getFormattedCreatedAt())
+                        .name("version").value(account.getVersion())
+                        .endObject()
+                        .endObject());
                 
-                String json = String.format(
-                    "{\"success\":true,\"account\":{\"accountNumber\":\"%s\",\"ownerName\":\"%s\",\"balance\":%.2f,\"createdAt\":\"%s\"}}",
-                    account.getAccountNumber(),
-                    account.getOwnerName(),
-                    account.getBalance(),
-                    account.getFormattedCreatedAt()
-                );
-                
-                sendJson(exchange, 200, json);
-                
-            } catch (BankException e) {
-                sendError(exchange, 401, e.getMessage());
             } catch (Exception e) {
-                sendError(exchange, 500, "Eroare server: " + e.getMessage());
+                sendRequestError(exchange, e);
             }
         }
     }
@@ -206,21 +287,19 @@ public class WebServer {
                 String accountNumber = params.get("accountNumber");
                 String pin = params.get("pin");
                 
-                Account account = bankService.getAccountInfo(accountNumber, pin);
-                
-                String json = String.format(
-                    "{\"success\":true,\"account\":{\"accountNumber\":\"%s\",\"ownerName\":\"%s\",\"balance\":%.2f}}",
-                    account.getAccountNumber(),
-                    account.getOwnerName(),
-                    account.getBalance()
-                );
+                respondWhenDone(exchange, bankService.getAccountSummaryAsync(accountNumber, pin), 400, (json, account) -> 
+                    json.beginObject().name("success").value(true)
+                        .name("account").beginObject()
+                        .name("accountNumber").value(account.getAccountNumber())
+                        .name("ownerName").value(account.getOwnerName())
+                        .name("balance").amount(Money.toBani(account.getBalance()))
+                        .name("latestSequence").value(account.getLatestSequence())
+                        .name("version").value(account.getVersion())
+                        .endObject()
+                        .endObject());
                 
-                sendJson(exchange, 200, json);
-                
-            } catch (BankException e) {
-                sendError(exchange, 400, e.getMessage());
             } catch (Exception e) {
-                sendError(exchange, 500, "Eroare server: " + e.getMessage());
+                sendRequestError(exchange, e);
             }
         }
     }
@@ -244,19 +323,20 @@ public class WebServer {
                 String pin = params.get("pin");
                 double amount = Double.parseDouble(params.get("amount"));
                 
-                double newBalance = bankService.deposit(accountNumber, pin, amount);
-                
-                String json = String.format(
-                    "{\"success\":true,\"message\":\"Depunere efectuată cu succes\",\"newBalance\":%.2f}",
-                    newBalance
-                );
+                long expectedVersion = parseExpectedVersion(params);
+                String idempotencyKey = idempotencyKey(params);
+                CompletableFuture<AccountSummary> operation = 
+                    bankService.depositAsync(accountNumber, pin, amount, expectedVersion, idempotencyKey);
                 
-                sendJson(exchange, 200, json);
+                respondWhenDone(exchange, operation, 400, (json, account) -> 
+                    json.beginObject().name("success").value(true)
+                        .name("message").value("Depunere efectuată cu succes")
+                        .name("newBalance").amount(Money.toBani(account.getBalance()))
+                        .name("version").value(account.getVersion())
+                        .endObject());
                 
-            } catch (BankException e) {
-                sendError(exchange, 400, e.getMessage());
             } catch (Exception e) {
-                sendError(exchange, 500, "Eroare server: " + e.getMessage());
+                sendRequestError(exchange, e);
             }
         }
     }
@@ -280,19 +360,20 @@ public class WebServer {
                 String pin = params.get("pin");
                 double amount = Double.parseDouble(params.get("amount"));
                 
-                double newBalance = bankService.withdraw(accountNumber, pin, amount);
+                long expectedVersion = parseExpectedVersion(params);
+                String idempotencyKey = idempotencyKey(params);
+                CompletableFuture<AccountSummary> operation = 
+                    bankService.withdrawAsync(accountNumber, pin, amount, expectedVersion, idempotencyKey);
                 
-                String json = String.format(
-                    "{\"success\":true,\"message\":\"Retragere efectuată cu succes\",\"newBalance\":%.2f}",
-                    newBalance
-                );
+                respondWhenDone(exchange, operation, 400, (json, account) -> 
+                    json.beginObject().name("success").value(true)
+                        .name("message").value("Retragere efectuată cu succes")
+                        .name("newBalance").amount(Money.toBani(account.getBalance()))
+                        .name("version").value(account.getVersion())
+                        .endObject());
                 
-                sendJson(exchange, 200, json);
-                
-            } catch (BankException e) {
-                sendError(exchange, 400, e.getMessage());
             } catch (Exception e) {
-                sendError(exchange, 500, "Eroare server: " + e.getMessage());
+                sendRequestError(exchange, e);
             }
         }
     }
@@ -317,25 +398,28 @@ public class WebServer {
                 String toAccount = params.get("toAccount");
                 double amount = Double.parseDouble(params.get("amount"));
                 
-                double newBalance = bankService.transfer(accountNumber, pin, toAccount, amount);
-                
-                String json = String.format(
-                    "{\"success\":true,\"message\":\"Transfer efectuat cu succes\",\"newBalance\":%.2f}",
-                    newBalance
-                );
+                long expectedVersion = parseExpectedVersion(params);
+                String idempotencyKey = idempotencyKey(params);
+                CompletableFuture<AccountSummary> operation = bankService.transferAsync(accountNumber, pin, toAccount, amount, expectedVersion, 
+                    idempotencyKey);
                 
-                sendJson(exchange, 200, json);
+                respondWhenDone(exchange, operation, 400, (json, account) -> 
+                    json.beginObject().name("success").value(true)
+                        .name("message").value("Transfer efectuat cu succes")
+                        .name("newBalance").amount(Money.toBani(account.getBalance()))
+                        .name("version").value(account.getVersion())
+                        .endObject());
                 
-            } catch (BankException e) {
-                sendError(exchange, 400, e.getMessage());
             } catch (Exception e) {
-                sendError(exchange, 500, "Eroare server: " + e.getMessage());
+                sendRequestError(exchange, e);
             }
         }
     }
     
     /**
      * Handler pentru istoric tranzacții
+     * Returnează o pagină (cursor, limit), de la cea mai nouă tranzacție, sau doar
+     * tranzacțiile apărute după numărul de secvență "since"
      */
     static class TransactionsHandler implements HttpHandler {
         @Override
@@ -351,35 +435,53 @@ public class WebServer {
                 Map<String, String> params = parseJsonBody(exchange);
                 String accountNumber = params.get("accountNumber");
                 String pin = params.get("pin");
+                int limit = Integer.parseInt(params.getOrDefault("limit", String.valueOf(DEFAULT_PAGE_LIMIT)));
                 
-                List<Transaction> transactions = bankService.getTransactionHistory(accountNumber, pin);
-                
-                StringBuilder json = new StringBuilder("{\"success\":true,\"transactions\":[");
-                for (int i = 0; i < transactions.size(); i++) {
-                    Transaction t = transactions.get(i);
-                    if (i > 0) json.append(",");
-                    json.append(String.format(
-                        "{\"type\":\"%s\",\"typeName\":\"%s\",\"amount\":%.2f,\"description\":\"%s\",\"timestamp\":\"%s\",\"relatedAccount\":\"%s\"}",
-                        t.getType().name(),
-                        t.getType().getDisplayName(),
-                        t.getAmount(),
-                        escapeJson(t.getDescription()),
-                        t.getFormattedTimestamp(),
-                        t.getRelatedAccount() != null ? t.getRelatedAccount() : ""
-                    ));
+                CompletableFuture<TransactionPage> operation;
+                if (params.containsKey("since")) {
+                    operation = bankService.getTransactionsSinceAsync(accountNumber, pin, 
+                        Long.parseLong(params.get("since")), limit);
+                } else {
+                    operation = bankService.getTransactionPageAsync(accountNumber, pin, 
+                        Long.parseLong(params.getOrDefault("cursor", "0")), limit);
                 }
-                json.append("]}");
                 
-                sendJson(exchange, 200, json.toString());
+                respondWhenDone(exchange, operation, 400, (json, page) -> {
+                    json.beginObject().name("success").value(true)
+                        .name("latestSequence").value(page.getLatestSequence())
+                        .name("nextCursor").value(page.getNextCursor())
+                        .name("transactions");
+                    writeTransactions(json, page);
+                    json.endObject();
+                });
                 
-            } catch (BankException e) {
-                sendError(exchange, 400, e.getMessage());
             } catch (Exception e) {
-                sendError(exchange, 500, "Eroare server: " + e.getMessage());
+                sendRequestError(exchange, e);
             }
         }
     }
     
+    /**
+     * Tranzacțiile unei pagini, ca tablou JSON (cea mai nouă prima)
+     */
+    private static void writeTransactions(JsonStreamWriter json, TransactionPage page) throws IOException {
+        List<Transaction> transactions = page.getTransactions();
+        json.beginArray();
+        for (int i = 0; i < transactions.size(); i++) {
+            Transaction t = transactions.get(i);
+            json.beginObject()
+                .name("sequence").value(page.getNewestSequence() - i)
+                .name("type").value(t.getType().name())
+                .name("typeName").value(t.getType().getDisplayName())
+                .name("amount").amount(Money.toBani(t.getAmount()))
+                .name("description").value(t.getDescription() != null ? t.getDescription() : "")
+                .name("timestamp").value(t.getFormattedTimestamp())
+                .name("relatedAccount").value(t.getRelatedAccount() != null ? t.getRelatedAccount() : "")
+                .endObject();
+        }
+        json.endArray();
+    }
+    
     /**
      * Handler pentru creare cont
      */
@@ -399,19 +501,14 @@ public class WebServer {
                 String pin = params.get("pin");
                 double initialBalance = Double.parseDouble(params.getOrDefault("initialBalance", "0"));
                 
-                String accountNumber = bankService.createAccount(ownerName, pin, initialBalance);
-                
-                String json = String.format(
-                    "{\"success\":true,\"message\":\"Cont creat cu succes\",\"accountNumber\":\"%s\"}",
-                    accountNumber
-                );
+                respondWhenDone(exchange, bankService.createAccountAsync(ownerName, pin, initialBalance), 400, 
+                    (json, accountNumber) -> json.beginObject().name("success").value(true)
+                        .name("message").value("Cont creat cu succes")
+                        .name("accountNumber").value(accountNumber)
+                        .endObject());
                 
-                sendJson(exchange, 200, json);
-                
-            } catch (BankException e) {
-                sendError(exchange, 400, e.getMessage());
             } catch (Exception e) {
-                sendError(exchange, 500, "Eroare server: " + e.getMessage());
+                sendRequestError(exchange, e);
             }
         }
     }
@@ -430,86 +527,378 @@ public class WebServer {
             }
             
             try {
-                List<String> accounts = bankService.getAllAccountNumbers();
+                respondWhenDone(exchange, bankService.getAllAccountNumbersAsync(), 500, (json, accounts) -> {
+                    json.beginObject().name("success").value(true).name("accounts").beginArray();
+                    for (String account : accounts) {
+                        json.value(account);
+                    }
+                    json.endArray().endObject();
+                });
+                
+            } catch (Exception e) {
+                sendRequestError(exchange, e);
+            }
+        }
+    }
+    
+    /**
+     * Handler pentru fluxul de actualizări al unui cont (server-sent events)
+     * Cererea POST conține contul, PIN-ul și "since", ultima versiune afișată de pagină;
+     * răspunsul rămâne deschis și primește un eveniment "account" la fiecare modificare.
+     */
+    static class StreamHandler implements HttpHandler {
+        @Override
+        public void handle(HttpExchange exchange) throws IOException {
+            setCorsHeaders(exchange);
+            
+            if (exchange.getRequestMethod().equals("OPTIONS")) {
+                exchange.sendResponseHeaders(200, -1);
+                return;
+            }
+            
+            if (!exchange.getRequestMethod().equals("POST")) {
+                sendError(exchange, 405, "Method not allowed");
+                return;
+            }
+            
+            try {
+                Map<String, String> params = parseJsonBody(exchange);
+                String accountNumber = params.get("accountNumber");
+                String pin = params.get("pin");
+                long since = Long.parseLong(params.getOrDefault("since", "0"));
                 
-                StringBuilder json = new StringBuilder("{\"success\":true,\"accounts\":[");
-                for (int i = 0; i < accounts.size(); i++) {
-                    if (i > 0) json.append(",");
-                    json.append("\"").append(accounts.get(i)).append("\"");
+                if (openStreams.incrementAndGet() > maxStreams) {
+                    openStreams.decrementAndGet();
+                    sendBusy(exchange, "Prea multe fluxuri de actualizări deschise. Reîncercați în scurt timp.");
+                    return;
                 }
-                json.append("]}");
                 
-                sendJson(exchange, 200, json.toString());
+                // Credențialele se verifică înainte de deschiderea fluxului, ca eroarea să fie un răspuns JSON
+                CompletableFuture<AccountSummary> authenticated;
+                try {
+                    authenticated = bankService.getAccountSummaryAsync(accountNumber, pin);
+                } catch (RuntimeException e) {
+                    openStreams.decrementAndGet();
+                    throw e;
+                }
+                authenticated.whenCompleteAsync((account, error) -> {
+                    StreamSession session;
+                    try {
+                        if (error != null) {
+                            openStreams.decrementAndGet();
+                            sendFailure(exchange, error, 401);
+                            return;
+                        }
+                        EventStream events = EventStream.open(exchange, STREAM_RETRY_MILLIS, STREAM_WRITE_TIMEOUT_MILLIS);
+                        session = new StreamSession(accountNumber, pin, events);
+                    } catch (IOException | RuntimeException e) {
+                        if (error == null) {
+                            openStreams.decrementAndGet();
+                        }
+                        System.err.println("[WEB] Fluxul de actualizări nu a putut fi deschis: " + e.getMessage());
+                        exchange.close();
+                        return;
+                    }
+                    try {
+                        session.start(account, since);
+                    } catch (RuntimeException e) {
+                        session.close();
+                    }
+                }, streamWriters);
                 
             } catch (Exception e) {
-                sendError(exchange, 500, "Eroare server: " + e.getMessage());
+                sendRequestError(exchange, e);
+            }
+        }
+    }
+    
+    /**
+     * Un flux de actualizări deschis pentru un cont
+     *
+     * Sesiunea are în orice moment cel mult o așteptare în curs (awaitChangeAsync); următoarea
+     * pornește doar după ce evenimentul precedent a fost scris. Modificările apărute cât timp
+     * clientul citește încet sunt comasate într-un singur eveniment cu starea curentă, deci
+     * memoria folosită nu crește cu numărul de operațiuni. Evenimentele sunt scrise pe firele
+     * streamWriters, iar o scriere care nu se termină în STREAM_WRITE_TIMEOUT_MILLIS închide fluxul.
+     */
+    static class StreamSession {
+        private final String accountNumber;
+        private final String pin;
+        private final EventStream events;
+        // Versiunea contului (soldul) și ultima tranzacție trimise paginii
+        private long sentVersion;
+        private long sentSequence;
+        private final AtomicBoolean closed = new AtomicBoolean();
+        
+        StreamSession(String accountNumber, String pin, EventStream events) {
+            this.accountNumber = accountNumber;
+            this.pin = pin;
+            this.events = events;
+        }
+        
+        /**
+         * Pornește fluxul pentru o pagină care afișează contul la versiunea "since"
+         */
+        void start(AccountSummary account, long since) {
+            // Un istoric care nu continuă cel afișat (de exemplu după restaurarea datelor serverului)
+            boolean reload = since > account.getVersion();
+            sentVersion = reload ? AccountSummary.ANY_VERSION : since;
+            sentSequence = reload ? 0 : since;
+            update(account, reload);
+        }
+        
+        /**
+         * Trimite starea contului dacă s-a modificat față de ultimul eveniment, apoi așteaptă următoarea modificare
+         */
+        private void update(AccountSummary account, boolean reload) {
+            if (account.getVersion() == sentVersion) {
+                await(sentVersion);
+                return;
+            }
+            // Tranzacțiile se cer după citirea soldului: evenimentul le conține pe toate cele incluse
+            // în sold (eventual și unele mai noi, al căror sold vine în evenimentul următor)
+            bankService.getTransactionsSinceAsync(accountNumber, pin, sentSequence, STREAM_TRANSACTION_LIMIT)
+                .whenCompleteAsync((page, error) -> {
+                    if (error != null) {
+                        fail(error);
+                        return;
+                    }
+                    try {
+                        sendAccount(account, page, reload || page.getNextCursor() != 0);
+                        await(sentVersion);
+                    } catch (IOException | RuntimeException e) {
+                        close();
+                    }
+                }, streamWriters);
+        }
+        
+        /**
+         * @param reload pagina trebuie să reîncarce istoricul (tranzacțiile noi nu încap în eveniment)
+         */
+        private void sendAccount(AccountSummary account, TransactionPage page, boolean reload) throws IOException {
+            JsonStreamWriter json = events.beginEvent("account", account.getVersion());
+            json.beginObject()
+                .name("balance").amount(Money.toBani(account.getBalance()))
+                .name("version").value(account.getVersion())
+                .name("latestSequence").value(page.getLatestSequence())
+                .name("reload").value(reload)
+                .name("transactions");
+            writeTransactions(json, page);
+            json.endObject();
+            events.endEvent();
+            sentVersion = account.getVersion();
+            sentSequence = Math.max(sentSequence, page.getLatestSequence());
+        }
+        
+        /**
+         * Așteaptă următoarea modificare; la expirare trimite un heartbeat și așteaptă din nou
+         */
+        private void await(long version) {
+            bankService.awaitChangeAsync(accountNumber, pin, version, STREAM_HEARTBEAT_MILLIS)
+                .whenCompleteAsync((account, error) -> {
+                    if (error != null) {
+                        fail(error);
+                        return;
+                    }
+                    try {
+                        if (account.getVersion() == version) {
+                            events.comment("ping");
+                            await(version);
+                        } else {
+                            update(account, false);
+                        }
+                    } catch (IOException | RuntimeException e) {
+                        close();
+                    }
+                }, streamWriters);
+        }
+        
+        /**
+         * O eroare a serviciului bancar închide fluxul; pagina îl redeschide după intervalul "retry"
+         */
+        private void fail(Throwable error) {
+            Throwable cause = unwrap(error);
+            try {
+                JsonStreamWriter json = events.beginEvent("error", sentVersion);
+                json.beginObject()
+                    .name("error").value(cause.getMessage() != null ? cause.getMessage() : "")
+                    .name("fatal").value(cause instanceof BankException)
+                    .endObject();
+                events.endEvent();
+            } catch (IOException | RuntimeException e) {
+                // Clientul a închis deja conexiunea
+            }
+            close();
+        }
+        
+        private void close() {
+            if (closed.compareAndSet(false, true)) {
+                openStreams.decrementAndGet();
+                events.close();
             }
         }
     }
     
     // Metode utilitare
     
+    /**
+     * Executor cu un fir virtual pentru fiecare sarcină (Executors.newVirtualThreadPerTaskExecutor)
+     * Metoda este apelată prin reflecție, ca proiectul să compileze și să ruleze și pe Java 8.
+     * @return executorul sau null dacă JVM-ul nu are fire virtuale
+     */
+    private static ExecutorService newVirtualThreadExecutor() {
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            return null;
+        }
+    }
+    
+    private static ExecutorService newThreadPool(int threads, String namePrefix) {
+        AtomicInteger threadIds = new AtomicInteger();
+        return Executors.newFixedThreadPool(Math.max(1, threads), r -> {
+            Thread thread = new Thread(r, namePrefix + threadIds.getAndIncrement());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+    
     private static void setCorsHeaders(HttpExchange exchange) {
         exchange.getResponseHeaders().set("Access-Control-Allow-Origin", "*");
         exchange.getResponseHeaders().set("Access-Control-Allow-Methods", "GET, POST, OPTIONS");
         exchange.getResponseHeaders().set("Access-Control-Allow-Headers", "Content-Type");
     }
     
-    private static void sendJson(HttpExchange exchange, int code, String json) throws IOException {
-        byte[] response = json.getBytes("UTF-8");
-        exchange.getResponseHeaders().set("Content-Type", "application/json; charset=UTF-8");
-        exchange.sendResponseHeaders(code, response.length);
-        exchange.getResponseBody().write(response);
-        exchange.getResponseBody().close();
+    /**
+     * Scrie răspunsul JSON direct în fluxul HTTP (vezi JsonStreamWriter)
+     * La o eroare în timpul scrierii, răspunsul rămâne neterminat: apelantul închide conexiunea.
+     */
+    private static <T> void sendJson(HttpExchange exchange, int code, T result, JsonBody<T> body) throws IOException {
+        JsonStreamWriter json = new JsonStreamWriter(exchange, code);
+        body.write(json, result);
+        json.close();
     }
     
     private static void sendError(HttpExchange exchange, int code, String message) throws IOException {
-        String json = String.format("{\"success\":false,\"error\":\"%s\"}", escapeJson(message));
-        sendJson(exchange, code, json);
+        sendJson(exchange, code, message, (json, error) -> json.beginObject()
+            .name("success").value(false)
+            .name("error").value(error != null ? error : "")
+            .endObject());
     }
     
-    private static String escapeJson(String text) {
-        if (text == null) return "";
-        return text.replace("\\", "\\\\")
-                   .replace("\"", "\\\"")
-                   .replace("\n", "\\n")
-                   .replace("\r", "\\r")
-                   .replace("\t", "\\t");
+    /**
+     * Eroare la pornirea unei operațiuni: 400 pentru o cerere JSON invalidă, 500 în rest
+     */
+    private static void sendRequestError(HttpExchange exchange, Exception e) throws IOException {
+        if (e instanceof JsonReader.MalformedJsonException) {
+            sendError(exchange, 400, "Cerere invalidă: " + e.getMessage());
+        } else {
+            sendError(exchange, 500, "Eroare server: " + e.getMessage());
+        }
     }
     
-    private static Map<String, String> parseJsonBody(HttpExchange exchange) throws IOException {
-        InputStreamReader isr = new InputStreamReader(exchange.getRequestBody(), "UTF-8");
-        BufferedReader br = new BufferedReader(isr);
-        StringBuilder body = new StringBuilder();
-        String line;
-        while ((line = br.readLine()) != null) {
-            body.append(line);
+    /**
+     * Răspuns 503 când limita de operațiuni simultane este atinsă; pagina poate reîncerca
+     * după numărul de secunde din Retry-After
+     */
+    private static void sendBusy(HttpExchange exchange, String message) throws IOException {
+        exchange.getResponseHeaders().set("Retry-After", String.valueOf(retryAfterSeconds));
+        sendError(exchange, 503, message);
+    }
+    
+    /**
+     * Răspuns 409 pentru o operațiune condiționată respinsă: include soldul și versiunea
+     * curentă, astfel încât pagina își actualizează datele fără o cerere suplimentară
+     */
+    private static void sendConflict(HttpExchange exchange, VersionConflictException e) throws IOException {
+        AccountSummary current = e.getCurrent();
+        sendJson(exchange, 409, current, (json, account) -> json.beginObject()
+            .name("success").value(false)
+            .name("conflict").value(true)
+            .name("error").value(e.getMessage() != null ? e.getMessage() : "")
+            .name("balance").amount(Money.toBani(account.getBalance()))
+            .name("version").value(account.getVersion())
+            .endObject());
+    }
+    
+    /**
+     * Versiunea așteptată trimisă de pagină; lipsa ei face operațiunea necondiționată
+     */
+    private static long parseExpectedVersion(Map<String, String> params) {
+        String value = params.get("expectedVersion");
+        if (value == null || value.isEmpty() || value.equals("null")) {
+            return AccountSummary.ANY_VERSION;
         }
-        
-        return parseSimpleJson(body.toString());
+        return Long.parseLong(value);
     }
     
-    private static Map<String, String> parseSimpleJson(String json) {
-        Map<String, String> result = new HashMap<>();
-        
-        // Parser JSON simplu pentru obiecte plate
-        json = json.trim();
-        if (json.startsWith("{")) json = json.substring(1);
-        if (json.endsWith("}")) json = json.substring(0, json.length() - 1);
-        
-        String[] pairs = json.split(",(?=(?:[^\"]*\"[^\"]*\")*[^\"]*$)");
-        for (String pair : pairs) {
-            String[] keyValue = pair.split(":", 2);
-            if (keyValue.length == 2) {
-                String key = keyValue[0].trim().replace("\"", "");
-                String value = keyValue[1].trim();
-                if (value.startsWith("\"") && value.endsWith("\"")) {
-                    value = value.substring(1, value.length() - 1);
+    /**
+     * Cheia de idempotență trimisă de pagină (aceeași la fiecare reîncercare a unei acțiuni)
+     * sau null dacă lipsește
+     */
+    private static String idempotencyKey(Map<String, String> params) {
+        String key = params.get("idempotencyKey");
+        if (key == null || key.isEmpty() || key.equals("null")) {
+            return null;
+        }
+        return key;
+    }
+    
+    /**
+     * Scrie corpul JSON al răspunsului din rezultatul unei operațiuni
+     */
+    private interface JsonBody<T> {
+        void write(JsonStreamWriter json, T result) throws IOException;
+    }
+    
+    /**
+     * Trimite răspunsul când operațiunea asincronă se încheie
+     * Firul serverului HTTP nu așteaptă după operațiune și preia alte cereri între timp.
+     * Răspunsul este scris pe responseWriters: un client care citește încet nu blochează
+     * firul care a finalizat operațiunea (în modul -embedded, confirmările de durabilitate).
+     * @param errorCode codul HTTP pentru erorile de business (BankException)
+     */
+    private static <T> void respondWhenDone(HttpExchange exchange, CompletableFuture<T> operation, int errorCode, 
+            JsonBody<T> body) {
+        operation.whenCompleteAsync((result, error) -> {
+            try {
+                if (error == null) {
+                    sendJson(exchange, 200, result, body);
+                } else {
+                    sendFailure(exchange, error, errorCode);
                 }
-                result.put(key, value);
+            } catch (IOException | RuntimeException e) {
+                System.err.println("[EROARE] Răspunsul nu a putut fi trimis: " + e.getMessage());
+                exchange.close();
             }
+        }, responseWriters);
+    }
+    
+    /**
+     * Răspunsul pentru o operațiune asincronă eșuată
+     * @param errorCode codul HTTP pentru erorile de business (BankException)
+     */
+    private static void sendFailure(HttpExchange exchange, Throwable error, int errorCode) throws IOException {
+        Throwable cause = unwrap(error);
+        if (cause instanceof VersionConflictException) {
+            sendConflict(exchange, (VersionConflictException) cause);
+        } else if (cause instanceof LimitedAsyncBankService.ServiceBusyException) {
+            sendBusy(exchange, cause.getMessage());
+        } else if (cause instanceof BankException) {
+            sendError(exchange, errorCode, cause.getMessage());
+        } else {
+            sendError(exchange, 500, "Eroare server: " + cause.getMessage());
         }
-        
-        return result;
+    }
+    
+    private static Throwable unwrap(Throwable error) {
+        return error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+    }
+    
+    /**
+     * Câmpurile simple din corpul JSON al cererii (vezi JsonReader.readFlatObject)
+     */
+    private static Map<String, String> parseJsonBody(HttpExchange exchange) throws IOException {
+        return JsonReader.of(exchange.getRequestBody()).readFlatObject();
     }
 }
@@ -12,9 +12,27 @@ const state = {
     accountNumber: '',
     pin: '',
     account: null,
-    transactions: []
+    // Tranzacțiile afișate, cea mai nouă prima
+    transactions: [],
+    // Numărul de secvență al celei mai noi tranzacții încărcate
+    latestSequence: 0,
+    // Cursorul pentru pagina următoare (0 = nu mai există tranzacții)
+    nextCursor: 0,
+    // Fluxul de actualizări al contului (/api/stream): oprirea lui și dacă primește evenimente
+    stream: null,
+    streamConnected: false,
+    // Pauza înaintea următoarei reconectări; crește după fiecare încercare eșuată
+    streamRetryDelay: 3000
 };
 
+// Numărul de tranzacții cerute într-o pagină
+const PAGE_LIMIT = 20;
+
+// Fluxul este redeschis dacă serverul nu trimite nimic (nici heartbeat) în acest interval
+const STREAM_IDLE_TIMEOUT = 40000;
+// Pauza maximă între reconectări
+const STREAM_MAX_RETRY = 30000;
+
 // =====================================================
 // DOM ELEMENTS
 // =====================================================
@@ -43,6 +61,7 @@ const elements = {
     balanceAmount: document.getElementById('balance-amount'),
     accountDisplay: document.getElementById('account-display'),
     transactionsBody: document.getElementById('transactions-body'),
+    loadMoreTransactions: document.getElementById('load-more-transactions'),
     connectionError: document.getElementById('connection-error'),
     loginError: document.getElementById('login-error'),
     registerError: document.getElementById('register-error')
@@ -67,18 +86,36 @@ async function apiCall(endpoint, data = {}) {
     const url = state.serverUrl + endpoint;
     
     try {
-        const response = await fetch(url, {
+        const request = {
             method: 'POST',
             headers: {
                 'Content-Type': 'application/json'
             },
             body: JSON.stringify(data)
-        });
+        };
+        let response;
+        try {
+            response = await fetch(url, request);
+        } catch (error) {
+            // O operațiune cu cheie de idempotență poate fi retrimisă fără riscul de a fi dublată
+            if (!data.idempotencyKey) throw error;
+            response = await fetch(url, request);
+        }
+        
+        // Server ocupat: operațiunea nu a fost pornită, deci se reîncearcă o dată după Retry-After
+        if (response.status === 503 && response.headers.get('Retry-After')) {
+            const seconds = parseInt(response.headers.get('Retry-After'), 10) || 1;
+            await new Promise(resolve => setTimeout(resolve, seconds * 1000));
+            response = await fetch(url, request);
+        }
         
         const result = await response.json();
         
         if (!result.success) {
-            throw new Error(result.error || 'Eroare necunoscută');
+            const error = new Error(result.error || 'Eroare necunoscută');
+            // Răspunsul complet rămâne disponibil (ex. soldul curent la un conflict de versiune)
+            error.result = result;
+            throw error;
         }
         
         return result;
@@ -90,6 +127,14 @@ async function apiCall(endpoint, data = {}) {
     }
 }
 
+// O cheie nouă pentru fiecare acțiune a utilizatorului; reîncercările aceleiași acțiuni o refolosesc
+function newIdempotencyKey() {
+    if (window.crypto && crypto.randomUUID) {
+        return crypto.randomUUID();
+    }
+    return Date.now().toString(36) + '-' + Math.random().toString(36).slice(2);
+}
+
 // =====================================================
 // CONNECTION
 // =====================================================
@@ -147,8 +192,8 @@ async function login() {
         
         showToast('Autentificare reușită!', 'success');
         updateDashboard();
-        loadTransactions();
         showScreen('dashboard');
+        loadTransactions().then(openStream);
         
         // Curățăm câmpurile
         elements.accountNumber.value = '';
@@ -215,10 +260,13 @@ async function register() {
 }
 
 function logout() {
+    closeStream();
     state.accountNumber = '';
     state.pin = '';
     state.account = null;
     state.transactions = [];
+    state.latestSequence = 0;
+    state.nextCursor = 0;
     
     showToast('Deconectat cu succes!', 'info');
     showScreen('login');
@@ -241,15 +289,15 @@ async function deposit() {
         const result = await apiCall('/api/deposit', {
             accountNumber: state.accountNumber,
             pin: state.pin,
-            amount
+            amount,
+            idempotencyKey: newIdempotencyKey()
         });
         
         showToast(`Depunere de ${amount.toFixed(2)} RON efectuată!`, 'success');
         amountInput.value = '';
         
-        state.account.balance = result.newBalance;
-        updateDashboard();
-        loadTransactions();
+        applyBalance(result.newBalance, result.version);
+        syncTransactions();
         
     } catch (error) {
         showToast(error.message, 'error');
@@ -269,18 +317,19 @@ async function withdraw() {
         const result = await apiCall('/api/withdraw', {
             accountNumber: state.accountNumber,
             pin: state.pin,
-            amount
+            amount,
+            expectedVersion: state.account.version,
+            idempotencyKey: newIdempotencyKey()
         });
         
         showToast(`Retragere de ${amount.toFixed(2)} RON efectuată!`, 'success');
         amountInput.value = '';
         
-        state.account.balance = result.newBalance;
-        updateDashboard();
-        loadTransactions();
+        applyBalance(result.newBalance, result.version);
+        syncTransactions();
         
     } catch (error) {
-        showToast(error.message, 'error');
+        handleOperationError(error);
     }
 }
 
@@ -315,34 +364,83 @@ async function transfer() {
             accountNumber: state.accountNumber,
             pin: state.pin,
             toAccount,
-            amount
+            amount,
+            expectedVersion: state.account.version,
+            idempotencyKey: newIdempotencyKey()
         });
         
         showToast(`Transfer de ${amount.toFixed(2)} RON efectuat!`, 'success');
         toAccountInput.value = '';
         amountInput.value = '';
         
-        state.account.balance = result.newBalance;
-        updateDashboard();
-        loadTransactions();
+        applyBalance(result.newBalance, result.version);
+        syncTransactions();
         
     } catch (error) {
-        showToast(error.message, 'error');
+        handleOperationError(error);
+    }
+}
+
+// Retragerile și transferurile sunt condiționate de versiunea contului afișată.
+// La conflict serverul trimite soldul curent: îl afișăm, iar utilizatorul reîncearcă.
+function handleOperationError(error) {
+    const result = error.result;
+    if (result && result.conflict) {
+        applyBalance(result.balance, result.version);
+        syncTransactions();
+        showToast('Soldul s-a modificat între timp. Verificați datele și încercați din nou.', 'error');
+        return;
     }
+    showToast(error.message, 'error');
 }
 
 // =====================================================
 // DATA LOADING
 // =====================================================
 
+// Încarcă prima pagină de tranzacții (cele mai noi)
 async function loadTransactions() {
     try {
         const result = await apiCall('/api/transactions', {
             accountNumber: state.accountNumber,
-            pin: state.pin
+            pin: state.pin,
+            cursor: 0,
+            limit: PAGE_LIMIT
         });
         
         state.transactions = result.transactions;
+        state.latestSequence = result.latestSequence;
+        state.nextCursor = result.nextCursor;
+        renderTransactions();
+        
+    } catch (error) {
+        console.error('Eroare la încărcarea tranzacțiilor:', error);
+    }
+}
+
+// Încarcă doar tranzacțiile apărute după ultima afișată
+async function loadNewTransactions() {
+    if (state.latestSequence === 0) {
+        return loadTransactions();
+    }
+    
+    try {
+        const result = await apiCall('/api/transactions', {
+            accountNumber: state.accountNumber,
+            pin: state.pin,
+            since: state.latestSequence,
+            limit: PAGE_LIMIT
+        });
+        
+        // Prea multe tranzacții noi: reîncărcăm prima pagină
+        if (result.nextCursor !== 0) {
+            return loadTransactions();
+        }
+        
+        // Tranzacțiile sosite între timp prin fluxul de actualizări nu sunt adăugate de două ori
+        const fresh = result.transactions.filter(t => t.sequence > state.latestSequence);
+        state.transactions = fresh.concat(state.transactions);
+        state.latestSequence = Math.max(state.latestSequence, result.latestSequence);
         renderTransactions();
         
     } catch (error) {
@@ -350,6 +448,27 @@ async function loadTransactions() {
     }
 }
 
+// Încarcă pagina următoare (tranzacții mai vechi)
+async function loadMoreTransactions() {
+    if (state.nextCursor === 0) return;
+    
+    try {
+        const result = await apiCall('/api/transactions', {
+            accountNumber: state.accountNumber,
+            pin: state.pin,
+            cursor: state.nextCursor,
+            limit: PAGE_LIMIT
+        });
+        
+        state.transactions = state.transactions.concat(result.transactions);
+        state.nextCursor = result.nextCursor;
+        renderTransactions();
+        
+    } catch (error) {
+        showToast(error.message, 'error');
+    }
+}
+
 async function refreshData() {
     try {
         const result = await apiCall('/api/account', {
@@ -359,7 +478,10 @@ async function refreshData() {
         
         state.account = result.account;
         updateDashboard();
-        loadTransactions();
+        // Rezumatul contului indică dacă există tranzacții noi de cerut
+        if (result.account.latestSequence !== state.latestSequence) {
+            loadNewTransactions();
+        }
         
         showToast('Date actualizate!', 'success');
         
@@ -368,6 +490,151 @@ async function refreshData() {
     }
 }
 
+// Afișează soldul dacă nu este mai vechi decât cel afișat (răspunsul unei operațiuni
+// poate sosi după evenimentul din flux care o conține deja)
+function applyBalance(balance, version) {
+    if (!state.account || version < state.account.version) return;
+    state.account.balance = balance;
+    state.account.version = version;
+    updateDashboard();
+}
+
+// Cu fluxul de actualizări deschis, tranzacțiile noi sosesc prin el; altfel le cerem explicit
+function syncTransactions() {
+    if (!state.streamConnected) {
+        loadNewTransactions();
+    }
+}
+
+// =====================================================
+// LIVE UPDATES (server-sent events)
+// =====================================================
+
+// Deschide fluxul de actualizări al contului. Serverul trimite un eveniment "account" cu soldul
+// și tranzacțiile noi la fiecare modificare și un heartbeat când contul nu se modifică.
+// Fluxul este citit cu fetch (EventSource nu poate trimite PIN-ul în corpul unei cereri POST).
+async function openStream() {
+    if (!state.accountNumber || state.stream) return;
+    
+    const controller = new AbortController();
+    const stream = { controller, idleTimer: null };
+    state.stream = stream;
+    
+    // Fără date de la server în STREAM_IDLE_TIMEOUT, conexiunea este considerată pierdută
+    const resetIdleTimer = () => {
+        clearTimeout(stream.idleTimer);
+        stream.idleTimer = setTimeout(() => controller.abort(), STREAM_IDLE_TIMEOUT);
+    };
+    
+    let fatal = false;
+    try {
+        resetIdleTimer();
+        const response = await fetch(state.serverUrl + '/api/stream', {
+            method: 'POST',
+            headers: { 'Content-Type': 'application/json' },
+            body: JSON.stringify({
+                accountNumber: state.accountNumber,
+                pin: state.pin,
+                since: state.latestSequence
+            }),
+            signal: controller.signal
+        });
+        
+        if (!response.ok) {
+            // 503: prea multe fluxuri deschise, reîncercăm cel devreme după Retry-After
+            const seconds = parseInt(response.headers.get('Retry-After'), 10);
+            if (seconds) state.streamRetryDelay = Math.max(state.streamRetryDelay, seconds * 1000);
+            fatal = response.status === 401;
+            throw new Error('Fluxul de actualizări a fost refuzat (' + response.status + ')');
+        }
+        
+        state.streamConnected = true;
+        const reader = response.body.getReader();
+        const decoder = new TextDecoder();
+        let buffer = '';
+        
+        for (;;) {
+            const { value, done } = await reader.read();
+            if (done) break;
+            resetIdleTimer();
+            
+            buffer += decoder.decode(value, { stream: true });
+            let end;
+            while ((end = buffer.indexOf('\n\n')) >= 0) {
+                const block = buffer.slice(0, end);
+                buffer = buffer.slice(end + 2);
+                fatal = handleStreamEvent(block) || fatal;
+            }
+        }
+    } catch (error) {
+        if (!controller.signal.aborted || state.stream === stream) {
+            console.error('Fluxul de actualizări s-a întrerupt:', error.message);
+        }
+    } finally {
+        clearTimeout(stream.idleTimer);
+    }
+    
+    // Deconectare sau flux înlocuit: nu mai reconectăm
+    if (state.stream !== stream) return;
+    state.stream = null;
+    state.streamConnected = false;
+    if (fatal) return;
+    
+    // Între timp pot apărea modificări; la reconectare serverul le trimite pe toate după "since"
+    setTimeout(openStream, state.streamRetryDelay);
+    state.streamRetryDelay = Math.min(state.streamRetryDelay * 2, STREAM_MAX_RETRY);
+}
+
+// Interpretează un eveniment din flux
+// @return true dacă eroarea nu permite reconectarea (de exemplu PIN-ul nu mai este valid)
+function handleStreamEvent(block) {
+    let event = 'message';
+    let data = '';
+    for (const line of block.split('\n')) {
+        if (line.startsWith(':')) continue; // heartbeat
+        const colon = line.indexOf(':');
+        const field = colon < 0 ? line : line.slice(0, colon);
+        const value = colon < 0 ? '' : line.slice(colon + 1).replace(/^ /, '');
+        if (field === 'event') event = value;
+        else if (field === 'data') data += value;
+        // Intervalul recomandat de server, trimis la deschiderea fluxului, resetează pauza
+        else if (field === 'retry') state.streamRetryDelay = parseInt(value, 10) || state.streamRetryDelay;
+    }
+    if (!data) return false;
+    
+    const payload = JSON.parse(data);
+    if (event === 'account') {
+        applyAccountEvent(payload);
+    } else if (event === 'error') {
+        console.error('Eroare în fluxul de actualizări:', payload.error);
+        return payload.fatal;
+    }
+    return false;
+}
+
+// Actualizează soldul și tranzacțiile din evenimentul primit, fără alte cereri
+function applyAccountEvent(update) {
+    applyBalance(update.balance, update.version);
+    
+    if (update.reload) {
+        loadTransactions();
+        return;
+    }
+    const fresh = update.transactions.filter(t => t.sequence > state.latestSequence);
+    if (fresh.length > 0) {
+        state.transactions = fresh.concat(state.transactions);
+        state.latestSequence = fresh[0].sequence;
+        renderTransactions();
+    }
+}
+
+function closeStream() {
+    const stream = state.stream;
+    state.stream = null;
+    state.streamConnected = false;
+    if (stream) stream.controller.abort();
+}
+
 // =====================================================
 // UI UPDATES
 // =====================================================
@@ -382,16 +649,15 @@ function updateDashboard() {
 
 function renderTransactions() {
     const tbody = elements.transactionsBody;
+    elements.loadMoreTransactions.classList.toggle('hidden', state.nextCursor === 0);
     
     if (state.transactions.length === 0) {
         tbody.innerHTML = '<tr><td colspan="4" class="empty-message">Nu există tranzacții</td></tr>';
         return;
     }
     
-    // Sortăm invers (cele mai recente primele)
-    const sorted = [...state.transactions].reverse();
-    
-    tbody.innerHTML = sorted.map(t => {
+    // Serverul returnează tranzacțiile în ordine inversă (cele mai recente primele)
+    tbody.innerHTML = state.transactions.map(t => {
         const isNegative = t.type === 'WITHDRAWAL' || t.type === 'TRANSFER_OUT';
         const sign = isNegative ? '-' : '+';
         const amountClass = isNegative ? 'amount-negative' : 'amount-positive';
@@ -534,7 +800,9 @@ document.addEventListener('DOMContentLoaded', () => {
     
     document.getElementById('refresh-btn').addEventListener('click', refreshData);
     
-    document.getElementById('refresh-transactions').addEventListener('click', loadTransactions);
+    document.getElementById('refresh-transactions').addEventListener('click', loadNewTransactions);
+    
+    elements.loadMoreTransactions.addEventListener('click', loadMoreTransactions);
     
     // Modal close
     document.getElementById('modal-close').addEventListener('click', hideModal);